@@ -0,0 +1,101 @@
+package br.com.fiap.soat7.adapter.client;
+
+import br.com.fiap.soat7.data.domain.dto.CarSoldEvent;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Chamadas HTTP do View para o Core Service
+ * Cada tentativa passa pelo bulkhead e pelo circuit breaker; as novas tentativas ficam por fora,
+ * então o intervalo entre elas não ocupa vaga no bulkhead (ver CoreWebClientConfig).
+ */
+@Component
+@RequiredArgsConstructor
+@Log4j2
+public class CoreClient {
+
+    private final WebClient client;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final RetryBackoffSpec retry;
+
+    /**
+     * POST idempotente no Core (marcar o carro vendido de novo não muda nada), seguro para repetir
+     */
+    public Mono<Void> notifyCarSold(CarSoldEvent event) {
+        log.info("VIEW vai notificar Core venda do carro {} -> {}", event.carId(), event);
+        return resilient(() -> client.post()
+                        .uri("/internal/cars/{carId}/sold", event.carId())
+                        .bodyValue(event)
+                        .retrieve()
+                        .toBodilessEntity())
+                .doOnSuccess(r -> log.info("VIEW notificou Core venda carId={}", event.carId()))
+                .doOnError(r -> log.error("VIEW falhou ao notificar Core venda carId={}: {}", event.carId(), r.getMessage()))
+                .then();
+    }
+
+    /**
+     * Várias vendas num POST só. Core sem o endpoint em lote responde 404/405/501 (ver isBulkUnsupported).
+     */
+    public Mono<Void> notifyCarsSold(List<CarSoldEvent> events) {
+        log.info("VIEW vai notificar Core {} vendas em lote", events.size());
+        return resilient(() -> client.post()
+                        .uri("/internal/cars/sold")
+                        .bodyValue(events)
+                        .retrieve()
+                        .toBodilessEntity())
+                .doOnSuccess(r -> log.info("VIEW notificou Core {} vendas em lote", events.size()))
+                .doOnError(r -> log.warn("VIEW falhou ao notificar Core {} vendas em lote: {}", events.size(), r.getMessage()))
+                .then();
+    }
+
+    private <T> Mono<T> resilient(Supplier<Mono<T>> call) {
+        return Mono.defer(call)
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .retryWhen(retry);
+    }
+
+    /**
+     * Falha que pode passar sozinha: conexão/timeout, 5xx (menos 501) ou 429. Recusa do bulkhead ou do
+     * circuit breaker e 4xx não são repetidas nem contam como falha do Core.
+     */
+    public static boolean isTransient(Throwable e) {
+        if (e instanceof WebClientResponseException response) {
+            int status = response.getStatusCode().value();
+            return (response.getStatusCode().is5xxServerError() && status != 501) || status == 429;
+        }
+        return e instanceof WebClientRequestException || e instanceof TimeoutException;
+    }
+
+    /**
+     * Core que ainda não tem POST /internal/cars/sold
+     */
+    public static boolean isBulkUnsupported(Throwable e) {
+        if (!(e instanceof WebClientResponseException response)) return false;
+        int status = response.getStatusCode().value();
+        return status == 404 || status == 405 || status == 501;
+    }
+
+    /**
+     * Core recusou o conteúdo (4xx que não é 429): repetir a mesma requisição não adianta
+     */
+    public static boolean isRejected(Throwable e) {
+        if (!(e instanceof WebClientResponseException response)) return false;
+        return response.getStatusCode().is4xxClientError() && response.getStatusCode().value() != 429;
+    }
+}
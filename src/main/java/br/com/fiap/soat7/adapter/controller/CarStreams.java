@@ -0,0 +1,27 @@
+package br.com.fiap.soat7.adapter.controller;
+
+import br.com.fiap.soat7.data.domain.Car;
+import br.com.fiap.soat7.data.domain.dto.CarPage;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+/**
+ * Percorre uma listagem inteira seguindo os cursores keyset, uma página por vez.
+ * Com prefetch 1 a busca segue a demanda do cliente (backpressure), então a memória
+ * por requisição fica limitada a poucas páginas, qualquer que seja o tamanho do catálogo.
+ */
+final class CarStreams {
+
+    static final int PAGE_SIZE = CarPage.MAX_LIMIT;
+
+    private CarStreams() {
+    }
+
+    static Flux<Car> all(Function<String, Mono<CarPage>> fetchPage) {
+        return fetchPage.apply(null)
+                .expand(page -> page.next() == null ? Mono.empty() : fetchPage.apply(page.next()))
+                .concatMapIterable(CarPage::items, 1);
+    }
+}
@@ -5,19 +5,27 @@ import br.com.fiap.soat7.usecase.services.CarSyncService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.RestController;
 
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 @RestController
 @RequestMapping("/sync/cars")
+@Profile("!reactive")
 @RequiredArgsConstructor
 public class CarSyncController {
 
     private final CarSyncService carSyncService;
+    private final Scheduler jpaScheduler;
 
     @PostMapping
-    public ResponseEntity<Void> upsert(@RequestBody CarSyncRequest req) {
-        carSyncService.upsert(req);
-        return ResponseEntity.noContent().build(); // 204
+    public Mono<ResponseEntity<Void>> upsert(@RequestBody CarSyncRequest req) {
+        return Mono.fromCallable(() -> {
+                    carSyncService.upsert(req);
+                    return ResponseEntity.noContent().<Void>build(); // 204
+                })
+                .subscribeOn(jpaScheduler);
     }
 }
@@ -0,0 +1,47 @@
+package br.com.fiap.soat7.adapter.controller;
+
+import br.com.fiap.soat7.usecase.catalog.CatalogListing;
+import br.com.fiap.soat7.usecase.catalog.CatalogView;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * JSON já serializado de cada listagem completa, guardado pelo ETag da foto que o gerou.
+ * Enquanto o catálogo não muda, as respostas reaproveitam os mesmos bytes; o WebFlux
+ * só embrulha o array num DataBuffer (sem cópia nem nova serialização).
+ * <p>
+ * Usa o mesmo JsonMapper dos codecs do WebFlux, então o corpo é idêntico ao que seria
+ * gerado serializando a lista. Os arrays devolvidos são compartilhados: nunca alterar.
+ */
+@Component
+public class CatalogJsonCache {
+
+    private record Entry(String etag, byte[] json) {
+    }
+
+    private final JsonMapper jsonMapper;
+    private final Map<CatalogListing, AtomicReference<Entry>> entries = new EnumMap<>(CatalogListing.class);
+
+    public CatalogJsonCache(JsonMapper jsonMapper) {
+        this.jsonMapper = jsonMapper;
+        for (CatalogListing listing : CatalogListing.values()) {
+            entries.put(listing, new AtomicReference<>());
+        }
+    }
+
+    public byte[] json(CatalogListing listing, CatalogView view) {
+        AtomicReference<Entry> slot = entries.get(listing);
+        Entry cached = slot.get();
+        if (cached != null && cached.etag().equals(view.etag())) {
+            return cached.json();
+        }
+        // corrida entre duas requisições só custa uma serialização a mais; o ETag garante o conteúdo
+        byte[] json = jsonMapper.writeValueAsBytes(view.cars());
+        slot.set(new Entry(view.etag(), json));
+        return json;
+    }
+}
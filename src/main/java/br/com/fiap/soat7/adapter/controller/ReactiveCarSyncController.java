@@ -0,0 +1,24 @@
+package br.com.fiap.soat7.adapter.controller;
+
+import br.com.fiap.soat7.data.domain.dto.CarSyncRequest;
+import br.com.fiap.soat7.usecase.services.ReactiveCarSyncService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/sync/cars")
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveCarSyncController {
+
+    private final ReactiveCarSyncService carSyncService;
+
+    @PostMapping
+    public Mono<ResponseEntity<Void>> upsert(@RequestBody CarSyncRequest req) {
+        return carSyncService.upsert(req)
+                .then(Mono.fromSupplier(() -> ResponseEntity.noContent().build())); // 204
+    }
+}
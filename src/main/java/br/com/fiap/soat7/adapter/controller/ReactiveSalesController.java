@@ -0,0 +1,112 @@
+package br.com.fiap.soat7.adapter.controller;
+
+import br.com.fiap.soat7.data.domain.Car;
+import br.com.fiap.soat7.data.domain.dto.CarPage;
+import br.com.fiap.soat7.data.domain.dto.PaymentWebhookRequest;
+import br.com.fiap.soat7.data.domain.dto.PurchaseRequest;
+import br.com.fiap.soat7.data.domain.dto.PurchaseResponse;
+import br.com.fiap.soat7.usecase.idempotency.IdempotencyStore;
+import br.com.fiap.soat7.usecase.payment.WebhookInbox;
+import br.com.fiap.soat7.usecase.services.ReactiveSalesService;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Endpoints de SalesController servidos pela pilha R2DBC (profile "reactive"), com os mesmos códigos
+ * de status. Reserva e webhook seguem o mesmo contrato (Idempotency-Key, caixa de entrada e 202);
+ * lote, fila de espera, busca, facetas e ETag das listagens existem só no profile padrão.
+ */
+@RestController
+@RequestMapping("/api/1/sales")
+@Profile("reactive")
+@SecurityRequirement(name = "bearerAuth")
+@RequiredArgsConstructor
+public class ReactiveSalesController {
+
+    private final ReactiveSalesService salesService;
+    private final IdempotencyStore idempotency;
+    private final WebhookInbox inbox;
+    private final Scheduler jpaScheduler;
+
+    @GetMapping("/available")
+    public Flux<Car> listAvailable() {
+        return salesService.listAvailable();
+    }
+
+    @GetMapping("/sold")
+    public Flux<Car> listSold() {
+        return salesService.listSold();
+    }
+
+    @GetMapping("/reserved")
+    public Flux<Car> listReserved() {
+        return salesService.listReserved();
+    }
+
+    @GetMapping("/available/page")
+    public Mono<CarPage> pageAvailable(@RequestParam(required = false) String cursor,
+                                       @RequestParam(defaultValue = "50") int limit) {
+        return salesService.listAvailable(cursor, limit);
+    }
+
+    @GetMapping("/sold/page")
+    public Mono<CarPage> pageSold(@RequestParam(required = false) String cursor,
+                                  @RequestParam(defaultValue = "50") int limit) {
+        return salesService.listSold(cursor, limit);
+    }
+
+    @GetMapping("/reserved/page")
+    public Mono<CarPage> pageReserved(@RequestParam(required = false) String cursor,
+                                      @RequestParam(defaultValue = "50") int limit) {
+        return salesService.listReserved(cursor, limit);
+    }
+
+    @GetMapping(value = "/available/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Car> streamAvailable() {
+        return CarStreams.all(cursor -> salesService.listAvailable(cursor, CarStreams.PAGE_SIZE));
+    }
+
+    @GetMapping(value = "/sold/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Car> streamSold() {
+        return CarStreams.all(cursor -> salesService.listSold(cursor, CarStreams.PAGE_SIZE));
+    }
+
+    @GetMapping(value = "/reserved/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Car> streamReserved() {
+        return CarStreams.all(cursor -> salesService.listReserved(cursor, CarStreams.PAGE_SIZE));
+    }
+
+    /**
+     * Com Idempotency-Key, repetições da mesma chave devolvem a mesma reserva (ver IdempotencyStore)
+     */
+    @PostMapping("/reserved")
+    public Mono<ResponseEntity<PurchaseResponse>> reserved(@RequestBody PurchaseRequest req,
+                                                           @RequestHeader(name = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        Long carId = req.carId();
+        return idempotency.executeReactive("reserved", idempotencyKey, String.valueOf(carId), PurchaseResponse.class,
+                        Mono.defer(() -> salesService.reserved(carId)))
+                .map(ResponseEntity::ok);
+    }
+
+    /**
+     * Mesma caixa de entrada do profile padrão: grava o evento e responde 202; o WebhookInbox aplica
+     */
+    @PostMapping("/payments/webhook")
+    public Mono<ResponseEntity<Void>> webhook(@RequestBody PaymentWebhookRequest req,
+                                              @RequestHeader(name = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        return Mono.fromCallable(() -> {
+            idempotency.execute("webhook", idempotencyKey, req.paymentCode() + ":" + req.status(), Void.class, () -> {
+                inbox.append(req);
+                return null;
+            });
+            return ResponseEntity.accepted().<Void>build(); // 202
+        }).subscribeOn(jpaScheduler);
+    }
+}
@@ -1,63 +1,235 @@
 package br.com.fiap.soat7.adapter.controller;
 import br.com.fiap.soat7.data.domain.Car;
+import br.com.fiap.soat7.data.domain.dto.BatchPaymentWebhookRequest;
+import br.com.fiap.soat7.data.domain.dto.BatchPaymentWebhookResponse;
+import br.com.fiap.soat7.data.domain.dto.BatchPurchaseRequest;
+import br.com.fiap.soat7.data.domain.dto.BatchPurchaseResponse;
+import br.com.fiap.soat7.data.domain.dto.CarPage;
+import br.com.fiap.soat7.data.domain.dto.CarSearch;
+import br.com.fiap.soat7.data.domain.dto.CarSearchCursor;
 import br.com.fiap.soat7.data.domain.dto.PaymentWebhookRequest;
 import br.com.fiap.soat7.data.domain.dto.PurchaseRequest;
 import br.com.fiap.soat7.data.domain.dto.PurchaseResponse;
+import br.com.fiap.soat7.usecase.catalog.CatalogFacets;
+import br.com.fiap.soat7.usecase.catalog.CatalogListing;
+import br.com.fiap.soat7.usecase.catalog.CatalogView;
+import br.com.fiap.soat7.usecase.idempotency.IdempotencyStore;
+import br.com.fiap.soat7.usecase.payment.WebhookInbox;
+import br.com.fiap.soat7.usecase.reservation.ReservationWaitlist;
 import br.com.fiap.soat7.usecase.services.SalesService;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
-import java.util.List;
+import java.math.BigDecimal;
+import java.util.concurrent.Callable;
 
 @RestController
 @RequestMapping("/api/1/sales")
+@Profile("!reactive")
 @SecurityRequirement(name = "bearerAuth")
 public class SalesController {
 
     private final SalesService salesService;
+    private final Scheduler jpaScheduler;
+    private final CatalogJsonCache jsonCache;
+    private final ReservationWaitlist waitlist;
+    private final IdempotencyStore idempotency;
+    private final WebhookInbox inbox;
 
-    public SalesController(SalesService salesService) {
+    public SalesController(SalesService salesService, Scheduler jpaScheduler, CatalogJsonCache jsonCache,
+                           ReservationWaitlist waitlist, IdempotencyStore idempotency, WebhookInbox inbox) {
         this.salesService = salesService;
+        this.jpaScheduler = jpaScheduler;
+        this.jsonCache = jsonCache;
+        this.waitlist = waitlist;
+        this.idempotency = idempotency;
+        this.inbox = inbox;
     }
 
     /**
-     * Listagem de veículos à venda, ordenada por preço (asc)
+     * Listagem de veículos à venda, ordenada por preço (asc).
+     * As três listagens completas respondem com ETag forte; If-None-Match igual devolve 304.
+     * O corpo é o JSON pré-serializado da foto atual (ver CatalogJsonCache).
      */
-    @GetMapping("/available")
-    public ResponseEntity<List<Car>> listAvailable() {
-        return ResponseEntity.ok(salesService.listAvailable());
+    @GetMapping(value = "/available", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponse(responseCode = "200", content = @Content(array = @ArraySchema(schema = @Schema(implementation = Car.class))))
+    public ResponseEntity<byte[]> listAvailable(ServerWebExchange exchange) {
+        return listing(CatalogListing.AVAILABLE, exchange);
     }
 
     /**
      * Listagem de veículos vendidos, ordenada por preço (asc)
      */
-    @GetMapping("/sold")
-    public ResponseEntity<List<Car>> listSold() {
-        return ResponseEntity.ok(salesService.listSold());
+    @GetMapping(value = "/sold", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponse(responseCode = "200", content = @Content(array = @ArraySchema(schema = @Schema(implementation = Car.class))))
+    public ResponseEntity<byte[]> listSold(ServerWebExchange exchange) {
+        return listing(CatalogListing.SOLD, exchange);
     }
 
 
-    @GetMapping("/reserved")
-    public ResponseEntity<List<Car>> listReserved() {
-        return ResponseEntity.ok(salesService.listReserved());
+    @GetMapping(value = "/reserved", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponse(responseCode = "200", content = @Content(array = @ArraySchema(schema = @Schema(implementation = Car.class))))
+    public ResponseEntity<byte[]> listReserved(ServerWebExchange exchange) {
+        return listing(CatalogListing.RESERVED, exchange);
     }
+
+    // As listagens completas acima leem a foto em memória do catálogo e respondem direto.
+    // Tudo que vai ao banco roda no executor JPA para não bloquear o event loop.
+
+    /**
+     * Versões paginadas (keyset por price, id) das listagens.
+     * O campo "next" da resposta é o cursor da página seguinte (null na última).
+     */
+    @GetMapping("/available/page")
+    public Mono<ResponseEntity<CarPage>> pageAvailable(@RequestParam(required = false) String cursor,
+                                                 @RequestParam(defaultValue = "50") int limit) {
+        return blocking(() -> ResponseEntity.ok(salesService.listAvailable(cursor, limit)));
+    }
+
+    @GetMapping("/sold/page")
+    public Mono<ResponseEntity<CarPage>> pageSold(@RequestParam(required = false) String cursor,
+                                            @RequestParam(defaultValue = "50") int limit) {
+        return blocking(() -> ResponseEntity.ok(salesService.listSold(cursor, limit)));
+    }
+
+    @GetMapping("/reserved/page")
+    public Mono<ResponseEntity<CarPage>> pageReserved(@RequestParam(required = false) String cursor,
+                                                @RequestParam(defaultValue = "50") int limit) {
+        return blocking(() -> ResponseEntity.ok(salesService.listReserved(cursor, limit)));
+    }
+
+    /**
+     * Contagens dos veículos à venda por marca, ano, cor e faixa de preço (chave = início da faixa).
+     * Lidas da memória: custo proporcional ao número de facetas, sem consulta ao banco.
+     */
+    @GetMapping("/available/facets")
+    public ResponseEntity<CatalogFacets> facets() {
+        return ResponseEntity.ok(salesService.facets());
+    }
+
+    /**
+     * Busca de veículos à venda com filtros opcionais; sort = price, -price, year ou -year.
+     * Paginada como /page: "next" é o cursor da página seguinte (null na última), usado com os mesmos filtros.
+     */
+    @GetMapping("/available/search")
+    public Mono<ResponseEntity<CarPage>> search(@RequestParam(required = false) String brand,
+                                                @RequestParam(required = false) String model,
+                                                @RequestParam(required = false) Integer yearFrom,
+                                                @RequestParam(required = false) Integer yearTo,
+                                                @RequestParam(required = false) BigDecimal priceMin,
+                                                @RequestParam(required = false) BigDecimal priceMax,
+                                                @RequestParam(required = false) String color,
+                                                @RequestParam(required = false) String sort,
+                                                @RequestParam(required = false) String cursor,
+                                                @RequestParam(defaultValue = "50") int limit) {
+        CarSearch search = new CarSearch(brand, model, yearFrom, yearTo, priceMin, priceMax, color,
+                CarSearch.Sort.of(sort), limit, CarSearchCursor.decode(cursor));
+        return blocking(() -> ResponseEntity.ok(salesService.search(search)));
+    }
+
+    /**
+     * Listagens completas em NDJSON (um veículo por linha), lidas do banco página a página.
+     * Pensado para consumidores de feed que puxam o catálogo inteiro: o primeiro item sai
+     * assim que a primeira página chega e a memória não cresce com o tamanho do catálogo.
+     */
+    @GetMapping(value = "/available/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Car> streamAvailable() {
+        return CarStreams.all(cursor -> blocking(() -> salesService.listAvailable(cursor, CarStreams.PAGE_SIZE)));
+    }
+
+    @GetMapping(value = "/sold/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Car> streamSold() {
+        return CarStreams.all(cursor -> blocking(() -> salesService.listSold(cursor, CarStreams.PAGE_SIZE)));
+    }
+
+    @GetMapping(value = "/reserved/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Car> streamReserved() {
+        return CarStreams.all(cursor -> blocking(() -> salesService.listReserved(cursor, CarStreams.PAGE_SIZE)));
+    }
+
     /**
-     * Inicia compra/reserva e gera paymentCode
+     * Inicia compra/reserva e gera paymentCode.
+     * Com Idempotency-Key, repetições da mesma chave devolvem a mesma reserva (mesmo paymentCode).
      */
     @PostMapping("/reserved")
-    public ResponseEntity<PurchaseResponse> reserved(@RequestBody PurchaseRequest req) {
-        return ResponseEntity.ok(salesService.reserved(req.carId()));
+    public Mono<ResponseEntity<PurchaseResponse>> reserved(@RequestBody PurchaseRequest req,
+                                                           @RequestHeader(name = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        Long carId = req.carId();
+        return blocking(() -> ResponseEntity.ok(idempotency.execute("reserved", idempotencyKey,
+                String.valueOf(carId), PurchaseResponse.class, () -> salesService.reserved(carId))));
+    }
+
+    /**
+     * Como /reserved, mas com o carro reservado a requisição entra na fila de espera do carro
+     * (FIFO) e só responde quando a reserva é entregue a este comprador ou o tempo de espera
+     * acaba (409, basta chamar de novo). Substitui o laço de novas tentativas no cliente.
+     */
+    @PostMapping("/reserved/wait")
+    public Mono<ResponseEntity<PurchaseResponse>> reservedOrWait(@RequestBody PurchaseRequest req) {
+        return waitlist.reserveOrWait(req.carId()).map(ResponseEntity::ok);
+    }
+
+    /**
+     * Reserva de até 200 carros numa chamada (compra de frota), com resultado por carro:
+     * RESERVED (com paymentCode próprio), ALREADY_RESERVED, SOLD ou NOT_FOUND
+     */
+    @PostMapping("/reserved/batch")
+    public Mono<ResponseEntity<BatchPurchaseResponse>> reservedBatch(@RequestBody BatchPurchaseRequest req) {
+        return blocking(() -> ResponseEntity.ok(salesService.reservedBatch(req)));
     }
 
     /**
      * Webhook do pagamento: pago/cancelado pelo paymentCode
      * Normalmente este endpoint NÃO exige JWT do usuário final.
      * (Você pode proteger com header secreto)
+     * O evento é gravado na caixa de entrada e aplicado em seguida, fora da requisição (202).
      */
     @PostMapping("/payments/webhook")
-    public ResponseEntity<Void> webhook(@RequestBody PaymentWebhookRequest req) {
-        salesService.handlePaymentWebhook(req);
-        return ResponseEntity.noContent().build(); // 204
+    public Mono<ResponseEntity<Void>> webhook(@RequestBody PaymentWebhookRequest req,
+                                              @RequestHeader(name = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        return blocking(() -> {
+            idempotency.execute("webhook", idempotencyKey, req.paymentCode() + ":" + req.status(), Void.class, () -> {
+                inbox.append(req);
+                return null;
+            });
+            return ResponseEntity.accepted().build(); // 202
+        });
+    }
+
+    /**
+     * Vários eventos de pagamento numa chamada (entrega em lote do gateway ou reconciliação).
+     * Aplicados na hora, numa transação, com resultado por evento; só o evento de um paymentCode com
+     * evento anterior ainda na caixa de entrada vai para lá, atrás dele (QUEUED).
+     */
+    @PostMapping("/payments/webhook/batch")
+    public Mono<ResponseEntity<BatchPaymentWebhookResponse>> webhookBatch(@RequestBody BatchPaymentWebhookRequest req) {
+        return blocking(() -> ResponseEntity.ok(salesService.handlePaymentWebhookBatch(req)));
+    }
+
+    private ResponseEntity<byte[]> listing(CatalogListing listing, ServerWebExchange exchange) {
+        CatalogView view = salesService.view(listing);
+        if (exchange.checkNotModified(view.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(view.etag()).build(); // 304
+        }
+        return ResponseEntity.ok()
+                .eTag(view.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(jsonCache.json(listing, view));
+    }
+
+    private <T> Mono<T> blocking(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(jpaScheduler);
     }
 }
@@ -1,12 +1,100 @@
 package br.com.fiap.soat7.adapter.repositories;
 
 import br.com.fiap.soat7.data.domain.Car;
+import br.com.fiap.soat7.data.domain.Sale;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
-public interface CarRepository extends JpaRepository<Car, Long> {
+public interface CarRepository extends JpaRepository<Car, Long>, JpaSpecificationExecutor<Car> {
 
-    List<Car> findBySoldIsFalseOrderByPriceAsc();
-    List<Car> findBySoldIsTrueOrderByPriceAsc();
+    List<Car> findBySoldIsFalseOrderByPriceAscIdAsc();
+
+    /**
+     * Vendidos e reservados juntos; CatalogSnapshotStore separa pelo ReservationStateIndex
+     */
+    List<Car> findBySoldIsTrueOrderByPriceAscIdAsc();
+
+    @Query("select c.id from Car c where c.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // -----------------------------
+    // paginação keyset por (price, id): cada página é um seek no índice, sem OFFSET
+    // -----------------------------
+
+    List<Car> findBySoldIsFalseOrderByPriceAscIdAsc(Limit limit);
+
+    @Query("""
+            select c from Car c
+            where c.sold = false
+              and (c.price > :price or (c.price = :price and c.id > :id))
+            order by c.price asc, c.id asc
+            """)
+    List<Car> findAvailableAfter(@Param("price") BigDecimal price, @Param("id") Long id, Limit limit);
+
+    @Query("""
+            select c from Car c
+            left join Sale s on s.carId = c.id and s.status = :reserved
+            where c.sold = true and s.id is null
+            order by c.price asc, c.id asc
+            """)
+    List<Car> findSoldFirst(@Param("reserved") Sale.Status reserved, Limit limit);
+
+    @Query("""
+            select c from Car c
+            left join Sale s on s.carId = c.id and s.status = :reserved
+            where c.sold = true and s.id is null
+              and (c.price > :price or (c.price = :price and c.id > :id))
+            order by c.price asc, c.id asc
+            """)
+    List<Car> findSoldAfter(@Param("reserved") Sale.Status reserved,
+                            @Param("price") BigDecimal price, @Param("id") Long id, Limit limit);
+
+    @Query("""
+            select c from Car c
+            join Sale s on s.carId = c.id
+            where c.sold = true and s.status = :reserved
+            order by c.price asc, c.id asc
+            """)
+    List<Car> findReservedFirst(@Param("reserved") Sale.Status reserved, Limit limit);
+
+    @Query("""
+            select c from Car c
+            join Sale s on s.carId = c.id
+            where c.sold = true and s.status = :reserved
+              and (c.price > :price or (c.price = :price and c.id > :id))
+            order by c.price asc, c.id asc
+            """)
+    List<Car> findReservedAfter(@Param("reserved") Sale.Status reserved,
+                                @Param("price") BigDecimal price, @Param("id") Long id, Limit limit);
+
+    // -----------------------------
+    // contagens para conferir as facetas em memória (CatalogFacetReconciler)
+    // -----------------------------
+
+    @Query("select c.brand, count(c) from Car c where c.sold = false group by c.brand")
+    List<Object[]> countAvailableByBrand();
+
+    @Query("select c.year, count(c) from Car c where c.sold = false group by c.year")
+    List<Object[]> countAvailableByYear();
+
+    @Query("select c.color, count(c) from Car c where c.sold = false group by c.color")
+    List<Object[]> countAvailableByColor();
+
+    /**
+     * Índice da faixa de preço (largura = CatalogFacets.PRICE_BUCKET_WIDTH)
+     */
+    @Query("select floor(c.price / 25000), count(c) from Car c where c.sold = false group by floor(c.price / 25000)")
+    List<Object[]> countAvailableByPriceBucket();
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Car c set c.sold = false where c.id in :ids")
+    int markAvailable(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,32 @@
+package br.com.fiap.soat7.adapter.repositories;
+
+import br.com.fiap.soat7.data.domain.CarSoldOutboxEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface CarSoldOutboxRepository extends JpaRepository<CarSoldOutboxEntry, Long> {
+
+    /**
+     * Trava um lote de notificações pendentes cujo próximo envio já venceu.
+     * SKIP LOCKED deixa cada réplica com um lote diferente.
+     */
+    @Query(value = """
+            select o.* from car_sold_outbox o
+            where o.delivered_at is null and o.next_attempt_at <= :now
+            order by o.next_attempt_at, o.id
+            limit :limit
+            for update skip locked
+            """, nativeQuery = true)
+    List<CarSoldOutboxEntry> lockDue(@Param("now") Instant now, @Param("limit") int limit);
+
+    @Modifying
+    @Transactional
+    @Query("delete from CarSoldOutboxEntry o where o.deliveredAt < :before")
+    int deleteDeliveredBefore(@Param("before") Instant before);
+}
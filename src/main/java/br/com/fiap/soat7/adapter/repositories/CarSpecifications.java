@@ -0,0 +1,101 @@
+package br.com.fiap.soat7.adapter.repositories;
+
+import br.com.fiap.soat7.data.domain.Car;
+import br.com.fiap.soat7.data.domain.dto.CarSearch;
+import br.com.fiap.soat7.data.domain.dto.CarSearchCursor;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Monta a consulta da busca só com predicados que casam com os índices de car_view (V3, V10):
+ * igualdade em lower(brand|model|color), faixas direto nas colunas car_year e price.
+ * model sem brand usa o índice próprio de lower(model) (V10).
+ * Nada de LIKE com curinga à esquerda nem função sobre coluna fora dos índices.
+ * As páginas seguintes (search.after) continuam depois da chave de ordenação do cursor.
+ */
+public final class CarSpecifications {
+
+    private CarSpecifications() {
+    }
+
+    public static Specification<Car> available(CarSearch search) {
+        return (root, query, cb) -> {
+            List<Predicate> where = new ArrayList<>();
+            where.add(cb.isFalse(root.get("sold")));
+            if (search.brand() != null) {
+                where.add(cb.equal(cb.lower(root.get("brand")), lower(search.brand())));
+            }
+            if (search.model() != null) {
+                where.add(cb.equal(cb.lower(root.get("model")), lower(search.model())));
+            }
+            if (search.color() != null) {
+                where.add(cb.equal(cb.lower(root.get("color")), lower(search.color())));
+            }
+            if (search.yearFrom() != null) {
+                where.add(cb.greaterThanOrEqualTo(root.get("year"), search.yearFrom()));
+            }
+            if (search.yearTo() != null) {
+                where.add(cb.lessThanOrEqualTo(root.get("year"), search.yearTo()));
+            }
+            if (search.priceMin() != null) {
+                where.add(cb.greaterThanOrEqualTo(root.get("price"), search.priceMin()));
+            }
+            if (search.priceMax() != null) {
+                where.add(cb.lessThanOrEqualTo(root.get("price"), search.priceMax()));
+            }
+            if (search.after() != null) {
+                where.add(after(root, cb, search.after()));
+            }
+            return cb.and(where.toArray(Predicate[]::new));
+        };
+    }
+
+    /**
+     * Linhas depois do cursor na mesma ordem de sort(): a primeira chave que difere decide
+     */
+    private static Predicate after(Root<Car> root, CriteriaBuilder cb, CarSearchCursor after) {
+        Path<Integer> year = root.get("year");
+        Path<BigDecimal> price = root.get("price");
+        Path<Long> id = root.get("id");
+        Predicate priceThenId = cb.or(
+                cb.greaterThan(price, after.price()),
+                cb.and(cb.equal(price, after.price()), cb.greaterThan(id, after.id())));
+        return switch (after.sort()) {
+            case PRICE_ASC -> priceThenId;
+            case PRICE_DESC -> cb.or(
+                    cb.lessThan(price, after.price()),
+                    cb.and(cb.equal(price, after.price()), cb.lessThan(id, after.id())));
+            case YEAR_ASC -> cb.or(
+                    cb.greaterThan(year, after.year()),
+                    cb.and(cb.equal(year, after.year()), priceThenId));
+            case YEAR_DESC -> cb.or(
+                    cb.lessThan(year, after.year()),
+                    cb.and(cb.equal(year, after.year()), priceThenId));
+        };
+    }
+
+    /**
+     * Ordenação sempre desempatada por id, para o resultado ser determinístico.
+     */
+    public static Sort sort(CarSearch.Sort sort) {
+        return switch (sort) {
+            case PRICE_ASC -> Sort.by(Sort.Order.asc("price"), Sort.Order.asc("id"));
+            case PRICE_DESC -> Sort.by(Sort.Order.desc("price"), Sort.Order.desc("id"));
+            case YEAR_ASC -> Sort.by(Sort.Order.asc("year"), Sort.Order.asc("price"), Sort.Order.asc("id"));
+            case YEAR_DESC -> Sort.by(Sort.Order.desc("year"), Sort.Order.asc("price"), Sort.Order.asc("id"));
+        };
+    }
+
+    private static String lower(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+}
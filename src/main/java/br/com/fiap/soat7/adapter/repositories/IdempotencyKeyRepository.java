@@ -0,0 +1,75 @@
+package br.com.fiap.soat7.adapter.repositories;
+
+import br.com.fiap.soat7.data.domain.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    /**
+     * Marca a chave como em andamento. INSERT puro (sem o SELECT do merge de save): chave já
+     * marcada, por esta ou por outra réplica, falha no PK
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            insert into idempotency_keys (id, fingerprint, response, created_at, completed_at)
+            values (:id, :fingerprint, null, :createdAt, null)
+            """, nativeQuery = true)
+    void claim(@Param("id") String id,
+               @Param("fingerprint") String fingerprint,
+               @Param("createdAt") Instant createdAt);
+
+    /**
+     * Retoma a chave vencida (ttl), ou a marca do mesmo corpo abandonada no meio da execução
+     * (réplica que caiu). createdAt passa a ser o token da nova execução.
+     *
+     * @return 1 se a chave passou para quem chamou
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            update IdempotencyKey k
+            set k.fingerprint = :fingerprint, k.response = null, k.createdAt = :createdAt, k.completedAt = null
+            where k.id = :id
+              and (k.createdAt < :expiredBefore
+                   or (k.completedAt is null and k.createdAt < :abandonedBefore and k.fingerprint = :fingerprint))
+            """)
+    int reclaim(@Param("id") String id,
+                @Param("fingerprint") String fingerprint,
+                @Param("createdAt") Instant createdAt,
+                @Param("abandonedBefore") Instant abandonedBefore,
+                @Param("expiredBefore") Instant expiredBefore);
+
+    /**
+     * Grava a resposta, se a marca ainda é da execução que começou em claimedAt
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            update IdempotencyKey k set k.response = :response, k.completedAt = :completedAt
+            where k.id = :id and k.createdAt = :claimedAt and k.completedAt is null
+            """)
+    int complete(@Param("id") String id,
+                 @Param("claimedAt") Instant claimedAt,
+                 @Param("response") String response,
+                 @Param("completedAt") Instant completedAt);
+
+    /**
+     * Solta a marca de uma execução que falhou: a repetição executa de novo
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyKey k where k.id = :id and k.createdAt = :claimedAt and k.completedAt is null")
+    int release(@Param("id") String id, @Param("claimedAt") Instant claimedAt);
+
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyKey k where k.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") Instant before);
+}
@@ -0,0 +1,72 @@
+package br.com.fiap.soat7.adapter.repositories;
+
+/**
+ * SQL da reserva atômica (compare-and-set), compartilhado pelos repositórios JPA e R2DBC.
+ * Parâmetros: carId, paymentCode, reservedUntil, now. Devolve o id da venda, ou nenhuma linha
+ * quando o carro não existe, já foi pago ou tem reserva ainda válida.
+ * O id da venda nova vem de sales_seq, a mesma sequência do mapeamento JPA de Sale.
+ */
+public final class ReservationSql {
+
+    private ReservationSql() {
+    }
+
+    /**
+     * Condição da reserva: sem venda paga e sem reserva válida em :now
+     */
+    private static final String ON_CONFLICT_RESERVE = """
+                on conflict (car_id) do update
+                    set status = 'RESERVED',
+                        locked_price = excluded.locked_price,
+                        reserved_until = excluded.reserved_until,
+                        payment_code = excluded.payment_code,
+                        buyer_cpf = null,
+                        sold_at = null,
+                        version = coalesce(sales.version, 0) + 1
+                    where sales.status <> 'PAID'
+                      and (sales.status <> 'RESERVED' or sales.reserved_until is null or sales.reserved_until < :now)
+            """;
+
+    /**
+     * PostgreSQL: INSERT ... ON CONFLICT DO UPDATE condicional + UPDATE do carro num único comando.
+     * Sem linha de venda prévia, dois compradores simultâneos resolvem no índice único de car_id
+     * (o segundo cai no DO UPDATE e perde pela condição), sem lock mantido entre round trips.
+     */
+    public static final String TRY_RESERVE_POSTGRES = """
+            with reserved as (
+                insert into sales (id, car_id, status, locked_price, reserved_until, payment_code, version)
+                select nextval('sales_seq'), c.id, 'RESERVED', c.price, :reservedUntil, :paymentCode, 0
+                from car_view c where c.id = :carId
+            """ + ON_CONFLICT_RESERVE + """
+                returning id, car_id
+            ), car as (
+                update car_view set sold = true where id in (select car_id from reserved)
+            )
+            select id from reserved
+            """;
+
+    /**
+     * PostgreSQL, lote: o mesmo comando para vários carros num único round trip.
+     * carIds e paymentCodes chegam como listas separadas por vírgula, na mesma posição;
+     * o ORDER BY do INSERT faz os conflitos travarem as vendas em ordem crescente de car_id,
+     * então dois lotes concorrentes nunca se travam em ordem cruzada.
+     * Devolve (car_id, id) dos carros reservados.
+     */
+    static final String TRY_RESERVE_BATCH_POSTGRES = """
+            with input as (
+                select i.car_id, i.payment_code
+                from unnest(cast(string_to_array(:carIds, ',') as bigint[]),
+                            string_to_array(:paymentCodes, ',')) as i(car_id, payment_code)
+            ), reserved as (
+                insert into sales (id, car_id, status, locked_price, reserved_until, payment_code, version)
+                select nextval('sales_seq'), c.id, 'RESERVED', c.price, :reservedUntil, i.payment_code, 0
+                from input i join car_view c on c.id = i.car_id
+                order by c.id
+            """ + ON_CONFLICT_RESERVE + """
+                returning id, car_id
+            ), car as (
+                update car_view set sold = true where id in (select car_id from reserved)
+            )
+            select car_id, id from reserved
+            """;
+}
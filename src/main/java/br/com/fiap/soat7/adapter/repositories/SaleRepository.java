@@ -1,21 +1,62 @@
 package br.com.fiap.soat7.adapter.repositories;
 
 import br.com.fiap.soat7.data.domain.Sale;
-import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface SaleRepository extends JpaRepository<Sale, Long> {
+public interface SaleRepository extends JpaRepository<Sale, Long>, SaleReservationRepository {
     List<Sale> findByStatusOrderByLockedPriceAsc(Sale.Status status);
 
     Optional<Sale> findByPaymentCode(String paymentCode);
 
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @Query("select s from Sale s where s.carId = :carId")
-    Optional<Sale> lockByCarId(@Param("carId") Long carId);
+    List<Sale> findByPaymentCodeIn(Collection<String> paymentCodes);
+
+    @Query("select s.status from Sale s where s.carId = :carId")
+    Optional<Sale.Status> findStatusByCarId(@Param("carId") Long carId);
+
+    /**
+     * Pares (carId, status) das vendas dos carros informados (também a atualização do ReservationStateIndex)
+     */
+    @Query("select s.carId, s.status from Sale s where s.carId in :carIds")
+    List<Object[]> findStatusByCarIds(@Param("carIds") Collection<Long> carIds);
+
+    /**
+     * Pares (carId, status) de todas as vendas: recarga do ReservationStateIndex
+     */
+    @Query("select s.carId, s.status from Sale s")
+    List<Object[]> findStatuses();
+
+    // -----------------------------
+    // expiração de reservas (ReservationSweeper)
+    // -----------------------------
+
+    /**
+     * Trava um lote de reservas vencidas: (id, car_id, reserved_until).
+     * SKIP LOCKED deixa cada réplica com um lote diferente e não espera por reserva/webhook em andamento.
+     */
+    @Query(value = """
+            select s.id, s.car_id, s.reserved_until from sales s
+            where s.status = 'RESERVED' and s.reserved_until < :now
+            order by s.reserved_until
+            limit :limit
+            for update skip locked
+            """, nativeQuery = true)
+    List<Object[]> lockExpiredReservations(@Param("now") Instant now, @Param("limit") int limit);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update Sale s set s.status = :released, s.reservedUntil = null, s.version = s.version + 1
+            where s.id in :ids
+            """)
+    int releaseReservations(@Param("ids") Collection<Long> ids, @Param("released") Sale.Status released);
+
+    @Query("select min(s.reservedUntil) from Sale s where s.status = :status and s.reservedUntil < :now")
+    Instant findOldestExpiry(@Param("status") Sale.Status status, @Param("now") Instant now);
 }
@@ -0,0 +1,28 @@
+package br.com.fiap.soat7.adapter.repositories;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Fragmento do SaleRepository com a reserva atômica (ver ReservationSql).
+ */
+public interface SaleReservationRepository {
+
+    /**
+     * Reserva o carro se ele existe, não foi pago e não tem reserva válida em now;
+     * na mesma operação marca car_view.sold = true.
+     *
+     * @return id da venda reservada, ou vazio se a reserva não foi possível
+     */
+    Optional<Long> tryReserve(Long carId, String paymentCode, Instant reservedUntil, Instant now);
+
+    /**
+     * Mesma reserva para vários carros numa transação, travando as vendas em ordem crescente
+     * de carId. paymentCodes acompanha carIds posição a posição.
+     *
+     * @return carId -> id da venda, só para os carros reservados
+     */
+    Map<Long, Long> tryReserveAll(List<Long> carIds, List<String> paymentCodes, Instant reservedUntil, Instant now);
+}
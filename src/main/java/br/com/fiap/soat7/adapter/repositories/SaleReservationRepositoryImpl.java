@@ -0,0 +1,62 @@
+package br.com.fiap.soat7.adapter.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+class SaleReservationRepositoryImpl implements SaleReservationRepository {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    @Transactional
+    public Optional<Long> tryReserve(Long carId, String paymentCode, Instant reservedUntil, Instant now) {
+        List<?> ids = bind(em.createNativeQuery(ReservationSql.TRY_RESERVE_POSTGRES), carId, paymentCode, reservedUntil, now)
+                .getResultList();
+        return ids.stream().findFirst().map(id -> ((Number) id).longValue());
+    }
+
+    @Override
+    @Transactional
+    public Map<Long, Long> tryReserveAll(List<Long> carIds, List<String> paymentCodes, Instant reservedUntil, Instant now) {
+        if (carIds.size() != paymentCodes.size()) {
+            throw new IllegalArgumentException("carIds e paymentCodes devem ter o mesmo tamanho");
+        }
+        List<?> rows = em.createNativeQuery(ReservationSql.TRY_RESERVE_BATCH_POSTGRES)
+                .setParameter("carIds", join(carIds))
+                .setParameter("paymentCodes", join(paymentCodes))
+                .setParameter("reservedUntil", reservedUntil)
+                .setParameter("now", now)
+                .getResultList();
+        Map<Long, Long> reserved = new HashMap<>();
+        for (Object row : rows) {
+            Object[] cols = (Object[]) row;
+            reserved.put(((Number) cols[0]).longValue(), ((Number) cols[1]).longValue());
+        }
+        return reserved;
+    }
+
+    private static String join(List<?> values) {
+        StringBuilder sb = new StringBuilder();
+        for (Object v : values) {
+            if (!sb.isEmpty()) sb.append(',');
+            sb.append(v);
+        }
+        return sb.toString();
+    }
+
+    private static Query bind(Query query, Long carId, String paymentCode, Instant reservedUntil, Instant now) {
+        return query.setParameter("carId", carId)
+                .setParameter("paymentCode", paymentCode)
+                .setParameter("reservedUntil", reservedUntil)
+                .setParameter("now", now);
+    }
+}
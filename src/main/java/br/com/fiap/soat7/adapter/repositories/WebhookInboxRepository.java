@@ -0,0 +1,51 @@
+package br.com.fiap.soat7.adapter.repositories;
+
+import br.com.fiap.soat7.data.domain.WebhookInboxEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+public interface WebhookInboxRepository extends JpaRepository<WebhookInboxEntry, Long> {
+
+    /**
+     * Trava um lote de eventos pendentes, no máximo o primeiro de cada paymentCode.
+     * Um evento só entra depois que todos os anteriores do mesmo paymentCode foram aplicados;
+     * com SKIP LOCKED, outra réplica não pega o evento seguinte enquanto este está travado.
+     */
+    @Query(value = """
+            select w.* from webhook_inbox w
+            where w.processed_at is null
+              and not exists (select 1 from webhook_inbox e
+                              where e.payment_code = w.payment_code and e.processed_at is null and e.id < w.id)
+            order by w.id
+            limit :limit
+            for update skip locked
+            """, nativeQuery = true)
+    List<WebhookInboxEntry> lockPendingHeads(@Param("limit") int limit);
+
+    /**
+     * Trava um evento ainda pendente; vazio se já foi aplicado ou outra réplica está com ele
+     */
+    @Query(value = "select w.* from webhook_inbox w where w.id = :id and w.processed_at is null for update skip locked",
+            nativeQuery = true)
+    Optional<WebhookInboxEntry> lockPending(@Param("id") Long id);
+
+    /**
+     * Dos paymentCodes informados, os que ainda têm evento pendente na caixa de entrada
+     */
+    @Query("select distinct w.paymentCode from WebhookInboxEntry w where w.processedAt is null and w.paymentCode in :paymentCodes")
+    Set<String> findPendingPaymentCodes(@Param("paymentCodes") Collection<String> paymentCodes);
+
+    @Modifying
+    @Transactional
+    @Query("delete from WebhookInboxEntry w where w.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") Instant before);
+}
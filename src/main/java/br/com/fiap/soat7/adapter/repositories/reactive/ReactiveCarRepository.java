@@ -0,0 +1,113 @@
+package br.com.fiap.soat7.adapter.repositories.reactive;
+
+import br.com.fiap.soat7.data.domain.reactive.CarRow;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public interface ReactiveCarRepository extends R2dbcRepository<CarRow, Long> {
+
+    Flux<CarRow> findBySoldIsFalseOrderByPriceAscIdAsc();
+
+    @Query("""
+            SELECT c.* FROM car_view c
+            LEFT JOIN sales s ON s.car_id = c.id AND s.status = 'RESERVED'
+            WHERE c.sold = TRUE AND s.id IS NULL
+            ORDER BY c.price, c.id
+            """)
+    Flux<CarRow> findSoldOrderByPriceAsc();
+
+    @Query("""
+            SELECT c.* FROM car_view c
+            JOIN sales s ON s.car_id = c.id
+            WHERE c.sold = TRUE AND s.status = 'RESERVED'
+            ORDER BY c.price, c.id
+            """)
+    Flux<CarRow> findReservedOrderByPriceAsc();
+
+    // -----------------------------
+    // paginação keyset por (price, id)
+    // -----------------------------
+
+    @Query("""
+            SELECT c.* FROM car_view c
+            WHERE c.sold = FALSE
+            ORDER BY c.price, c.id
+            LIMIT :limit
+            """)
+    Flux<CarRow> findAvailableFirst(@Param("limit") int limit);
+
+    @Query("""
+            SELECT c.* FROM car_view c
+            WHERE c.sold = FALSE AND (c.price, c.id) > (:price, :id)
+            ORDER BY c.price, c.id
+            LIMIT :limit
+            """)
+    Flux<CarRow> findAvailableAfter(@Param("price") BigDecimal price, @Param("id") Long id, @Param("limit") int limit);
+
+    @Query("""
+            SELECT c.* FROM car_view c
+            LEFT JOIN sales s ON s.car_id = c.id AND s.status = 'RESERVED'
+            WHERE c.sold = TRUE AND s.id IS NULL
+            ORDER BY c.price, c.id
+            LIMIT :limit
+            """)
+    Flux<CarRow> findSoldFirst(@Param("limit") int limit);
+
+    @Query("""
+            SELECT c.* FROM car_view c
+            LEFT JOIN sales s ON s.car_id = c.id AND s.status = 'RESERVED'
+            WHERE c.sold = TRUE AND s.id IS NULL AND (c.price, c.id) > (:price, :id)
+            ORDER BY c.price, c.id
+            LIMIT :limit
+            """)
+    Flux<CarRow> findSoldAfter(@Param("price") BigDecimal price, @Param("id") Long id, @Param("limit") int limit);
+
+    @Query("""
+            SELECT c.* FROM car_view c
+            JOIN sales s ON s.car_id = c.id
+            WHERE c.sold = TRUE AND s.status = 'RESERVED'
+            ORDER BY c.price, c.id
+            LIMIT :limit
+            """)
+    Flux<CarRow> findReservedFirst(@Param("limit") int limit);
+
+    @Query("""
+            SELECT c.* FROM car_view c
+            JOIN sales s ON s.car_id = c.id
+            WHERE c.sold = TRUE AND s.status = 'RESERVED' AND (c.price, c.id) > (:price, :id)
+            ORDER BY c.price, c.id
+            LIMIT :limit
+            """)
+    Flux<CarRow> findReservedAfter(@Param("price") BigDecimal price, @Param("id") Long id, @Param("limit") int limit);
+
+    // -----------------------------
+    // escrita
+    // -----------------------------
+
+    /**
+     * Mesmo efeito do upsert JPA (sold volta a false), em um único round trip
+     */
+    @Modifying
+    @Query("""
+            INSERT INTO car_view (id, brand, model, car_year, color, price, sold, updated_at)
+            VALUES (:id, :brand, :model, :year, :color, :price, FALSE, :updatedAt)
+            ON CONFLICT (id) DO UPDATE SET
+                brand = EXCLUDED.brand,
+                model = EXCLUDED.model,
+                car_year = EXCLUDED.car_year,
+                color = EXCLUDED.color,
+                price = EXCLUDED.price,
+                sold = FALSE,
+                updated_at = EXCLUDED.updated_at
+            """)
+    Mono<Integer> upsert(@Param("id") Long id, @Param("brand") String brand, @Param("model") String model,
+                         @Param("year") Integer year, @Param("color") String color,
+                         @Param("price") BigDecimal price, @Param("updatedAt") Instant updatedAt);
+}
@@ -0,0 +1,25 @@
+package br.com.fiap.soat7.adapter.repositories.reactive;
+
+import br.com.fiap.soat7.adapter.repositories.ReservationSql;
+import br.com.fiap.soat7.data.domain.reactive.SaleRow;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+public interface ReactiveSaleRepository extends R2dbcRepository<SaleRow, Long> {
+
+    /**
+     * Reserva atômica: id da venda reservada, ou vazio se a reserva não foi possível
+     */
+    @Query(ReservationSql.TRY_RESERVE_POSTGRES)
+    Mono<Long> tryReserve(@Param("carId") Long carId,
+                          @Param("paymentCode") String paymentCode,
+                          @Param("reservedUntil") Instant reservedUntil,
+                          @Param("now") Instant now);
+
+    @Query("SELECT status FROM sales WHERE car_id = :carId")
+    Mono<String> findStatusByCarId(@Param("carId") Long carId);
+}
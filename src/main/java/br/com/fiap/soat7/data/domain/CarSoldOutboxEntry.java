@@ -0,0 +1,76 @@
+package br.com.fiap.soat7.data.domain;
+
+import br.com.fiap.soat7.data.domain.dto.CarSoldEvent;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Notificação de venda ao Core gravada junto com a venda confirmada e entregue depois pelo CarSoldOutbox
+ */
+@Entity
+@Table(name = "car_sold_outbox")
+@Getter
+@Setter
+@NoArgsConstructor
+public class CarSoldOutboxEntry {
+
+    /**
+     * Sequência pooled: as notificações de um webhook em lote saem num INSERT em batch
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "car_sold_outbox_seq")
+    @SequenceGenerator(name = "car_sold_outbox_seq", sequenceName = "car_sold_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "car_id", nullable = false)
+    private Long carId;
+
+    @Column(name = "buyer_cpf", length = 11)
+    private String buyerCpf;
+
+    @Column(name = "sold_at")
+    private Instant soldAt;
+
+    @Column(name = "payment_code", nullable = false)
+    private String paymentCode;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    /**
+     * Próximo envio permitido; avança enquanto o envio está em andamento e a cada falha
+     */
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    /**
+     * null enquanto o Core não confirmou
+     */
+    @Column(name = "delivered_at")
+    private Instant deliveredAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    public static CarSoldOutboxEntry of(Sale sale, Instant now) {
+        CarSoldOutboxEntry entry = new CarSoldOutboxEntry();
+        entry.setCarId(sale.getCarId());
+        entry.setBuyerCpf(sale.getBuyerCpf());
+        entry.setSoldAt(sale.getSoldAt());
+        entry.setPaymentCode(sale.getPaymentCode());
+        entry.setCreatedAt(now);
+        entry.setNextAttemptAt(now);
+        return entry;
+    }
+
+    public CarSoldEvent toEvent() {
+        return new CarSoldEvent(carId, buyerCpf, soldAt, paymentCode);
+    }
+}
@@ -0,0 +1,54 @@
+package br.com.fiap.soat7.data.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Idempotency-Key de POST /reserved e do webhook de pagamento: marca gravada antes da execução,
+ * completada com a resposta entregue
+ */
+@Entity
+@Table(
+        name = "idempotency_keys",
+        indexes = @Index(name = "idx_idempotency_created", columnList = "created_at")
+)
+@Getter
+@Setter
+@NoArgsConstructor
+public class IdempotencyKey {
+
+    /**
+     * escopo + ":" + chave enviada pelo cliente
+     */
+    @Id
+    @Column(length = 150)
+    private String id;
+
+    /**
+     * Identifica o corpo da requisição original; a mesma chave com outro corpo é recusada
+     */
+    @Column(nullable = false, length = 300)
+    private String fingerprint;
+
+    /**
+     * Resposta em JSON (null para endpoints sem corpo)
+     */
+    @Column(length = 1000)
+    private String response;
+
+    /**
+     * Início da execução que detém a chave (ou da última retomada)
+     */
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    /**
+     * null enquanto a primeira requisição ainda executa
+     */
+    @Column(name = "completed_at")
+    private Instant completedAt;
+}
@@ -28,8 +28,12 @@ public class Sale {
         CANCELED
     }
 
+    /**
+     * sales_seq, a mesma sequência dos INSERTs nativos da reserva (ReservationSql), que criam todas as vendas
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sales_seq")
+    @SequenceGenerator(name = "sales_seq", sequenceName = "sales_seq", allocationSize = 1)
     private Long id;
 
     /**
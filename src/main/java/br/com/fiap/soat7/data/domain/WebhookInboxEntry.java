@@ -0,0 +1,74 @@
+package br.com.fiap.soat7.data.domain;
+
+import br.com.fiap.soat7.data.domain.dto.PaymentWebhookRequest;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Evento do gateway de pagamento recebido e ainda não aplicado (ou já aplicado, até a limpeza).
+ * A ordem de chegada (id) é a ordem em que os eventos de um mesmo paymentCode são aplicados.
+ */
+@Entity
+@Table(
+        name = "webhook_inbox",
+        indexes = @Index(name = "idx_webhook_inbox_payment", columnList = "payment_code, id")
+)
+@Getter
+@Setter
+@NoArgsConstructor
+public class WebhookInboxEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "payment_code", nullable = false)
+    private String paymentCode;
+
+    @Column(nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "buyer_cpf", length = 11)
+    private String buyerCpf;
+
+    @Column(name = "event_at")
+    private Instant eventAt;
+
+    @Column(name = "received_at", nullable = false)
+    private Instant receivedAt;
+
+    /**
+     * null enquanto pendente
+     */
+    @Column(name = "processed_at")
+    private Instant processedAt;
+
+    /**
+     * Motivo da recusa (paymentCode desconhecido, carro inexistente) ou da última falha; null quando aplicado
+     */
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    /**
+     * Falhas inesperadas ao aplicar o evento sozinho, na sua própria transação
+     */
+    @Column(nullable = false)
+    private int attempts;
+
+    /**
+     * Evento recebido agora; status já validado e normalizado (PAID ou CANCELED)
+     */
+    public static WebhookInboxEntry of(PaymentWebhookRequest req, String status, Instant receivedAt) {
+        WebhookInboxEntry entry = new WebhookInboxEntry();
+        entry.setPaymentCode(req.paymentCode());
+        entry.setStatus(status);
+        entry.setBuyerCpf(req.buyerCpf());
+        entry.setEventAt(req.eventAt());
+        entry.setReceivedAt(receivedAt);
+        return entry;
+    }
+}
@@ -0,0 +1,26 @@
+package br.com.fiap.soat7.data.domain.dto;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Eventos de pagamento entregues juntos pelo gateway (ou reenviados numa reconciliação).
+ * Eventos do mesmo paymentCode são aplicados na ordem da lista.
+ */
+public record BatchPaymentWebhookRequest(List<PaymentWebhookRequest> events) {
+
+    public static final int MAX_EVENTS = 1000;
+
+    public List<PaymentWebhookRequest> validatedEvents() {
+        if (events == null || events.isEmpty()) {
+            throw new IllegalArgumentException("events é obrigatório");
+        }
+        if (events.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("events não pode conter nulos");
+        }
+        if (events.size() > MAX_EVENTS) {
+            throw new IllegalArgumentException("events deve ter no máximo " + MAX_EVENTS + " eventos");
+        }
+        return events;
+    }
+}
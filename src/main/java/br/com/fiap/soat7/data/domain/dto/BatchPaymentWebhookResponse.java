@@ -0,0 +1,24 @@
+package br.com.fiap.soat7.data.domain.dto;
+
+import java.util.List;
+
+/**
+ * Resultado por evento de um webhook em lote, na ordem em que os eventos foram enviados.
+ * carId só vem preenchido quando o paymentCode foi encontrado.
+ */
+public record BatchPaymentWebhookResponse(List<Item> results) {
+
+    public enum Outcome {
+        PAID,
+        CANCELED,
+        /** venda já estava no status do evento (reenvio) */
+        UNCHANGED,
+        NOT_FOUND,
+        INVALID_STATUS,
+        /** paymentCode com evento anterior ainda na caixa de entrada: gravado atrás dele, aplicado em seguida */
+        QUEUED
+    }
+
+    public record Item(String paymentCode, Long carId, Outcome outcome) {
+    }
+}
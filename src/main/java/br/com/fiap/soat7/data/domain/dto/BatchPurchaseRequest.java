@@ -0,0 +1,29 @@
+package br.com.fiap.soat7.data.domain.dto;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Reserva de vários carros de uma vez (compra de frota). Ids repetidos contam uma vez só.
+ */
+public record BatchPurchaseRequest(List<Long> carIds) {
+
+    public static final int MAX_CARS = 200;
+
+    /**
+     * Ids validados, sem repetição e em ordem crescente (a ordem em que as vendas são travadas)
+     */
+    public List<Long> sortedCarIds() {
+        if (carIds == null || carIds.isEmpty()) {
+            throw new IllegalArgumentException("carIds é obrigatório");
+        }
+        if (carIds.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("carIds não pode conter nulos");
+        }
+        List<Long> sorted = carIds.stream().distinct().sorted().toList();
+        if (sorted.size() > MAX_CARS) {
+            throw new IllegalArgumentException("carIds deve ter no máximo " + MAX_CARS + " carros");
+        }
+        return sorted;
+    }
+}
@@ -0,0 +1,21 @@
+package br.com.fiap.soat7.data.domain.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Resultado por carro de uma reserva em lote, na ordem crescente de carId.
+ * saleId e paymentCode só vêm preenchidos para os carros reservados nesta chamada.
+ */
+public record BatchPurchaseResponse(Instant reservedUntil, List<Item> results) {
+
+    public enum Outcome {
+        RESERVED,
+        ALREADY_RESERVED,
+        SOLD,
+        NOT_FOUND
+    }
+
+    public record Item(Long carId, Outcome outcome, Long saleId, String paymentCode) {
+    }
+}
@@ -0,0 +1,37 @@
+package br.com.fiap.soat7.data.domain.dto;
+
+import br.com.fiap.soat7.data.domain.Car;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Cursor de paginação (keyset) sobre a chave de ordenação (price, id).
+ * Trafega para o cliente como token opaco (base64url).
+ */
+public record CarCursor(BigDecimal price, Long id) {
+
+    public static CarCursor of(Car car) {
+        return new CarCursor(car.getPrice(), car.getId());
+    }
+
+    public String encode() {
+        String raw = price.toPlainString() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return cursor decodificado ou null quando o token não foi informado (primeira página)
+     */
+    public static CarCursor decode(String token) {
+        if (token == null || token.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf(':');
+            return new CarCursor(new BigDecimal(raw.substring(0, sep)), Long.valueOf(raw.substring(sep + 1)));
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("cursor inválido");
+        }
+    }
+}
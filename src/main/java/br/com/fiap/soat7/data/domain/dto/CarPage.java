@@ -0,0 +1,34 @@
+package br.com.fiap.soat7.data.domain.dto;
+
+import br.com.fiap.soat7.data.domain.Car;
+
+import java.util.List;
+
+/**
+ * Página de veículos: listagens ordenadas por (price, id), cursor CarCursor; busca na ordenação
+ * pedida, cursor CarSearchCursor. next == null indica que não há mais páginas.
+ */
+public record CarPage(List<Car> items, String next) {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+
+    public static int checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit deve estar entre 1 e " + MAX_LIMIT);
+        }
+        return limit;
+    }
+
+    /**
+     * Monta a página a partir de uma consulta que buscou limit + 1 linhas:
+     * a linha excedente só indica que existe próxima página.
+     */
+    public static CarPage of(List<Car> fetched, int limit) {
+        if (fetched.size() <= limit) {
+            return new CarPage(fetched, null);
+        }
+        List<Car> items = fetched.subList(0, limit);
+        return new CarPage(List.copyOf(items), CarCursor.of(items.get(limit - 1)).encode());
+    }
+}
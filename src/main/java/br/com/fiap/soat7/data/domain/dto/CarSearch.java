@@ -0,0 +1,65 @@
+package br.com.fiap.soat7.data.domain.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Filtros da busca de veículos à venda. Campos nulos (ou em branco) não filtram.
+ * brand, model e color comparam por igualdade sem diferenciar maiúsculas.
+ * after é o cursor da página anterior (null na primeira) e tem que ser da mesma ordenação.
+ */
+public record CarSearch(String brand,
+                        String model,
+                        Integer yearFrom,
+                        Integer yearTo,
+                        BigDecimal priceMin,
+                        BigDecimal priceMax,
+                        String color,
+                        Sort sort,
+                        int limit,
+                        CarSearchCursor after) {
+
+    public enum Sort {
+        PRICE_ASC("price"),
+        PRICE_DESC("-price"),
+        YEAR_ASC("year"),
+        YEAR_DESC("-year");
+
+        private final String param;
+
+        Sort(String param) {
+            this.param = param;
+        }
+
+        /**
+         * Converte o parâmetro da API (price, -price, year, -year); null = price.
+         */
+        public static Sort of(String param) {
+            if (param == null || param.isBlank()) return PRICE_ASC;
+            for (Sort s : values()) {
+                if (s.param.equals(param.trim())) return s;
+            }
+            throw new IllegalArgumentException("sort inválido (use price, -price, year ou -year)");
+        }
+    }
+
+    public CarSearch {
+        brand = blankToNull(brand);
+        model = blankToNull(model);
+        color = blankToNull(color);
+        if (sort == null) sort = Sort.PRICE_ASC;
+        CarPage.checkLimit(limit);
+        if (after != null && after.sort() != sort) {
+            throw new IllegalArgumentException("cursor de outra ordenação (repita a busca desde a primeira página)");
+        }
+        if (yearFrom != null && yearTo != null && yearFrom > yearTo) {
+            throw new IllegalArgumentException("yearFrom deve ser menor ou igual a yearTo");
+        }
+        if (priceMin != null && priceMax != null && priceMin.compareTo(priceMax) > 0) {
+            throw new IllegalArgumentException("priceMin deve ser menor ou igual a priceMax");
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
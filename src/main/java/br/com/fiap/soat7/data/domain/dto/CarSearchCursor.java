@@ -0,0 +1,40 @@
+package br.com.fiap.soat7.data.domain.dto;
+
+import br.com.fiap.soat7.data.domain.Car;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Cursor (keyset) da busca: a ordenação usada e a chave completa do último veículo da página
+ * (year, price, id), que cobre os desempates de todas as ordenações de CarSearch.Sort.
+ * Trafega para o cliente como token opaco (base64url), como CarCursor.
+ */
+public record CarSearchCursor(CarSearch.Sort sort, int year, BigDecimal price, long id) {
+
+    public static CarSearchCursor of(CarSearch.Sort sort, Car car) {
+        return new CarSearchCursor(sort, car.getYear(), car.getPrice(), car.getId());
+    }
+
+    public String encode() {
+        String raw = sort.name() + ":" + year + ":" + price.toPlainString() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return cursor decodificado ou null quando o token não foi informado (primeira página)
+     */
+    public static CarSearchCursor decode(String token) {
+        if (token == null || token.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", -1);
+            if (parts.length != 4) throw new IllegalArgumentException();
+            return new CarSearchCursor(CarSearch.Sort.valueOf(parts[0]), Integer.parseInt(parts[1]),
+                    new BigDecimal(parts[2]), Long.parseLong(parts[3]));
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("cursor inválido");
+        }
+    }
+}
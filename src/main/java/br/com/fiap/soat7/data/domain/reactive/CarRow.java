@@ -0,0 +1,53 @@
+package br.com.fiap.soat7.data.domain.reactive;
+
+import br.com.fiap.soat7.data.domain.Car;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Mapeamento R2DBC de car_view (mesma tabela da entidade JPA Car)
+ */
+@Table("car_view")
+@Getter
+@Setter
+@NoArgsConstructor
+public class CarRow {
+
+    @Id
+    private Long id;
+
+    private String brand;
+
+    private String model;
+
+    @Column("car_year")
+    private Integer year;
+
+    private String color;
+
+    private BigDecimal price;
+
+    private boolean sold;
+
+    private Instant updatedAt;
+
+    public Car toCar() {
+        Car car = new Car();
+        car.setId(id);
+        car.setBrand(brand);
+        car.setModel(model);
+        car.setYear(year);
+        car.setColor(color);
+        car.setPrice(price);
+        car.setSold(sold);
+        car.setUpdatedAt(updatedAt);
+        return car;
+    }
+}
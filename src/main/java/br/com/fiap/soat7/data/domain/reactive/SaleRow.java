@@ -0,0 +1,42 @@
+package br.com.fiap.soat7.data.domain.reactive;
+
+import br.com.fiap.soat7.data.domain.Sale;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Mapeamento R2DBC de sales (mesma tabela da entidade JPA Sale)
+ */
+@Table("sales")
+@Getter
+@Setter
+@NoArgsConstructor
+public class SaleRow {
+
+    @Id
+    private Long id;
+
+    private Long carId;
+
+    private Sale.Status status;
+
+    private BigDecimal lockedPrice;
+
+    private Instant reservedUntil;
+
+    private String paymentCode;
+
+    private String buyerCpf;
+
+    private Instant soldAt;
+
+    @Version
+    private Long version;
+}
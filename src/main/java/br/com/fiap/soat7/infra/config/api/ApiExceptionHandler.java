@@ -4,6 +4,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestControllerAdvice
 public class ApiExceptionHandler {
@@ -17,4 +18,9 @@ public class ApiExceptionHandler {
     public ResponseEntity<Map<String, Object>> conflict(IllegalStateException ex) {
         return ResponseEntity.status(409).body(Map.of("error", ex.getMessage()));
     }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, Object>> unavailable(RejectedExecutionException ex) {
+        return ResponseEntity.status(503).body(Map.of("error", "Serviço sobrecarregado, tente novamente"));
+    }
 }
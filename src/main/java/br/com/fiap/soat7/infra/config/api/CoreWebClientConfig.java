@@ -1,18 +1,112 @@
 package br.com.fiap.soat7.infra.config.api;
 
+import br.com.fiap.soat7.adapter.client.CoreClient;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
 
+import java.time.Duration;
+
+/**
+ * Cliente HTTP do Core e a política de resiliência aplicada em CoreClient:
+ * timeout por tentativa, novas tentativas com backoff exponencial e jitter (só falhas
+ * transitórias), circuit breaker e bulkhead limitando as chamadas simultâneas.
+ */
 @Component
 public class CoreWebClientConfig {
 
+    static final String CORE = "core";
+
+    /**
+     * connect-timeout vale para abrir a conexão; response-timeout, para cada tentativa
+     */
     @Bean
-    public WebClient coreWebClient(@Value("${carstore.core.base-url}") String baseUrl) {
+    public WebClient coreWebClient(@Value("${carstore.core.base-url}") String baseUrl,
+                                   @Value("${carstore.core.connect-timeout:1s}") Duration connectTimeout,
+                                   @Value("${carstore.core.response-timeout:2s}") Duration responseTimeout) {
+        HttpClient http = HttpClient.create()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(responseTimeout);
         return WebClient.builder()
                 .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(http))
+                .build();
+    }
+
+    /**
+     * Abre com failure-rate-threshold % de falhas transitórias nas últimas sliding-window-size
+     * chamadas; aberto, recusa na hora (CallNotPermittedException) até wait-duration-in-open-state
+     */
+    @Bean
+    public CircuitBreaker coreCircuitBreaker(MeterRegistry registry,
+                                             @Value("${carstore.core.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+                                             @Value("${carstore.core.circuit-breaker.sliding-window-size:20}") int slidingWindowSize,
+                                             @Value("${carstore.core.circuit-breaker.minimum-number-of-calls:10}") int minimumNumberOfCalls,
+                                             @Value("${carstore.core.circuit-breaker.wait-duration-in-open-state:30s}") Duration waitDurationInOpenState) {
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumNumberOfCalls)
+                .waitDurationInOpenState(waitDurationInOpenState)
+                .permittedNumberOfCallsInHalfOpenState(3)
+                // 4xx é resposta do Core, não indisponibilidade
+                .recordException(CoreClient::isTransient)
                 .build();
+        CircuitBreakerRegistry breakers = CircuitBreakerRegistry.of(config);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(breakers).bindTo(registry);
+        return breakers.circuitBreaker(CORE);
     }
 
+    /**
+     * Sem fila: com max-concurrent-calls em andamento, a próxima falha na hora (BulkheadFullException)
+     */
+    @Bean
+    public Bulkhead coreBulkhead(MeterRegistry registry,
+                                 @Value("${carstore.core.max-concurrent-calls:16}") int maxConcurrentCalls) {
+        BulkheadConfig config = BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ZERO)
+                .build();
+        BulkheadRegistry bulkheads = BulkheadRegistry.of(config);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheads).bindTo(registry);
+        return bulkheads.bulkhead(CORE);
+    }
+
+    /**
+     * retry-max-attempts conta a primeira tentativa; ao esgotar, propaga o último erro
+     */
+    @Bean
+    public RetryBackoffSpec coreRetry(MeterRegistry registry,
+                                      @Value("${carstore.core.retry-max-attempts:3}") int maxAttempts,
+                                      @Value("${carstore.core.retry-backoff:200ms}") Duration backoff,
+                                      @Value("${carstore.core.retry-max-backoff:2s}") Duration maxBackoff) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("carstore.core.retry-max-attempts deve ser >= 1");
+        }
+        Counter retries = Counter.builder("carstore.core.client.retries")
+                .description("Novas tentativas de chamada ao Core")
+                .register(registry);
+        return Retry.backoff(maxAttempts - 1L, backoff)
+                .maxBackoff(maxBackoff)
+                .jitter(0.5)
+                .filter(CoreClient::isTransient)
+                .doBeforeRetry(signal -> retries.increment())
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
 }
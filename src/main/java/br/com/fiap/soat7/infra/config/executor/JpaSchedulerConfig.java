@@ -0,0 +1,101 @@
+package br.com.fiap.soat7.infra.config.executor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor dedicado às chamadas JPA (bloqueantes) feitas pelos controllers WebFlux.
+ * <p>
+ * O número de threads acompanha o pool do Hikari: mais threads que conexões só
+ * trocaria fila do executor por espera dentro do Hikari. A fila é limitada; quando
+ * enche, a tarefa é rejeitada (503) em vez de acumular latência indefinidamente.
+ */
+@Log4j2
+@Configuration
+public class JpaSchedulerConfig {
+
+    static final String METRIC_PREFIX = "carstore.jpa.executor";
+
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor jpaExecutor(@Value("${carstore.jpa-executor.max-threads}") int maxThreads,
+                                          @Value("${carstore.jpa-executor.queue-capacity}") int queueCapacity,
+                                          MeterRegistry registry) {
+        if (maxThreads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("carstore.jpa-executor: max-threads e queue-capacity devem ser >= 1");
+        }
+        Counter rejected = Counter.builder(METRIC_PREFIX + ".rejected")
+                .description("Tarefas JPA recusadas por fila cheia")
+                .register(registry);
+        Timer wait = Timer.builder(METRIC_PREFIX + ".wait")
+                .description("Tempo entre a submissão e o início da tarefa JPA")
+                .register(registry);
+
+        ThreadPoolExecutor executor = new InstrumentedExecutor(maxThreads, queueCapacity, wait, rejected);
+
+        Gauge.builder(METRIC_PREFIX + ".queued", executor, e -> e.getQueue().size())
+                .description("Tarefas JPA aguardando thread")
+                .register(registry);
+        Gauge.builder(METRIC_PREFIX + ".active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Tarefas JPA em execução")
+                .register(registry);
+
+        log.info("Executor JPA: {} threads, fila de {}", maxThreads, queueCapacity);
+        return executor;
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler jpaScheduler(ThreadPoolExecutor jpaExecutor) {
+        return Schedulers.fromExecutorService(jpaExecutor, "jpa");
+    }
+
+    /**
+     * ThreadPoolExecutor de tamanho fixo que mede a espera na fila e conta rejeições.
+     */
+    static final class InstrumentedExecutor extends ThreadPoolExecutor {
+
+        private final Timer wait;
+
+        InstrumentedExecutor(int threads, int queueCapacity, Timer wait, Counter rejected) {
+            super(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), threadFactory(),
+                    (task, pool) -> {
+                        rejected.increment();
+                        throw new RejectedExecutionException("Executor JPA saturado");
+                    });
+            this.wait = wait;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            long submittedAt = System.nanoTime();
+            super.execute(() -> {
+                wait.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                command.run();
+            });
+        }
+
+        private static ThreadFactory threadFactory() {
+            AtomicInteger seq = new AtomicInteger();
+            return r -> {
+                Thread t = new Thread(r, "jpa-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            };
+        }
+    }
+}
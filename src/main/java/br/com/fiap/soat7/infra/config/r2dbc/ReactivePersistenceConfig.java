@@ -0,0 +1,66 @@
+package br.com.fiap.soat7.infra.config.r2dbc;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.dialect.DialectResolver;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+/**
+ * Persistência R2DBC do profile "reactive".
+ * O pool não é exposto como bean ConnectionFactory de propósito: a auto-configuração
+ * do DataSource recua quando existe um, e o JDBC continua necessário (Flyway e JPA).
+ */
+@Configuration
+@Profile("reactive")
+@EnableR2dbcRepositories(
+        basePackages = "br.com.fiap.soat7.adapter.repositories.reactive",
+        entityOperationsRef = "reactiveEntityTemplate"
+)
+public class ReactivePersistenceConfig implements DisposableBean {
+
+    private final ConnectionPool pool;
+
+    public ReactivePersistenceConfig(@Value("${carstore.r2dbc.url}") String url,
+                                     @Value("${spring.datasource.username}") String username,
+                                     @Value("${spring.datasource.password}") String password,
+                                     @Value("${carstore.r2dbc.pool-max-size:10}") int poolMaxSize) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        this.pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .maxSize(poolMaxSize)
+                .build());
+    }
+
+    @Bean
+    public DatabaseClient reactiveDatabaseClient() {
+        return DatabaseClient.create(pool);
+    }
+
+    @Bean
+    public R2dbcEntityTemplate reactiveEntityTemplate(DatabaseClient reactiveDatabaseClient) {
+        return new R2dbcEntityTemplate(reactiveDatabaseClient, DialectResolver.getDialect(pool));
+    }
+
+    @Bean
+    public TransactionalOperator reactiveTransactionalOperator() {
+        return TransactionalOperator.create(new R2dbcTransactionManager(pool));
+    }
+
+    @Override
+    public void destroy() {
+        pool.dispose();
+    }
+}
@@ -0,0 +1,29 @@
+package br.com.fiap.soat7.infra.config.reservation;
+
+import br.com.fiap.soat7.usecase.reservation.PaymentCodeGenerator;
+import br.com.fiap.soat7.usecase.reservation.TimeOrderedPaymentCodeGenerator;
+import br.com.fiap.soat7.usecase.reservation.UuidPaymentCodeGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Formato do paymentCode das reservas: ulid (padrão, ordenado pelo tempo) ou uuid (formato anterior).
+ * Outro bean PaymentCodeGenerator no contexto substitui os dois.
+ */
+@Configuration
+public class PaymentCodeConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(PaymentCodeGenerator.class)
+    public PaymentCodeGenerator paymentCodeGenerator(
+            @Value("${carstore.reservation.payment-code-format:ulid}") String format) {
+        return switch (format.trim().toLowerCase()) {
+            case "ulid" -> new TimeOrderedPaymentCodeGenerator();
+            case "uuid" -> new UuidPaymentCodeGenerator();
+            default -> throw new IllegalArgumentException(
+                    "carstore.reservation.payment-code-format deve ser ulid ou uuid: " + format);
+        };
+    }
+}
@@ -0,0 +1,14 @@
+package br.com.fiap.soat7.usecase.catalog;
+
+import java.util.Set;
+
+/**
+ * Publicado pelos fluxos de escrita (sync, reserva, webhook) com os carros alterados.
+ * Os consumidores reagem somente após o commit.
+ */
+public record CatalogChangedEvent(Set<Long> carIds) {
+
+    public static CatalogChangedEvent of(Long carId) {
+        return new CatalogChangedEvent(Set.of(carId));
+    }
+}
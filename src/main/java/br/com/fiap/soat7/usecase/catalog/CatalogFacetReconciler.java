@@ -0,0 +1,48 @@
+package br.com.fiap.soat7.usecase.catalog;
+
+import br.com.fiap.soat7.adapter.repositories.CarRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.SortedMap;
+
+/**
+ * Confere periodicamente as facetas mantidas em memória contra contagens GROUP BY no banco.
+ * Divergência (escrita perdida, evento que falhou) força uma recarga completa da foto,
+ * que recalcula as facetas do zero.
+ */
+@Component
+@RequiredArgsConstructor
+@Log4j2
+public class CatalogFacetReconciler {
+
+    private final CarRepository carRepo;
+    private final CatalogSnapshotStore store;
+
+    @Scheduled(initialDelayString = "${carstore.catalog.facets-reconcile-interval:5m}",
+            fixedDelayString = "${carstore.catalog.facets-reconcile-interval:5m}")
+    public void reconcile() {
+        CatalogFacets memory = store.current().facets();
+        CatalogFacets database = fromDatabase();
+        if (database.equals(memory)) return;
+
+        // uma escrita confirmada entre as duas leituras também cai aqui; a recarga é inofensiva
+        log.warn("Facetas em memória divergem do banco (total {} x {}); recarregando catálogo",
+                memory.total(), database.total());
+        store.reload();
+    }
+
+    CatalogFacets fromDatabase() {
+        SortedMap<String, Long> brand = CatalogFacets.counts(carRepo.countAvailableByBrand(), String.class::cast);
+        SortedMap<Long, Long> price = CatalogFacets.counts(carRepo.countAvailableByPriceBucket(),
+                v -> ((Number) v).longValue() * CatalogFacets.PRICE_BUCKET_WIDTH);
+        long total = brand.values().stream().mapToLong(Long::longValue).sum();
+        return new CatalogFacets(total,
+                brand,
+                CatalogFacets.counts(carRepo.countAvailableByYear(), v -> ((Number) v).intValue()),
+                CatalogFacets.counts(carRepo.countAvailableByColor(), String.class::cast),
+                price);
+    }
+}
@@ -0,0 +1,95 @@
+package br.com.fiap.soat7.usecase.catalog;
+
+import br.com.fiap.soat7.data.domain.Car;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Contagens dos veículos à venda por marca, ano, cor e faixa de preço.
+ * Imutável; mudanças geram nova instância com custo proporcional ao número de facetas,
+ * nunca ao tamanho do catálogo.
+ * <p>
+ * As faixas de preço têm largura fixa e a chave é o limite inferior da faixa
+ * (0 = [0, 25000), 25000 = [25000, 50000), ...).
+ */
+public record CatalogFacets(long total,
+                            SortedMap<String, Long> brand,
+                            SortedMap<Integer, Long> year,
+                            SortedMap<String, Long> color,
+                            SortedMap<Long, Long> price) {
+
+    public static final long PRICE_BUCKET_WIDTH = 25_000L;
+
+    private static final CatalogFacets EMPTY =
+            new CatalogFacets(0L, new TreeMap<>(), new TreeMap<>(), new TreeMap<>(), new TreeMap<>());
+
+    public CatalogFacets {
+        brand = Collections.unmodifiableSortedMap(brand);
+        year = Collections.unmodifiableSortedMap(year);
+        color = Collections.unmodifiableSortedMap(color);
+        price = Collections.unmodifiableSortedMap(price);
+    }
+
+    public static CatalogFacets empty() {
+        return EMPTY;
+    }
+
+    public static CatalogFacets of(Collection<Car> available) {
+        return EMPTY.update(List.of(), available);
+    }
+
+    public static long priceBucket(BigDecimal price) {
+        return price.longValue() / PRICE_BUCKET_WIDTH * PRICE_BUCKET_WIDTH;
+    }
+
+    /**
+     * Nova contagem sem os veículos removed e com os veículos added.
+     */
+    public CatalogFacets update(Collection<Car> removed, Collection<Car> added) {
+        if (removed.isEmpty() && added.isEmpty()) return this;
+        SortedMap<String, Long> nextBrand = new TreeMap<>(brand);
+        SortedMap<Integer, Long> nextYear = new TreeMap<>(year);
+        SortedMap<String, Long> nextColor = new TreeMap<>(color);
+        SortedMap<Long, Long> nextPrice = new TreeMap<>(price);
+        for (Car car : removed) {
+            count(car, -1, nextBrand, nextYear, nextColor, nextPrice);
+        }
+        for (Car car : added) {
+            count(car, 1, nextBrand, nextYear, nextColor, nextPrice);
+        }
+        return new CatalogFacets(total - removed.size() + added.size(), nextBrand, nextYear, nextColor, nextPrice);
+    }
+
+    private static void count(Car car, long delta,
+                              Map<String, Long> brand, Map<Integer, Long> year,
+                              Map<String, Long> color, Map<Long, Long> price) {
+        add(brand, car.getBrand(), delta);
+        add(year, car.getYear(), delta);
+        add(color, car.getColor(), delta);
+        add(price, car.getPrice() == null ? null : priceBucket(car.getPrice()), delta);
+    }
+
+    private static <K> void add(Map<K, Long> counts, K key, long delta) {
+        if (key == null) return;
+        // chave que zera sai do mapa, para a faceta não listar valores sem veículos
+        counts.merge(key, delta, (a, b) -> a + b == 0 ? null : a + b);
+    }
+
+    /**
+     * Converte linhas (valor, contagem) de um GROUP BY no formato de faceta.
+     */
+    static <K> SortedMap<K, Long> counts(Collection<Object[]> rows, Function<Object, K> key) {
+        SortedMap<K, Long> counts = new TreeMap<>();
+        for (Object[] row : rows) {
+            counts.merge(key.apply(row[0]), ((Number) row[1]).longValue(), Long::sum);
+        }
+        return counts;
+    }
+}
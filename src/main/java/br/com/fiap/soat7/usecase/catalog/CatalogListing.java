@@ -0,0 +1,10 @@
+package br.com.fiap.soat7.usecase.catalog;
+
+/**
+ * Listagens públicas do catálogo (endpoints /available, /sold e /reserved)
+ */
+public enum CatalogListing {
+    AVAILABLE,
+    SOLD,
+    RESERVED
+}
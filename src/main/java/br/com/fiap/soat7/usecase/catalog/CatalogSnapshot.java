@@ -0,0 +1,163 @@
+package br.com.fiap.soat7.usecase.catalog;
+
+import br.com.fiap.soat7.data.domain.Car;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Foto imutável do catálogo, com cada listagem já ordenada por (price, id).
+ * Nunca é alterada: mudanças geram uma nova instância (copy-on-write).
+ * <p>
+ * Cada listagem tem sua própria versão, que só avança quando o conteúdo dela muda
+ * (base dos ETags); version() avança quando qualquer listagem muda.
+ * As facetas da listagem AVAILABLE acompanham a foto: recalculadas na carga completa
+ * e ajustadas só pelos carros que mudaram em apply().
+ */
+public final class CatalogSnapshot {
+
+    static final Comparator<Car> PRICE_ORDER =
+            Comparator.comparing(Car::getPrice).thenComparing(Car::getId);
+
+    private static final CatalogSnapshot EMPTY = emptySnapshot();
+
+    private final long version;
+    private final Map<CatalogListing, List<Car>> listings;
+    private final Map<CatalogListing, Long> versions;
+    private final CatalogFacets facets;
+
+    private CatalogSnapshot(long version, Map<CatalogListing, List<Car>> listings,
+                            Map<CatalogListing, Long> versions, CatalogFacets facets) {
+        this.version = version;
+        this.listings = listings;
+        this.versions = versions;
+        this.facets = facets;
+    }
+
+    private static CatalogSnapshot emptySnapshot() {
+        Map<CatalogListing, List<Car>> listings = new EnumMap<>(CatalogListing.class);
+        Map<CatalogListing, Long> versions = new EnumMap<>(CatalogListing.class);
+        for (CatalogListing listing : CatalogListing.values()) {
+            listings.put(listing, List.of());
+            versions.put(listing, 0L);
+        }
+        return new CatalogSnapshot(0L, listings, versions, CatalogFacets.empty());
+    }
+
+    public static CatalogSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Nova versão completa; as listas devem vir ordenadas por (price, id).
+     */
+    public CatalogSnapshot replace(List<Car> available, List<Car> sold, List<Car> reserved) {
+        return next(available, sold, reserved, null);
+    }
+
+    /**
+     * Nova versão em que os carros de carIds saem das listagens atuais
+     * e os de placement entram na listagem indicada.
+     */
+    public CatalogSnapshot apply(Set<Long> carIds, Map<Car, CatalogListing> placement) {
+        Map<CatalogListing, List<Car>> next = new EnumMap<>(CatalogListing.class);
+        for (CatalogListing listing : CatalogListing.values()) {
+            List<Car> cars = new ArrayList<>(listings.get(listing));
+            cars.removeIf(c -> carIds.contains(c.getId()));
+            next.put(listing, cars);
+        }
+        placement.forEach((car, listing) -> insertSorted(next.get(listing), car));
+
+        List<Car> leftAvailable = listings.get(CatalogListing.AVAILABLE).stream()
+                .filter(c -> carIds.contains(c.getId()))
+                .toList();
+        List<Car> enteredAvailable = placement.entrySet().stream()
+                .filter(e -> e.getValue() == CatalogListing.AVAILABLE)
+                .map(Map.Entry::getKey)
+                .toList();
+        return next(next.get(CatalogListing.AVAILABLE),
+                next.get(CatalogListing.SOLD),
+                next.get(CatalogListing.RESERVED),
+                facets.update(leftAvailable, enteredAvailable));
+    }
+
+    /**
+     * Listagens sem mudança de conteúdo mantêm a lista e a versão anteriores;
+     * se nada mudou, a própria foto atual é devolvida.
+     * nextFacets == null recalcula as facetas a partir da lista de disponíveis.
+     */
+    private CatalogSnapshot next(List<Car> available, List<Car> sold, List<Car> reserved, CatalogFacets nextFacets) {
+        Map<CatalogListing, List<Car>> nextListings = new EnumMap<>(CatalogListing.class);
+        Map<CatalogListing, Long> nextVersions = new EnumMap<>(CatalogListing.class);
+        nextListings.put(CatalogListing.AVAILABLE, available);
+        nextListings.put(CatalogListing.SOLD, sold);
+        nextListings.put(CatalogListing.RESERVED, reserved);
+
+        boolean changed = false;
+        for (CatalogListing listing : CatalogListing.values()) {
+            List<Car> before = listings.get(listing);
+            List<Car> after = nextListings.get(listing);
+            if (sameContent(before, after)) {
+                nextListings.put(listing, before);
+                nextVersions.put(listing, versions.get(listing));
+            } else {
+                nextListings.put(listing, List.copyOf(after));
+                nextVersions.put(listing, versions.get(listing) + 1);
+                changed = true;
+            }
+        }
+        if (!changed) return this;
+        if (versions.get(CatalogListing.AVAILABLE).equals(nextVersions.get(CatalogListing.AVAILABLE))) {
+            nextFacets = facets;
+        } else if (nextFacets == null) {
+            nextFacets = CatalogFacets.of(nextListings.get(CatalogListing.AVAILABLE));
+        }
+        return new CatalogSnapshot(version + 1, nextListings, nextVersions, nextFacets);
+    }
+
+    private static boolean sameContent(List<Car> a, List<Car> b) {
+        if (a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) {
+            if (!sameCar(a.get(i), b.get(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean sameCar(Car a, Car b) {
+        return Objects.equals(a.getId(), b.getId())
+                && a.getPrice().compareTo(b.getPrice()) == 0
+                && a.isSold() == b.isSold()
+                && Objects.equals(a.getBrand(), b.getBrand())
+                && Objects.equals(a.getModel(), b.getModel())
+                && Objects.equals(a.getYear(), b.getYear())
+                && Objects.equals(a.getColor(), b.getColor())
+                && Objects.equals(a.getUpdatedAt(), b.getUpdatedAt());
+    }
+
+    private static void insertSorted(List<Car> cars, Car car) {
+        int pos = Collections.binarySearch(cars, car, PRICE_ORDER);
+        cars.add(pos < 0 ? -pos - 1 : pos, car);
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public long version(CatalogListing listing) {
+        return versions.get(listing);
+    }
+
+    public CatalogFacets facets() {
+        return facets;
+    }
+
+    public List<Car> cars(CatalogListing listing) {
+        return listings.get(listing);
+    }
+}
@@ -0,0 +1,100 @@
+package br.com.fiap.soat7.usecase.catalog;
+
+import br.com.fiap.soat7.adapter.repositories.CarRepository;
+import br.com.fiap.soat7.data.domain.Car;
+import br.com.fiap.soat7.usecase.reservation.ReservationStateIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Mantém em memória o catálogo servido pelas listagens.
+ * Leitores só fazem get() na referência atual (sem lock, sem banco);
+ * escritores montam uma nova foto e trocam a referência.
+ * Reservado x vendido vem do ReservationStateIndex, que já está atualizado quando o evento chega aqui.
+ */
+@Component
+@RequiredArgsConstructor
+@Log4j2
+public class CatalogSnapshotStore implements SmartInitializingSingleton {
+
+    private final CarRepository carRepo;
+    private final ReservationStateIndex states;
+
+    private final AtomicReference<CatalogSnapshot> current = new AtomicReference<>(CatalogSnapshot.empty());
+
+    // as versões recomeçam a cada subida; o epoch evita que um ETag antigo valide a foto nova
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    public CatalogSnapshot current() {
+        return current.get();
+    }
+
+    public List<Car> cars(CatalogListing listing) {
+        return current.get().cars(listing);
+    }
+
+    /**
+     * Listagem e ETag lidos da mesma foto, para o ETag nunca descrever outro conteúdo.
+     */
+    public CatalogView view(CatalogListing listing) {
+        CatalogSnapshot snapshot = current.get();
+        String etag = "\"" + epoch + "-" + listing.name().toLowerCase() + "-" + snapshot.version(listing) + "\"";
+        return new CatalogView(etag, snapshot.cars(listing));
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        reload();
+    }
+
+    /**
+     * Recarga completa: garante convergência com escritas feitas por outras réplicas.
+     */
+    @Scheduled(initialDelayString = "${carstore.catalog.refresh-interval:30s}",
+            fixedDelayString = "${carstore.catalog.refresh-interval:30s}")
+    public synchronized void reload() {
+        states.reload();
+        List<Car> available = carRepo.findBySoldIsFalseOrderByPriceAscIdAsc();
+        List<Car> sold = new ArrayList<>();
+        List<Car> reserved = new ArrayList<>();
+        for (Car car : carRepo.findBySoldIsTrueOrderByPriceAscIdAsc()) {
+            (states.isReserved(car.getId()) ? reserved : sold).add(car);
+        }
+        current.set(current.get().replace(available, sold, reserved));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        try {
+            refresh(event.carIds());
+        } catch (RuntimeException ex) {
+            // a escrita já foi confirmada; a próxima recarga completa corrige a foto
+            log.warn("Falha ao atualizar catálogo em memória para carIds={}: {}", event.carIds(), ex.getMessage());
+        }
+    }
+
+    synchronized void refresh(Set<Long> carIds) {
+        Map<Car, CatalogListing> placement = new HashMap<>();
+        for (Car car : carRepo.findAllById(carIds)) {
+            placement.put(car, listingOf(car, states.isReserved(car.getId())));
+        }
+        current.set(current.get().apply(carIds, placement));
+    }
+
+    static CatalogListing listingOf(Car car, boolean reserved) {
+        if (!car.isSold()) return CatalogListing.AVAILABLE;
+        return reserved ? CatalogListing.RESERVED : CatalogListing.SOLD;
+    }
+}
@@ -0,0 +1,11 @@
+package br.com.fiap.soat7.usecase.catalog;
+
+import br.com.fiap.soat7.data.domain.Car;
+
+import java.util.List;
+
+/**
+ * Uma listagem lida de uma única foto do catálogo, junto com o ETag forte que a identifica.
+ */
+public record CatalogView(String etag, List<Car> cars) {
+}
@@ -0,0 +1,299 @@
+package br.com.fiap.soat7.usecase.idempotency;
+
+import br.com.fiap.soat7.adapter.repositories.IdempotencyKeyRepository;
+import br.com.fiap.soat7.data.domain.IdempotencyKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key dos POSTs de reserva e de webhook.
+ * <p>
+ * A primeira requisição com a chave grava a marca em idempotency_keys (tabela compartilhada
+ * entre réplicas) antes de executar, e completa a marca com a resposta depois que a ação confirmou.
+ * As repetições devolvem a mesma resposta, guardada também num LRU em memória, sem tocar em
+ * sales/car_view: o cliente que reenvia por timeout não gera outro paymentCode. Repetição enquanto
+ * a primeira ainda executa, nesta ou em outra réplica, dá 409 (basta repetir depois).
+ * Falhas não são guardadas: a marca é solta e a repetição executa de novo. A mesma chave com outro
+ * corpo dá 400. Marca sem resposta há mais de {@code claim-timeout} (réplica que caiu no meio) é
+ * retomada pela repetição. Se completar a marca falhar, o cliente recebe o resultado mesmo assim e
+ * a resposta fica só no LRU desta réplica.
+ */
+@Component
+@Log4j2
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+    static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyKeyRepository repo;
+    private final JsonMapper json;
+    private final Duration ttl;
+    private final Duration claimTimeout;
+    private final Scheduler jpaScheduler;
+
+    private final Map<String, Entry> recent;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final Counter replays;
+    private final Counter storeFailures;
+
+    public IdempotencyStore(IdempotencyKeyRepository repo,
+                            JsonMapper json,
+                            MeterRegistry registry,
+                            Scheduler jpaScheduler,
+                            @Value("${carstore.idempotency.ttl:24h}") Duration ttl,
+                            @Value("${carstore.idempotency.cache-size:10000}") int cacheSize,
+                            @Value("${carstore.idempotency.claim-timeout:1m}") Duration claimTimeout) {
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("carstore.idempotency.cache-size deve ser >= 1");
+        }
+        // a marca não pode ser retomada de uma execução que ainda vale
+        if (claimTimeout.compareTo(ttl) >= 0) {
+            throw new IllegalArgumentException("carstore.idempotency.claim-timeout deve ser menor que ttl");
+        }
+        this.repo = repo;
+        this.json = json;
+        this.ttl = ttl;
+        this.claimTimeout = claimTimeout;
+        this.jpaScheduler = jpaScheduler;
+        this.recent = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > cacheSize;
+            }
+        });
+        this.replays = Counter.builder("carstore.idempotency.replays")
+                .description("Requisições respondidas com a resposta guardada do Idempotency-Key")
+                .register(registry);
+        this.storeFailures = Counter.builder("carstore.idempotency.store.failures")
+                .description("Respostas que não puderam ser gravadas em idempotency_keys")
+                .register(registry);
+    }
+
+    /**
+     * Executa action uma vez por (scope, key). Sem key, apenas executa.
+     *
+     * @param fingerprint identifica o corpo da requisição (ex.: carId)
+     * @param type        tipo da resposta; Void.class para endpoints sem corpo
+     */
+    public <T> T execute(String scope, String key, String fingerprint, Class<T> type, Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        String id = id(scope, key);
+
+        Start<T> start = begin(id, fingerprint, type);
+        if (!start.claimed()) {
+            return start.replay();
+        }
+        try {
+            T result;
+            try {
+                result = action.get();
+            } catch (RuntimeException e) {
+                release(id, start.claimedAt());
+                throw e;
+            }
+            remember(id, start.claimedAt(), fingerprint, result);
+            return result;
+        } finally {
+            inFlight.remove(id);
+        }
+    }
+
+    /**
+     * execute para ação reativa (profile "reactive"): a marca e a resposta vão à tabela no
+     * executor JPA, a ação segue no scheduler dela
+     */
+    public <T> Mono<T> executeReactive(String scope, String key, String fingerprint, Class<T> type, Mono<T> action) {
+        if (key == null || key.isBlank()) {
+            return action;
+        }
+        return Mono.defer(() -> {
+            String id = id(scope, key);
+            return Mono.fromCallable(() -> begin(id, fingerprint, type))
+                    .subscribeOn(jpaScheduler)
+                    .flatMap(start -> {
+                        if (!start.claimed()) {
+                            return Mono.justOrEmpty(start.replay());
+                        }
+                        return action
+                                .onErrorResume(e -> Mono.fromRunnable(() -> release(id, start.claimedAt()))
+                                        .subscribeOn(jpaScheduler)
+                                        .onErrorComplete()
+                                        .then(Mono.error(e)))
+                                .flatMap(result -> Mono.fromRunnable(() -> remember(id, start.claimedAt(), fingerprint, result))
+                                        .subscribeOn(jpaScheduler)
+                                        .onErrorComplete()
+                                        .thenReturn(result))
+                                .doFinally(signal -> inFlight.remove(id));
+                    });
+        });
+    }
+
+    /**
+     * Devolve a resposta guardada ou marca a chave para esta execução; quem recebe a marca
+     * tira id de inFlight no fim
+     */
+    private <T> Start<T> begin(String id, String fingerprint, Class<T> type) {
+        Entry stored = lookup(id);
+        if (stored != null && stored.completed()) {
+            return Start.replayed(replay(stored, fingerprint, type));
+        }
+
+        if (!inFlight.add(id)) {
+            throw new IllegalStateException("Requisição com este " + HEADER + " ainda em andamento");
+        }
+        try {
+            Instant claimedAt = claim(id, fingerprint);
+            if (claimedAt != null) {
+                return Start.claimed(claimedAt);
+            }
+        } catch (RuntimeException e) {
+            inFlight.remove(id);
+            throw e;
+        }
+        inFlight.remove(id);
+        // outra réplica tem a marca: já concluiu ou ainda executa
+        return Start.replayed(replayOrRefuse(lookup(id), fingerprint, type));
+    }
+
+    private static String id(String scope, String key) {
+        String k = key.trim();
+        if (k.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(HEADER + " deve ter no máximo " + MAX_KEY_LENGTH + " caracteres");
+        }
+        return scope + ":" + k;
+    }
+
+    /**
+     * @return início da execução que passou a deter a chave, ou null se ela é de outra
+     */
+    private Instant claim(String id, String fingerprint) {
+        // mesma precisão da coluna: o instante volta como token em complete e release
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        try {
+            repo.claim(id, fingerprint, now);
+            return now;
+        } catch (DataIntegrityViolationException e) {
+            int reclaimed = repo.reclaim(id, fingerprint, now, now.minus(claimTimeout), now.minus(ttl));
+            return reclaimed == 1 ? now : null;
+        }
+    }
+
+    private Entry lookup(String id) {
+        Instant oldest = Instant.now().minus(ttl);
+        Entry e = recent.get(id);
+        if (e != null) {
+            if (e.createdAt().isAfter(oldest)) return e;
+            recent.remove(id);
+            return null;
+        }
+        return repo.findById(id)
+                .filter(k -> k.getCreatedAt().isAfter(oldest))
+                .map(k -> {
+                    Entry loaded = new Entry(k.getFingerprint(), k.getResponse(), k.getCreatedAt(), k.getCompletedAt() != null);
+                    // só respostas entregues vão para o LRU; a marca em andamento muda
+                    if (loaded.completed()) recent.put(id, loaded);
+                    return loaded;
+                })
+                .orElse(null);
+    }
+
+    private <T> T replayOrRefuse(Entry current, String fingerprint, Class<T> type) {
+        if (current != null && current.completed()) {
+            return replay(current, fingerprint, type);
+        }
+        if (current != null && !Objects.equals(current.fingerprint(), fingerprint)) {
+            throw new IllegalArgumentException(HEADER + " já usado com outra requisição");
+        }
+        throw new IllegalStateException("Requisição com este " + HEADER + " ainda em andamento");
+    }
+
+    private <T> T replay(Entry stored, String fingerprint, Class<T> type) {
+        if (!Objects.equals(stored.fingerprint(), fingerprint)) {
+            throw new IllegalArgumentException(HEADER + " já usado com outra requisição");
+        }
+        replays.increment();
+        return stored.response() == null ? null : json.readValue(stored.response(), type);
+    }
+
+    /**
+     * Nunca lança: a ação já foi confirmada e o resultado tem que chegar ao cliente
+     */
+    private void remember(String id, Instant claimedAt, String fingerprint, Object result) {
+        try {
+            Instant now = Instant.now();
+            Entry entry = new Entry(fingerprint, result == null ? null : json.writeValueAsString(result), claimedAt, true);
+            recent.put(id, entry);
+            if (repo.complete(id, claimedAt, entry.response(), now) == 0) {
+                // a marca foi retomada por outra réplica (execução passou de claim-timeout)
+                storeFailures.increment();
+                log.warn("{} {} retomado por outra réplica antes de completar", HEADER, id);
+            }
+        } catch (RuntimeException e) {
+            storeFailures.increment();
+            log.error("Falha ao gravar {} {}; repetição só é reconhecida por esta réplica: {}", HEADER, id, e.toString());
+        }
+    }
+
+    /**
+     * Sem lançar: a falha da ação é o que o cliente precisa ver; a marca presa vence em claim-timeout
+     */
+    private void release(String id, Instant claimedAt) {
+        try {
+            repo.release(id, claimedAt);
+        } catch (RuntimeException e) {
+            log.warn("Falha ao soltar {} {}; liberado em {}: {}", HEADER, id, claimTimeout, e.toString());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${carstore.idempotency.purge-interval:1h}",
+            fixedDelayString = "${carstore.idempotency.purge-interval:1h}")
+    public void purgeExpired() {
+        int removed = repo.deleteCreatedBefore(Instant.now().minus(ttl));
+        if (removed > 0) {
+            log.info("Idempotency-Keys expiradas removidas: {}", removed);
+        }
+    }
+
+    private record Entry(String fingerprint, String response, Instant createdAt, boolean completed) {
+    }
+
+    /**
+     * claimedAt != null: esta execução tem a marca; senão replay é a resposta guardada
+     */
+    private record Start<T>(T replay, Instant claimedAt) {
+
+        static <T> Start<T> replayed(T replay) {
+            return new Start<>(replay, null);
+        }
+
+        static <T> Start<T> claimed(Instant claimedAt) {
+            return new Start<>(null, claimedAt);
+        }
+
+        boolean claimed() {
+            return claimedAt != null;
+        }
+    }
+}
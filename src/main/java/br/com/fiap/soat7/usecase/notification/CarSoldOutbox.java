@@ -0,0 +1,345 @@
+package br.com.fiap.soat7.usecase.notification;
+
+import br.com.fiap.soat7.adapter.client.CoreClient;
+import br.com.fiap.soat7.adapter.repositories.CarSoldOutboxRepository;
+import br.com.fiap.soat7.data.domain.CarSoldOutboxEntry;
+import br.com.fiap.soat7.data.domain.Sale;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Outbox das notificações de venda ao Core.
+ * <p>
+ * A venda confirmada grava a notificação em car_sold_outbox na mesma transação: se o commit
+ * acontece, o Core acaba sabendo, mesmo com o Core fora do ar ou o pod reiniciado no meio.
+ * O relay trava um lote de pendentes (SKIP LOCKED), reserva o lote por {@code lease} e já
+ * solta a transação; os envios saem fora dela, com no máximo {@code concurrency} em paralelo,
+ * e o resultado volta numa segunda transação: entregue, ou nova tentativa com backoff
+ * exponencial. Entrega pelo menos uma vez: o POST /internal/cars/{carId}/sold é idempotente no Core.
+ * <p>
+ * Vendas confirmadas em sequência são agrupadas: depois do commit o relay espera até
+ * {@code linger} (ou até batch-size pendentes) e manda o lote num POST só para
+ * /internal/cars/sold. Core sem esse endpoint recebe um POST por carro, e o lote só é tentado
+ * de novo depois de {@code bulk-recheck-interval}. Lote recusado pelo conteúdo (4xx) é reenviado
+ * carro a carro, para que só a entrada ruim continue falhando.
+ */
+@Component
+@Log4j2
+public class CarSoldOutbox {
+
+    static final int MAX_ERROR_LENGTH = 500;
+
+    private final CarSoldOutboxRepository repo;
+    private final CoreClient core;
+    private final TransactionTemplate tx;
+    private final Scheduler jpaScheduler;
+    private final int batchSize;
+    private final int concurrency;
+    private final Duration sendTimeout;
+    private final Duration lease;
+    private final Duration retryBackoff;
+    private final Duration retryMaxBackoff;
+    private final Duration retention;
+    private final Duration linger;
+    private final boolean bulk;
+    private final Duration bulkRecheckInterval;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean lingering = new AtomicBoolean();
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile long bulkUnsupportedUntil;
+
+    private final Counter delivered;
+    private final Counter failed;
+    private final Timer lag;
+    private final Timer flush;
+    private final DistributionSummary flushSize;
+    private final Counter bulkRequests;
+    private final Counter singleRequests;
+
+    public CarSoldOutbox(CarSoldOutboxRepository repo,
+                         CoreClient core,
+                         PlatformTransactionManager transactionManager,
+                         Scheduler jpaScheduler,
+                         MeterRegistry registry,
+                         @Value("${carstore.core-outbox.batch-size:100}") int batchSize,
+                         @Value("${carstore.core-outbox.concurrency:8}") int concurrency,
+                         @Value("${carstore.core-outbox.send-timeout:10s}") Duration sendTimeout,
+                         @Value("${carstore.core-outbox.lease:1m}") Duration lease,
+                         @Value("${carstore.core-outbox.retry-backoff:1s}") Duration retryBackoff,
+                         @Value("${carstore.core-outbox.retry-max-backoff:5m}") Duration retryMaxBackoff,
+                         @Value("${carstore.core-outbox.retention:7d}") Duration retention,
+                         @Value("${carstore.core-outbox.linger:50ms}") Duration linger,
+                         @Value("${carstore.core-outbox.bulk:true}") boolean bulk,
+                         @Value("${carstore.core-outbox.bulk-recheck-interval:10m}") Duration bulkRecheckInterval) {
+        if (batchSize < 1 || concurrency < 1) {
+            throw new IllegalArgumentException("carstore.core-outbox.batch-size e concurrency devem ser >= 1");
+        }
+        // o lote tem que ser resolvido antes que outra réplica possa pegá-lo de novo
+        if (lease.compareTo(sendTimeout.multipliedBy(2)) < 0) {
+            throw new IllegalArgumentException("carstore.core-outbox.lease deve ser pelo menos 2x send-timeout");
+        }
+        this.repo = repo;
+        this.core = core;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.jpaScheduler = jpaScheduler;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.sendTimeout = sendTimeout;
+        this.lease = lease;
+        this.retryBackoff = retryBackoff;
+        this.retryMaxBackoff = retryMaxBackoff;
+        this.retention = retention;
+        this.linger = linger;
+        this.bulk = bulk;
+        this.bulkRecheckInterval = bulkRecheckInterval;
+
+        this.delivered = outcome(registry, "delivered");
+        this.failed = outcome(registry, "failed");
+        this.lag = Timer.builder("carstore.core.outbox.lag")
+                .description("Tempo entre a venda confirmada e a entrega ao Core")
+                .register(registry);
+        this.flush = Timer.builder("carstore.core.outbox.flush")
+                .description("Duração do envio de um lote ao Core")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.flushSize = DistributionSummary.builder("carstore.core.outbox.batch.size")
+                .description("Notificações por lote enviado ao Core")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.bulkRequests = requests(registry, "bulk");
+        this.singleRequests = requests(registry, "single");
+    }
+
+    private static Counter requests(MeterRegistry registry, String mode) {
+        return Counter.builder("carstore.core.outbox.requests")
+                .description("Requisições HTTP feitas ao Core pelo relay")
+                .tag("mode", mode)
+                .register(registry);
+    }
+
+    private static Counter outcome(MeterRegistry registry, String outcome) {
+        return Counter.builder("carstore.core.outbox.sent")
+                .description("Envios de notificação de venda ao Core")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    // -----------------------------
+    // gravação (transação da venda)
+    // -----------------------------
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(Sale sale) {
+        enqueueAll(List.of(sale));
+    }
+
+    /**
+     * Grava as notificações na transação do chamador; o relay é avisado depois do commit
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueAll(Collection<Sale> sales) {
+        if (sales.isEmpty()) return;
+        Instant now = Instant.now();
+        int count = sales.size();
+        repo.saveAll(sales.stream().map(sale -> CarSoldOutboxEntry.of(sale, now)).toList());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                onEnqueued(count);
+            }
+        });
+    }
+
+    /**
+     * Lote cheio sai na hora; senão, uma rodada só depois de linger para tudo que chegar até lá
+     */
+    void onEnqueued(int count) {
+        if (pending.addAndGet(count) >= batchSize || linger.isZero()) {
+            relay();
+            return;
+        }
+        if (!lingering.compareAndSet(false, true)) return;
+        Mono.delay(linger).subscribe(tick -> {
+            lingering.set(false);
+            relay();
+        });
+    }
+
+    // -----------------------------
+    // relay
+    // -----------------------------
+
+    /**
+     * No máximo uma rodada por instância; não bloqueia a thread que chama
+     */
+    @Scheduled(initialDelayString = "${carstore.core-outbox.poll-interval:1s}",
+            fixedDelayString = "${carstore.core-outbox.poll-interval:1s}")
+    public void relay() {
+        if (!running.compareAndSet(false, true)) return;
+        drain()
+                .doFinally(signal -> running.set(false))
+                .subscribe(null, e -> log.warn("Outbox do Core: rodada interrompida, segue na próxima: {}", e.toString()));
+    }
+
+    /**
+     * Lotes seguidos enquanto vierem cheios; emite o total entregue
+     */
+    Mono<Integer> drain() {
+        return round().flatMap(result -> result.claimed() == batchSize
+                ? drain().map(more -> result.delivered() + more)
+                : Mono.just(result.delivered()));
+    }
+
+    private Mono<RoundResult> round() {
+        return Mono.fromCallable(this::claim)
+                .subscribeOn(jpaScheduler)
+                .flatMap(batch -> batch.isEmpty()
+                        ? Mono.just(new RoundResult(0, 0))
+                        : send(batch).flatMap(errors -> Mono.fromCallable(() -> complete(batch, errors))
+                                .subscribeOn(jpaScheduler)
+                                .map(ok -> new RoundResult(batch.size(), ok))));
+    }
+
+    private record RoundResult(int claimed, int delivered) {
+    }
+
+    /**
+     * Trava o lote e adia o próximo envio de cada entrada por lease, no mesmo commit curto
+     */
+    List<CarSoldOutboxEntry> claim() {
+        pending.set(0);
+        return tx.execute(status -> {
+            Instant now = Instant.now();
+            List<CarSoldOutboxEntry> batch = repo.lockDue(now, batchSize);
+            Instant leaseUntil = now.plus(lease);
+            batch.forEach(entry -> entry.setNextAttemptAt(leaseUntil));
+            return batch;
+        });
+    }
+
+    /**
+     * Envia o lote; emite id → erro das entradas que falharam
+     */
+    private Mono<Map<Long, String>> send(List<CarSoldOutboxEntry> batch) {
+        long start = System.nanoTime();
+        Mono<Map<Long, String>> sent = bulk && System.currentTimeMillis() >= bulkUnsupportedUntil
+                ? sendBulk(batch)
+                : sendEach(batch);
+        return sent.doOnSuccess(errors -> {
+            flush.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            flushSize.record(batch.size());
+        });
+    }
+
+    private Mono<Map<Long, String>> sendBulk(List<CarSoldOutboxEntry> batch) {
+        return Mono.defer(() -> {
+                    bulkRequests.increment();
+                    return core.notifyCarsSold(batch.stream().map(CarSoldOutboxEntry::toEvent).toList());
+                })
+                .timeout(sendTimeout)
+                .then(Mono.<Map<Long, String>>fromSupplier(HashMap::new))
+                .onErrorResume(CoreClient::isBulkUnsupported, e -> {
+                    bulkUnsupportedUntil = System.currentTimeMillis() + bulkRecheckInterval.toMillis();
+                    log.info("Core sem notificação em lote ({}); um POST por carro pelos próximos {}",
+                            e.getMessage(), bulkRecheckInterval);
+                    return sendEach(batch);
+                })
+                .onErrorResume(CoreClient::isRejected, e -> {
+                    // lote recusado (400/422...): um POST por carro, só a entrada ruim continua falhando
+                    log.warn("Core recusou o lote de {} vendas ({}); enviando uma a uma", batch.size(), e.getMessage());
+                    return sendEach(batch);
+                })
+                .onErrorResume(e -> {
+                    String error = describe(e);
+                    Map<Long, String> errors = new HashMap<>();
+                    batch.forEach(entry -> errors.put(entry.getId(), error));
+                    return Mono.just(errors);
+                });
+    }
+
+    private Mono<Map<Long, String>> sendEach(List<CarSoldOutboxEntry> batch) {
+        return Flux.fromIterable(batch)
+                .flatMap(entry -> Mono.defer(() -> {
+                            singleRequests.increment();
+                            return core.notifyCarSold(entry.toEvent());
+                        })
+                        .timeout(sendTimeout)
+                        .then(Mono.<Map.Entry<Long, String>>empty())
+                        .onErrorResume(e -> Mono.just(Map.entry(entry.getId(), describe(e)))), concurrency)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, HashMap::new);
+    }
+
+    int complete(List<CarSoldOutboxEntry> batch, Map<Long, String> errors) {
+        return tx.execute(status -> {
+            Instant now = Instant.now();
+            int ok = 0;
+            for (CarSoldOutboxEntry entry : repo.findAllById(batch.stream().map(CarSoldOutboxEntry::getId).toList())) {
+                String error = errors.get(entry.getId());
+                entry.setAttempts(entry.getAttempts() + 1);
+                if (error == null) {
+                    entry.setDeliveredAt(now);
+                    entry.setLastError(null);
+                    delivered.increment();
+                    lag.record(Duration.between(entry.getCreatedAt(), now));
+                    ok++;
+                } else {
+                    entry.setNextAttemptAt(now.plus(backoff(entry.getAttempts())));
+                    entry.setLastError(error);
+                    failed.increment();
+                    log.warn("Outbox do Core: falha ao notificar venda carId={} (tentativa {}): {}",
+                            entry.getCarId(), entry.getAttempts(), error);
+                }
+            }
+            return ok;
+        });
+    }
+
+    /**
+     * retryBackoff * 2^(tentativas - 1), limitado a retryMaxBackoff
+     */
+    Duration backoff(int attempts) {
+        int shift = Math.min(Math.max(attempts - 1, 0), 20);
+        Duration next = retryBackoff.multipliedBy(1L << shift);
+        return next.compareTo(retryMaxBackoff) > 0 ? retryMaxBackoff : next;
+    }
+
+    @Scheduled(initialDelayString = "${carstore.core-outbox.purge-interval:1h}",
+            fixedDelayString = "${carstore.core-outbox.purge-interval:1h}")
+    public void purgeDelivered() {
+        int removed = repo.deleteDeliveredBefore(Instant.now().minus(retention));
+        if (removed > 0) {
+            log.info("Notificações de venda entregues removidas da outbox: {}", removed);
+        }
+    }
+
+    private static String describe(Throwable e) {
+        String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+        return message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,234 @@
+package br.com.fiap.soat7.usecase.payment;
+
+import br.com.fiap.soat7.adapter.repositories.WebhookInboxRepository;
+import br.com.fiap.soat7.data.domain.WebhookInboxEntry;
+import br.com.fiap.soat7.data.domain.dto.PaymentWebhookRequest;
+import br.com.fiap.soat7.usecase.services.SalesService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caixa de entrada do webhook de pagamento.
+ * <p>
+ * O endpoint só valida o formato, grava o evento em webhook_inbox e responde 202: o gateway
+ * não espera pelas leituras e escritas de sales/car_view. O worker aplica os eventos em lotes de
+ * {@code carstore.webhook-inbox.batch-size}, um lote por transação, acordado a cada evento
+ * recebido e, como rede de segurança, a cada {@code carstore.webhook-inbox.poll-interval}.
+ * Eventos do mesmo paymentCode são aplicados na ordem de chegada (ver lockPendingHeads).
+ * Recusas definitivas (paymentCode ou carro desconhecido) ficam registradas em last_error.
+ * Qualquer outra falha desfaz o lote, e os eventos dele são aplicados um a um, cada um na sua
+ * transação: os bons seguem e só o que falhou conta uma tentativa. Depois de
+ * {@code carstore.webhook-inbox.max-attempts} tentativas o evento sai da fila com last_error
+ * e libera os seguintes do mesmo paymentCode.
+ */
+@Component
+@Log4j2
+public class WebhookInbox {
+
+    static final int MAX_ERROR_LENGTH = 500;
+
+    private final WebhookInboxRepository repo;
+    private final SalesService salesService;
+    private final TransactionTemplate tx;
+    private final Scheduler jpaScheduler;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retention;
+
+    private final ReentrantLock draining = new ReentrantLock();
+    private final AtomicBoolean wakeUpScheduled = new AtomicBoolean();
+
+    private final Counter applied;
+    private final Counter rejected;
+    private final Counter failed;
+    private final Counter parked;
+    private final Timer lag;
+
+    public WebhookInbox(WebhookInboxRepository repo,
+                        SalesService salesService,
+                        PlatformTransactionManager transactionManager,
+                        Scheduler jpaScheduler,
+                        MeterRegistry registry,
+                        @Value("${carstore.webhook-inbox.batch-size:100}") int batchSize,
+                        @Value("${carstore.webhook-inbox.max-attempts:5}") int maxAttempts,
+                        @Value("${carstore.webhook-inbox.retention:7d}") Duration retention) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("carstore.webhook-inbox.batch-size deve ser >= 1");
+        }
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("carstore.webhook-inbox.max-attempts deve ser >= 1");
+        }
+        this.repo = repo;
+        this.salesService = salesService;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.jpaScheduler = jpaScheduler;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retention = retention;
+
+        this.applied = outcome(registry, "applied");
+        this.rejected = outcome(registry, "rejected");
+        this.failed = outcome(registry, "failed");
+        this.parked = outcome(registry, "parked");
+        this.lag = Timer.builder("carstore.webhook.inbox.lag")
+                .description("Tempo entre o recebimento do webhook e a aplicação")
+                .register(registry);
+    }
+
+    private static Counter outcome(MeterRegistry registry, String outcome) {
+        return Counter.builder("carstore.webhook.inbox.processed")
+                .description("Eventos de pagamento tirados da caixa de entrada")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /**
+     * Grava o evento para aplicação assíncrona. Só o formato é validado aqui (400);
+     * paymentCode desconhecido aparece depois, em last_error.
+     */
+    public void append(PaymentWebhookRequest req) {
+        if (req.paymentCode() == null || req.paymentCode().isBlank()) {
+            throw new IllegalArgumentException("paymentCode é obrigatório");
+        }
+        String status = req.status() == null ? "" : req.status().trim().toUpperCase(Locale.ROOT);
+        if (!"PAID".equals(status) && !"CANCELED".equals(status)) {
+            throw new IllegalArgumentException("status inválido (use PAID ou CANCELED)");
+        }
+
+        repo.save(WebhookInboxEntry.of(req, status, Instant.now()));
+
+        wakeUp();
+    }
+
+    /**
+     * No máximo uma rodada agendada por vez: uma rajada de webhooks não enche a fila do executor JPA
+     */
+    private void wakeUp() {
+        if (!wakeUpScheduled.compareAndSet(false, true)) return;
+        Mono.fromRunnable(() -> {
+                    wakeUpScheduled.set(false);
+                    drain();
+                })
+                .subscribeOn(jpaScheduler)
+                .subscribe(null, e -> {
+                    wakeUpScheduled.set(false);
+                    log.warn("Caixa de entrada do webhook: rodada adiada para a próxima verificação: {}", e.toString());
+                });
+    }
+
+    /**
+     * Aplica lotes até esvaziar; se outra thread já está aplicando, ela segue com o que chegou
+     */
+    @Scheduled(initialDelayString = "${carstore.webhook-inbox.poll-interval:1s}",
+            fixedDelayString = "${carstore.webhook-inbox.poll-interval:1s}")
+    public void drain() {
+        if (!draining.tryLock()) return;
+        try {
+            int processed;
+            do {
+                List<Long> claimed = new ArrayList<>(batchSize);
+                try {
+                    processed = tx.execute(status -> applyBatch(claimed));
+                } catch (RuntimeException e) {
+                    log.warn("Caixa de entrada do webhook: lote de {} eventos desfeito, aplicando um a um: {}",
+                            claimed.size(), e.toString());
+                    applyEach(claimed);
+                    // o que falhou de novo espera a próxima rodada
+                    return;
+                }
+            } while (processed == batchSize);
+        } finally {
+            draining.unlock();
+        }
+    }
+
+    /**
+     * Um lote numa transação; claimed recebe os ids travados, para applyEach se o lote for desfeito
+     */
+    int applyBatch(List<Long> claimed) {
+        List<WebhookInboxEntry> batch = repo.lockPendingHeads(batchSize);
+        batch.forEach(entry -> claimed.add(entry.getId()));
+        Instant now = Instant.now();
+        for (WebhookInboxEntry entry : batch) {
+            apply(entry, now);
+        }
+        // alterações das entradas saem no flush do commit, em batch JDBC
+        return batch.size();
+    }
+
+    /**
+     * Cada evento na sua transação; a falha é registrada noutra, para sobreviver ao rollback
+     */
+    private void applyEach(List<Long> ids) {
+        for (Long id : ids) {
+            try {
+                tx.executeWithoutResult(status -> repo.lockPending(id).ifPresent(entry -> apply(entry, Instant.now())));
+            } catch (RuntimeException e) {
+                tx.executeWithoutResult(status -> repo.lockPending(id).ifPresent(entry -> recordFailure(entry, e)));
+            }
+        }
+    }
+
+    private void apply(WebhookInboxEntry entry, Instant now) {
+        try {
+            salesService.applyPaymentWebhook(new PaymentWebhookRequest(
+                    entry.getPaymentCode(), entry.getStatus(), entry.getBuyerCpf(), entry.getEventAt()));
+            entry.setLastError(null);
+            applied.increment();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            entry.setLastError(truncate(e.getMessage()));
+            rejected.increment();
+            log.warn("Webhook recusado: id={} paymentCode={}: {}", entry.getId(), entry.getPaymentCode(), e.getMessage());
+        }
+        entry.setProcessedAt(now);
+        lag.record(Duration.between(entry.getReceivedAt(), now));
+    }
+
+    private void recordFailure(WebhookInboxEntry entry, RuntimeException e) {
+        entry.setAttempts(entry.getAttempts() + 1);
+        entry.setLastError(truncate(e.toString()));
+        if (entry.getAttempts() < maxAttempts) {
+            failed.increment();
+            log.warn("Webhook falhou: id={} paymentCode={} tentativa {}/{}: {}",
+                    entry.getId(), entry.getPaymentCode(), entry.getAttempts(), maxAttempts, e.toString());
+            return;
+        }
+        Instant now = Instant.now();
+        entry.setProcessedAt(now);
+        parked.increment();
+        lag.record(Duration.between(entry.getReceivedAt(), now));
+        log.error("Webhook descartado após {} tentativas: id={} paymentCode={}: {}",
+                maxAttempts, entry.getId(), entry.getPaymentCode(), e.toString());
+    }
+
+    @Scheduled(initialDelayString = "${carstore.webhook-inbox.purge-interval:1h}",
+            fixedDelayString = "${carstore.webhook-inbox.purge-interval:1h}")
+    public void purgeProcessed() {
+        int removed = repo.deleteProcessedBefore(Instant.now().minus(retention));
+        if (removed > 0) {
+            log.info("Eventos de webhook aplicados removidos da caixa de entrada: {}", removed);
+        }
+    }
+
+    private static String truncate(String message) {
+        if (message == null) return "erro sem mensagem";
+        return message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
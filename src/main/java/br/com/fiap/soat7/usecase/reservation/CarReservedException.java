@@ -0,0 +1,12 @@
+package br.com.fiap.soat7.usecase.reservation;
+
+/**
+ * Reserva recusada porque o carro está reservado (ou em disputa) agora, mas ainda pode vagar.
+ * Continua sendo IllegalStateException (409); a fila de espera só aceita esta recusa.
+ */
+public class CarReservedException extends IllegalStateException {
+
+    public CarReservedException(String message) {
+        super(message);
+    }
+}
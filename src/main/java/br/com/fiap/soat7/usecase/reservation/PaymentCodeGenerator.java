@@ -0,0 +1,11 @@
+package br.com.fiap.soat7.usecase.reservation;
+
+/**
+ * Gera o paymentCode de cada reserva (enviado ao gateway e usado pelo webhook para achar a venda).
+ * Precisa ser único e difícil de adivinhar; a implementação é escolhida por
+ * {@code carstore.reservation.payment-code-format} ou substituída por outro bean.
+ */
+public interface PaymentCodeGenerator {
+
+    String next();
+}
@@ -0,0 +1,170 @@
+package br.com.fiap.soat7.usecase.reservation;
+
+import br.com.fiap.soat7.usecase.catalog.CatalogChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Porta de admissão local (por instância) na frente da reserva de um carro.
+ * <p>
+ * Guarda, por carId, se já existe uma tentativa em andamento nesta instância ou se o carro
+ * foi visto reservado/vendido há pouco (por {@code carstore.reservation.gate-ttl}).
+ * Nos dois casos a requisição recebe 409 sem chegar ao banco: em promoções, só uma tentativa
+ * por carro disputa a linha de sales. O banco continua sendo a fonte da verdade; a porta só
+ * recusa o que o banco recusaria. As entradas são trocadas por CAS no ConcurrentHashMap
+ * (travas por bin, nenhuma trava global) e as de carros alterados saem com o CatalogChangedEvent.
+ */
+@Component
+public class ReservationGate {
+
+    static final String IN_FLIGHT_MESSAGE = "Reserva deste car já está em andamento";
+    static final String RESERVED_MESSAGE = "Car já está reservado";
+
+    private final ConcurrentMap<Long, State> states = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    private final Counter rejectedInFlight;
+    private final Counter rejectedTaken;
+
+    @Autowired
+    public ReservationGate(MeterRegistry registry,
+                           @Value("${carstore.reservation.gate-ttl:5s}") Duration ttl) {
+        this(registry, ttl, System::nanoTime);
+    }
+
+    ReservationGate(MeterRegistry registry, Duration ttl, LongSupplier clock) {
+        if (ttl.isNegative()) {
+            throw new IllegalArgumentException("carstore.reservation.gate-ttl não pode ser negativo");
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.rejectedInFlight = rejected(registry, "in_flight");
+        this.rejectedTaken = rejected(registry, "taken");
+    }
+
+    private static Counter rejected(MeterRegistry registry, String reason) {
+        return Counter.builder("carstore.reservations.gate.rejected")
+                .description("Reservas recusadas pela porta local sem consultar o banco")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    /**
+     * Executa a reserva se este carro puder ser disputado agora; senão lança IllegalStateException (409)
+     */
+    public <T> T guard(Long carId, Supplier<T> reservation) {
+        admit(carId);
+        try {
+            T result = reservation.get();
+            taken(carId, RESERVED_MESSAGE, true);
+            return result;
+        } catch (IllegalStateException e) {
+            taken(carId, e.getMessage(), e instanceof CarReservedException);
+            throw e;
+        } catch (RuntimeException | Error e) {
+            release(carId);
+            throw e;
+        }
+    }
+
+    /**
+     * Versão reativa de {@link #guard(Long, Supplier)}: a admissão acontece na assinatura
+     */
+    public <T> Mono<T> guard(Long carId, Mono<T> reservation) {
+        return Mono.defer(() -> {
+            admit(carId);
+            return reservation
+                    .doOnSuccess(r -> taken(carId, RESERVED_MESSAGE, true))
+                    .doOnError(e -> {
+                        if (e instanceof IllegalStateException) taken(carId, e.getMessage(), e instanceof CarReservedException);
+                        else release(carId);
+                    })
+                    .doOnCancel(() -> release(carId));
+        });
+    }
+
+    void admit(Long carId) {
+        long now = clock.getAsLong();
+        State mine = State.inFlight(now);
+        State current = states.compute(carId, (id, s) ->
+                s == null || (!s.inFlight() && s.expired(now)) ? mine : s);
+        if (current == mine) {
+            return;
+        }
+        if (current.inFlight()) {
+            rejectedInFlight.increment();
+            throw new CarReservedException(IN_FLIGHT_MESSAGE);
+        }
+        rejectedTaken.increment();
+        throw current.reserved()
+                ? new CarReservedException(current.reason())
+                : new IllegalStateException(current.reason());
+    }
+
+    private void taken(Long carId, String reason, boolean reserved) {
+        states.put(carId, new State(reason, reserved, clock.getAsLong() + ttlNanos));
+    }
+
+    private void release(Long carId) {
+        states.remove(carId);
+    }
+
+    /**
+     * Carro alterado nesta instância (reserva vencida, pagamento, sync com o Core): o que
+     * estava guardado deixa de valer. Tentativas em andamento não são tocadas.
+     * Roda antes dos demais ouvintes (ReservationWaitlist tenta reservar logo em seguida).
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        for (Long carId : event.carIds()) {
+            states.computeIfPresent(carId, (id, s) -> s.inFlight() ? s : null);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${carstore.reservation.gate-purge-interval:1m}",
+            fixedDelayString = "${carstore.reservation.gate-purge-interval:1m}")
+    public void purgeExpired() {
+        long now = clock.getAsLong();
+        states.values().removeIf(s -> !s.inFlight() && s.expired(now));
+    }
+
+    int size() {
+        return states.size();
+    }
+
+    /**
+     * reason == null marca uma tentativa em andamento; cada tentativa tem a sua instância,
+     * comparada por identidade em admit. reserved distingue "reservado" (pode vagar) de "vendido"
+     */
+    private record State(String reason, boolean reserved, long expiresAtNanos) {
+
+        static State inFlight(long now) {
+            return new State(null, true, now);
+        }
+
+        boolean inFlight() {
+            return reason == null;
+        }
+
+        boolean expired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
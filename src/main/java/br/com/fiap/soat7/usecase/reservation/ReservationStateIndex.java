@@ -0,0 +1,245 @@
+package br.com.fiap.soat7.usecase.reservation;
+
+import br.com.fiap.soat7.adapter.repositories.SaleRepository;
+import br.com.fiap.soat7.data.domain.Sale;
+import br.com.fiap.soat7.usecase.catalog.CatalogChangedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Status da venda de cada carro em memória: carId → status.
+ * <p>
+ * Tabela de endereçamento aberto com chaves long (sem Long, sem Entry por carro); o status fica
+ * num byte por posição. Leituras são otimistas (StampedLock, sem trava quando não há escrita
+ * concorrente); escritas são serializadas.
+ * <p>
+ * Recarregada inteira junto com a foto do catálogo (CatalogSnapshotStore.reload) e, para os
+ * carros de cada CatalogChangedEvent, relida do banco após o commit, antes da foto e da fila
+ * de espera. Escritas de outras réplicas aparecem na próxima recarga completa.
+ */
+@Component
+@Log4j2
+public class ReservationStateIndex {
+
+    private static final Sale.Status[] STATUSES = Sale.Status.values();
+    private static final int MIN_CAPACITY = 1024;
+
+    private final SaleRepository saleRepo;
+    private final StampedLock lock = new StampedLock();
+
+    private volatile Table table = new Table(MIN_CAPACITY);
+
+    @Autowired
+    public ReservationStateIndex(SaleRepository saleRepo, MeterRegistry registry) {
+        this(saleRepo);
+        Gauge.builder("carstore.reservations.index.size", this, ReservationStateIndex::size)
+                .description("Carros com venda no índice em memória")
+                .register(registry);
+    }
+
+    ReservationStateIndex(SaleRepository saleRepo) {
+        this.saleRepo = saleRepo;
+    }
+
+    /**
+     * Status da venda do carro, ou null se o carro não tem venda
+     */
+    public Sale.Status status(long carId) {
+        byte entry = entry(carId);
+        return entry == 0 ? null : STATUSES[entry - 1];
+    }
+
+    public boolean isReserved(long carId) {
+        return status(carId) == Sale.Status.RESERVED;
+    }
+
+    /**
+     * Motivo pelo qual a reserva pode ser recusada sem ir ao banco: só PAID (vendido).
+     * RESERVED não serve: o cancelamento feito em outra réplica só chega aqui na próxima recarga
+     * completa, e o carro ficaria recusado bem além do gate-ttl da ReservationGate (e longe da
+     * fila de espera). null quando a ReservationGate e o banco decidem.
+     */
+    public Sale.Status refusal(long carId) {
+        return status(carId) == Sale.Status.PAID ? Sale.Status.PAID : null;
+    }
+
+    public int size() {
+        return table.size;
+    }
+
+    private byte entry(long carId) {
+        long stamp = lock.tryOptimisticRead();
+        byte entry = table.get(carId);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                entry = table.get(carId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return entry;
+    }
+
+    // -----------------------------
+    // escrita
+    // -----------------------------
+
+    /**
+     * Relê todas as vendas e troca a tabela inteira
+     */
+    public synchronized void reload() {
+        List<Object[]> rows = saleRepo.findStatuses();
+        Table next = new Table(capacityFor(rows.size()));
+        for (Object[] row : rows) {
+            next.put(((Number) row[0]).longValue(), encode((Sale.Status) row[1]));
+        }
+        long stamp = lock.writeLock();
+        try {
+            table = next;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Relê as vendas dos carros informados; carros sem venda saem do índice
+     */
+    synchronized void refresh(Collection<Long> carIds) {
+        List<Object[]> rows = saleRepo.findStatusByCarIds(carIds);
+        Set<Long> missing = new HashSet<>(carIds);
+        long stamp = lock.writeLock();
+        try {
+            for (Object[] row : rows) {
+                long carId = ((Number) row[0]).longValue();
+                missing.remove(carId);
+                put(carId, encode((Sale.Status) row[1]));
+            }
+            for (Long carId : missing) {
+                table.remove(carId);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void put(long carId, byte entry) {
+        Table t = table;
+        if (!t.contains(carId) && (t.size + 1) * 2 > t.keys.length) {
+            Table grown = new Table(t.keys.length * 2);
+            t.forEach(grown::put);
+            table = t = grown;
+        }
+        t.put(carId, entry);
+    }
+
+    /**
+     * Antes da foto do catálogo e da fila de espera, que consultam o índice em seguida
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        try {
+            refresh(event.carIds());
+        } catch (RuntimeException ex) {
+            // a escrita já foi confirmada; a próxima recarga completa corrige o índice
+            log.warn("Falha ao atualizar índice de reservas para carIds={}: {}", event.carIds(), ex.getMessage());
+        }
+    }
+
+    private static byte encode(Sale.Status status) {
+        return (byte) (status.ordinal() + 1);
+    }
+
+    private static int capacityFor(int entries) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < entries * 2) capacity <<= 1;
+        return capacity;
+    }
+
+    /**
+     * Sondagem linear; entry == 0 marca posição vazia. Ocupação máxima de 50%.
+     */
+    private static final class Table {
+        final long[] keys;
+        final byte[] entries;
+        final int mask;
+        int size;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            entries = new byte[capacity];
+            mask = capacity - 1;
+        }
+
+        byte get(long key) {
+            for (int i = slot(key); ; i = (i + 1) & mask) {
+                byte e = entries[i];
+                if (e == 0 || keys[i] == key) return e;
+            }
+        }
+
+        boolean contains(long key) {
+            return get(key) != 0;
+        }
+
+        void put(long key, byte entry) {
+            int i = slot(key);
+            while (entries[i] != 0 && keys[i] != key) i = (i + 1) & mask;
+            if (entries[i] == 0) size++;
+            keys[i] = key;
+            entries[i] = entry;
+        }
+
+        /**
+         * Remoção com deslocamento para trás: mantém as sondagens sem marcas de removido
+         */
+        void remove(long key) {
+            int i = slot(key);
+            while (entries[i] != 0 && keys[i] != key) i = (i + 1) & mask;
+            if (entries[i] == 0) return;
+            size--;
+            int hole = i;
+            for (int j = (hole + 1) & mask; entries[j] != 0; j = (j + 1) & mask) {
+                int home = slot(keys[j]);
+                // j pode ocupar o buraco se a posição de origem dele não está entre o buraco e j
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    keys[hole] = keys[j];
+                    entries[hole] = entries[j];
+                    hole = j;
+                }
+            }
+            keys[hole] = 0;
+            entries[hole] = 0;
+        }
+
+        void forEach(LongByteConsumer action) {
+            for (int i = 0; i < keys.length; i++) {
+                if (entries[i] != 0) action.accept(keys[i], entries[i]);
+            }
+        }
+
+        private int slot(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+
+    @FunctionalInterface
+    private interface LongByteConsumer {
+        void accept(long key, byte entry);
+    }
+}
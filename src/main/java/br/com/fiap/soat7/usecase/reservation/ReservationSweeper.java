@@ -0,0 +1,123 @@
+package br.com.fiap.soat7.usecase.reservation;
+
+import br.com.fiap.soat7.adapter.repositories.CarRepository;
+import br.com.fiap.soat7.adapter.repositories.SaleRepository;
+import br.com.fiap.soat7.data.domain.Sale;
+import br.com.fiap.soat7.usecase.catalog.CatalogChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Libera reservas vencidas: a venda volta para AVAILABLE e o carro volta para a listagem.
+ * <p>
+ * Varre sales.reserved_until pelo índice parcial de V4, em lotes, cada lote na sua transação:
+ * trava as linhas com FOR UPDATE SKIP LOCKED e aplica dois UPDATEs em massa (sales e car_view).
+ * Várias réplicas podem rodar ao mesmo tempo sem liberar a mesma reserva duas vezes.
+ * O paymentCode é mantido: um PAID atrasado ainda encontra a venda e conclui a compra.
+ */
+@Component
+@Log4j2
+public class ReservationSweeper {
+
+    private final SaleRepository saleRepo;
+    private final CarRepository carRepo;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate tx;
+    private final int batchSize;
+
+    private final Counter released;
+    private final Timer releaseDelay;
+    private final AtomicLong backlogLagMillis = new AtomicLong();
+
+    public ReservationSweeper(SaleRepository saleRepo,
+                              CarRepository carRepo,
+                              ApplicationEventPublisher events,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry registry,
+                              @Value("${carstore.reservation.sweep-batch-size:200}") int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("carstore.reservation.sweep-batch-size deve ser >= 1");
+        }
+        this.saleRepo = saleRepo;
+        this.carRepo = carRepo;
+        this.events = events;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+
+        this.released = Counter.builder("carstore.reservations.expired")
+                .description("Reservas vencidas liberadas")
+                .register(registry);
+        this.releaseDelay = Timer.builder("carstore.reservations.expiry.delay")
+                .description("Atraso entre o vencimento da reserva e a liberação")
+                .register(registry);
+        Gauge.builder("carstore.reservations.expiry.lag", backlogLagMillis, v -> v.get() / 1000.0)
+                .description("Idade da reserva vencida mais antiga ainda não liberada")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    @Scheduled(initialDelayString = "${carstore.reservation.sweep-interval:30s}",
+            fixedDelayString = "${carstore.reservation.sweep-interval:30s}")
+    public void sweep() {
+        Instant now = Instant.now();
+        int total = 0;
+        int batch;
+        do {
+            batch = tx.execute(status -> releaseBatch(now));
+            total += batch;
+        } while (batch == batchSize);
+
+        Instant oldest = saleRepo.findOldestExpiry(Sale.Status.RESERVED, Instant.now());
+        backlogLagMillis.set(oldest == null ? 0L : Duration.between(oldest, Instant.now()).toMillis());
+
+        if (total > 0) {
+            log.info("Reservas vencidas liberadas: {}", total);
+        }
+    }
+
+    int releaseBatch(Instant now) {
+        List<Object[]> rows = saleRepo.lockExpiredReservations(now, batchSize);
+        if (rows.isEmpty()) return 0;
+
+        List<Long> saleIds = new ArrayList<>(rows.size());
+        Set<Long> carIds = new HashSet<>();
+        for (Object[] row : rows) {
+            saleIds.add(((Number) row[0]).longValue());
+            carIds.add(((Number) row[1]).longValue());
+            releaseDelay.record(Duration.between(toInstant(row[2]), now));
+        }
+
+        saleRepo.releaseReservations(saleIds, Sale.Status.AVAILABLE);
+        carRepo.markAvailable(carIds);
+        // publicado dentro da transação: o catálogo em memória só é atualizado após o commit
+        events.publishEvent(new CatalogChangedEvent(Set.copyOf(carIds)));
+        released.increment(rows.size());
+        return rows.size();
+    }
+
+    private static Instant toInstant(Object value) {
+        if (value instanceof Instant i) return i;
+        if (value instanceof Timestamp t) return t.toInstant();
+        if (value instanceof OffsetDateTime o) return o.toInstant();
+        throw new IllegalStateException("Tipo inesperado para reserved_until: " + value.getClass());
+    }
+}
@@ -0,0 +1,255 @@
+package br.com.fiap.soat7.usecase.reservation;
+
+import br.com.fiap.soat7.data.domain.dto.PurchaseResponse;
+import br.com.fiap.soat7.usecase.catalog.CatalogChangedEvent;
+import br.com.fiap.soat7.usecase.services.SalesService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fila de espera por carro (FIFO, local a esta instância) para quem chegou com o carro reservado.
+ * <p>
+ * Em vez de repetir POST /reserved até a reserva vencer, o comprador entra na fila e a
+ * requisição fica estacionada (long-poll) até {@code carstore.reservation.waitlist-timeout}.
+ * Quando o carro muda nesta instância (reserva vencida, pagamento recusado/cancelado) o primeiro
+ * da fila tenta a reserva atômica em nome dele: ou ganha, ou continua na frente da fila.
+ * Mudanças feitas por outras réplicas são percebidas pela verificação periódica
+ * ({@code carstore.reservation.waitlist-poll-interval}). Carro vendido ou inexistente encerra a fila.
+ */
+@Component
+@Log4j2
+public class ReservationWaitlist {
+
+    static final String TIMEOUT_MESSAGE = "Car continua reservado, tente novamente";
+    static final String FULL_MESSAGE = "Fila de espera deste car está cheia";
+
+    private final SalesService salesService;
+    private final Scheduler jpaScheduler;
+    private final Duration timeout;
+    private final int maxPerCar;
+
+    private final Map<Long, Line> lines = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Counter handovers;
+
+    public ReservationWaitlist(SalesService salesService,
+                               Scheduler jpaScheduler,
+                               MeterRegistry registry,
+                               @Value("${carstore.reservation.waitlist-timeout:30s}") Duration timeout,
+                               @Value("${carstore.reservation.waitlist-max-per-car:100}") int maxPerCar) {
+        if (maxPerCar < 1) {
+            throw new IllegalArgumentException("carstore.reservation.waitlist-max-per-car deve ser >= 1");
+        }
+        this.salesService = salesService;
+        this.jpaScheduler = jpaScheduler;
+        this.timeout = timeout;
+        this.maxPerCar = maxPerCar;
+
+        Gauge.builder("carstore.reservations.waitlist.size", waiting, AtomicInteger::get)
+                .description("Compradores estacionados na fila de espera")
+                .register(registry);
+        this.handovers = Counter.builder("carstore.reservations.waitlist.handovers")
+                .description("Reservas entregues ao primeiro da fila de espera")
+                .register(registry);
+    }
+
+    /**
+     * Tenta reservar agora; se o carro estiver reservado, entra na fila e espera a vez.
+     * Vendido/inexistente/fila cheia/tempo esgotado terminam com o mesmo erro de POST /reserved.
+     */
+    public Mono<PurchaseResponse> reserveOrWait(Long carId) {
+        return Mono.fromCallable(() -> salesService.reserved(carId))
+                .subscribeOn(jpaScheduler)
+                .onErrorResume(CarReservedException.class, e -> join(carId));
+    }
+
+    Mono<PurchaseResponse> join(Long carId) {
+        return Mono.defer(() -> {
+            Waiter waiter = new Waiter();
+            Line line = enqueue(carId, waiter);
+            // a reserva pode ter vagado entre a recusa e a entrada na fila
+            if (waiter.first) dispatch(carId);
+            return waiter.result.asMono()
+                    .timeout(timeout, Mono.defer(() -> giveUp(line, waiter)))
+                    .doOnCancel(() -> leave(line, waiter));
+        });
+    }
+
+    private Line enqueue(Long carId, Waiter waiter) {
+        while (true) {
+            Line line = lines.computeIfAbsent(carId, Line::new);
+            synchronized (line) {
+                if (line.closed) continue; // a fila foi removida do mapa entre o get e o lock
+                if (line.waiters.size() >= maxPerCar) {
+                    throw new CarReservedException(FULL_MESSAGE);
+                }
+                line.waiters.addLast(waiter);
+                waiter.first = line.waiters.size() == 1;
+                waiting.incrementAndGet();
+                return line;
+            }
+        }
+    }
+
+    /**
+     * Tempo esgotado: sai da fila, a não ser que uma tentativa em nome dele esteja em curso
+     * (nesse caso o resultado da tentativa é a resposta).
+     */
+    private Mono<PurchaseResponse> giveUp(Line line, Waiter waiter) {
+        synchronized (line) {
+            if (waiter.attempting) {
+                waiter.timedOut = true;
+                return waiter.result.asMono();
+            }
+            remove(line, waiter);
+        }
+        return Mono.error(new CarReservedException(TIMEOUT_MESSAGE));
+    }
+
+    /**
+     * Cliente desconectou. Se uma tentativa já estava em curso e der certo, a reserva
+     * vence sozinha pelo TTL normal.
+     */
+    private void leave(Line line, Waiter waiter) {
+        synchronized (line) {
+            if (waiter.attempting) waiter.cancelled = true;
+            else remove(line, waiter);
+        }
+    }
+
+    private void remove(Line line, Waiter waiter) {
+        if (line.waiters.remove(waiter)) {
+            waiting.decrementAndGet();
+        }
+        if (line.waiters.isEmpty() && !line.handing) {
+            line.closed = true;
+            lines.remove(line.carId, line);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        for (Long carId : event.carIds()) {
+            if (lines.containsKey(carId)) dispatch(carId);
+        }
+    }
+
+    /**
+     * Reservas liberadas por outras réplicas não geram evento aqui
+     */
+    @Scheduled(initialDelayString = "${carstore.reservation.waitlist-poll-interval:5s}",
+            fixedDelayString = "${carstore.reservation.waitlist-poll-interval:5s}")
+    public void poll() {
+        List.copyOf(lines.keySet()).forEach(this::dispatch);
+    }
+
+    private void dispatch(Long carId) {
+        Mono.fromRunnable(() -> handOver(carId))
+                .subscribeOn(jpaScheduler)
+                .subscribe(null, e -> log.warn("Fila de espera: tentativa adiada para carId={}: {}", carId, e.toString()));
+    }
+
+    /**
+     * Uma tentativa por vez por carro, sempre em nome do primeiro da fila
+     */
+    void handOver(Long carId) {
+        Line line = lines.get(carId);
+        if (line == null) return;
+
+        Waiter head;
+        synchronized (line) {
+            if (line.handing || line.waiters.isEmpty()) return;
+            line.handing = true;
+            head = line.waiters.peekFirst();
+            head.attempting = true;
+        }
+
+        PurchaseResponse reserved = null;
+        RuntimeException refused = null;
+        try {
+            reserved = salesService.reserved(carId);
+        } catch (RuntimeException e) {
+            refused = e;
+        }
+
+        List<Waiter> failed = List.of();
+        synchronized (line) {
+            line.handing = false;
+            head.attempting = false;
+            if (reserved != null) {
+                line.waiters.remove(head);
+                waiting.decrementAndGet();
+            } else if (!(refused instanceof CarReservedException) && isFinal(refused)) {
+                // vendido ou inexistente: ninguém mais na fila vai conseguir
+                failed = List.copyOf(line.waiters);
+                waiting.addAndGet(-failed.size());
+                line.waiters.clear();
+            } else if (head.timedOut || head.cancelled) {
+                line.waiters.remove(head);
+                waiting.decrementAndGet();
+                failed = List.of(head);
+                refused = new CarReservedException(TIMEOUT_MESSAGE);
+            }
+            if (line.waiters.isEmpty()) {
+                line.closed = true;
+                lines.remove(carId, line);
+            }
+        }
+
+        if (reserved != null) {
+            handovers.increment();
+            head.result.tryEmitValue(reserved);
+        }
+        for (Waiter w : failed) {
+            w.result.tryEmitError(refused);
+        }
+    }
+
+    private static boolean isFinal(RuntimeException e) {
+        return e instanceof IllegalStateException || e instanceof IllegalArgumentException;
+    }
+
+    int waiting(Long carId) {
+        Line line = lines.get(carId);
+        if (line == null) return 0;
+        synchronized (line) {
+            return line.waiters.size();
+        }
+    }
+
+    private static final class Line {
+        final Long carId;
+        final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        boolean handing;
+        boolean closed;
+
+        Line(Long carId) {
+            this.carId = carId;
+        }
+    }
+
+    private static final class Waiter {
+        final Sinks.One<PurchaseResponse> result = Sinks.one();
+        boolean attempting;
+        boolean timedOut;
+        boolean cancelled;
+        boolean first;
+    }
+}
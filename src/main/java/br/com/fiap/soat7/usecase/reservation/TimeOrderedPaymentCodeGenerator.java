@@ -0,0 +1,112 @@
+package br.com.fiap.soat7.usecase.reservation;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * paymentCode no formato ULID: 26 caracteres Crockford base32, 48 bits de milissegundos
+ * seguidos de 80 bits aleatórios.
+ * <p>
+ * Códigos gerados depois ficam depois no índice único de sales.payment_code: os INSERTs caem
+ * sempre nas últimas páginas da B-tree em vez de espalhados pela árvore inteira.
+ * Cada thread tem o seu SecureRandom (DRBG) e um estoque de bytes aleatórios, sem trava
+ * compartilhada como a do UUID.randomUUID(). Na mesma thread e no mesmo milissegundo a parte
+ * aleatória avança por um incremento aleatório de 56 bits (nunca +1): a ordem também vale dentro
+ * do milissegundo e o código seguinte continua imprevisível a partir do anterior.
+ */
+public class TimeOrderedPaymentCodeGenerator implements PaymentCodeGenerator {
+
+    static final int LENGTH = 26;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int POOL_BYTES = 10 * 64;
+    private static final int INCREMENT_BYTES = 7;
+
+    private final LongSupplier clock;
+    private final ThreadLocal<State> states = ThreadLocal.withInitial(State::new);
+
+    public TimeOrderedPaymentCodeGenerator() {
+        this(System::currentTimeMillis);
+    }
+
+    TimeOrderedPaymentCodeGenerator(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public String next() {
+        State s = states.get();
+        long millis = clock.getAsLong();
+        if (millis > s.lastMillis) {
+            s.lastMillis = millis;
+            s.fill();
+        } else {
+            // mesmo milissegundo (ou relógio voltou): mantém o tempo anterior e soma um incremento aleatório
+            long previous = s.low;
+            s.low += 1 + s.take(INCREMENT_BYTES);
+            if (Long.compareUnsigned(s.low, previous) < 0 && (s.high = (s.high + 1) & 0xFFFF) == 0) {
+                s.lastMillis++;
+            }
+        }
+        return encode(s.lastMillis, s.high, s.low);
+    }
+
+    static String encode(long millis, long high, long low) {
+        char[] c = new char[LENGTH];
+        long t = millis;
+        for (int i = 9; i >= 0; i--) {
+            c[i] = ALPHABET[(int) (t & 31)];
+            t >>>= 5;
+        }
+        long l = low;
+        for (int i = 25; i >= 14; i--) {
+            c[i] = ALPHABET[(int) (l & 31)];
+            l >>>= 5;
+        }
+        long h = (high << 4) | l;
+        for (int i = 13; i >= 10; i--) {
+            c[i] = ALPHABET[(int) (h & 31)];
+            h >>>= 5;
+        }
+        return new String(c);
+    }
+
+    private static final class State {
+        final SecureRandom random = newRandom();
+        final byte[] pool = new byte[POOL_BYTES];
+        int position = POOL_BYTES;
+
+        long lastMillis = Long.MIN_VALUE;
+        long high; // 16 bits
+        long low;  // 64 bits
+
+        void fill() {
+            high = take(2);
+            low = take(8);
+        }
+
+        /**
+         * Próximos n bytes (até 8) do estoque, como inteiro sem sinal
+         */
+        long take(int n) {
+            if (position + n > POOL_BYTES) {
+                random.nextBytes(pool);
+                position = 0;
+            }
+            long v = 0;
+            for (int i = 0; i < n; i++) {
+                v = (v << 8) | (pool[position + i] & 0xFFL);
+            }
+            position += n;
+            return v;
+        }
+
+        private static SecureRandom newRandom() {
+            try {
+                return SecureRandom.getInstance("DRBG");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SecureRandom DRBG indisponível", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package br.com.fiap.soat7.usecase.reservation;
+
+import java.util.UUID;
+
+/**
+ * Formato anterior: UUID v4 (36 caracteres, ordem aleatória no índice de payment_code)
+ */
+public class UuidPaymentCodeGenerator implements PaymentCodeGenerator {
+
+    @Override
+    public String next() {
+        return UUID.randomUUID().toString();
+    }
+}
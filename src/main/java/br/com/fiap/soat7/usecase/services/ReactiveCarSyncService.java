@@ -0,0 +1,8 @@
+package br.com.fiap.soat7.usecase.services;
+
+import br.com.fiap.soat7.data.domain.dto.CarSyncRequest;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveCarSyncService {
+    Mono<Void> upsert(CarSyncRequest req);
+}
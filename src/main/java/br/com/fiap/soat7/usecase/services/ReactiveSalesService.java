@@ -0,0 +1,22 @@
+package br.com.fiap.soat7.usecase.services;
+
+import br.com.fiap.soat7.data.domain.Car;
+import br.com.fiap.soat7.data.domain.dto.CarPage;
+import br.com.fiap.soat7.data.domain.dto.PurchaseResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Leituras e reserva de SalesService sobre R2DBC (profile "reactive"); o webhook usa a mesma
+ * caixa de entrada do profile padrão
+ */
+public interface ReactiveSalesService {
+
+    Flux<Car> listAvailable();
+    Flux<Car> listSold();
+    Flux<Car> listReserved();
+    Mono<CarPage> listAvailable(String cursor, int limit);
+    Mono<CarPage> listSold(String cursor, int limit);
+    Mono<CarPage> listReserved(String cursor, int limit);
+    Mono<PurchaseResponse> reserved(Long carId);
+}
@@ -1,8 +1,17 @@
 package br.com.fiap.soat7.usecase.services;
 
 import br.com.fiap.soat7.data.domain.Car;
+import br.com.fiap.soat7.data.domain.dto.BatchPaymentWebhookRequest;
+import br.com.fiap.soat7.data.domain.dto.BatchPaymentWebhookResponse;
+import br.com.fiap.soat7.data.domain.dto.BatchPurchaseRequest;
+import br.com.fiap.soat7.data.domain.dto.BatchPurchaseResponse;
+import br.com.fiap.soat7.data.domain.dto.CarPage;
+import br.com.fiap.soat7.data.domain.dto.CarSearch;
 import br.com.fiap.soat7.data.domain.dto.PaymentWebhookRequest;
 import br.com.fiap.soat7.data.domain.dto.PurchaseResponse;
+import br.com.fiap.soat7.usecase.catalog.CatalogFacets;
+import br.com.fiap.soat7.usecase.catalog.CatalogListing;
+import br.com.fiap.soat7.usecase.catalog.CatalogView;
 
 import java.util.List;
 
@@ -11,6 +20,21 @@ public interface SalesService {
     List<Car> listAvailable();
     List<Car> listSold();
     List<Car> listReserved();
+    CatalogView view(CatalogListing listing);
+    CatalogFacets facets();
+    CarPage listAvailable(String cursor, int limit);
+    CarPage listSold(String cursor, int limit);
+    CarPage listReserved(String cursor, int limit);
+    CarPage search(CarSearch search);
     PurchaseResponse reserved(Long carId);
+    BatchPurchaseResponse reservedBatch(BatchPurchaseRequest req);
     void handlePaymentWebhook(PaymentWebhookRequest req);
+    BatchPaymentWebhookResponse handlePaymentWebhookBatch(BatchPaymentWebhookRequest req);
+
+    /**
+     * Aplica o evento de pagamento na transação do chamador, sem abrir outra (WebhookInbox
+     * aplica um lote inteiro por transação). Recusas (IllegalArgumentException) acontecem
+     * antes de qualquer escrita.
+     */
+    void applyPaymentWebhook(PaymentWebhookRequest req);
 }
@@ -3,8 +3,10 @@ package br.com.fiap.soat7.usecase.services.impl;
 import br.com.fiap.soat7.adapter.repositories.CarRepository;
 import br.com.fiap.soat7.data.domain.Car;
 import br.com.fiap.soat7.data.domain.dto.CarSyncRequest;
+import br.com.fiap.soat7.usecase.catalog.CatalogChangedEvent;
 import br.com.fiap.soat7.usecase.services.CarSyncService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -15,6 +17,7 @@ import java.time.Instant;
 public class CarSyncServiceImpl implements CarSyncService {
 
     private final CarRepository carRepo;
+    private final ApplicationEventPublisher events;
 
     @Override
     @Transactional
@@ -32,5 +35,6 @@ public class CarSyncServiceImpl implements CarSyncService {
         car.setUpdatedAt(Instant.now());
         car.setSold(false);
         carRepo.save(car);
+        events.publishEvent(CatalogChangedEvent.of(req.id()));
     }
 }
@@ -0,0 +1,32 @@
+package br.com.fiap.soat7.usecase.services.impl;
+
+import br.com.fiap.soat7.adapter.repositories.reactive.ReactiveCarRepository;
+import br.com.fiap.soat7.data.domain.dto.CarSyncRequest;
+import br.com.fiap.soat7.usecase.catalog.CatalogChangedEvent;
+import br.com.fiap.soat7.usecase.services.ReactiveCarSyncService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveCarSyncServiceImpl implements ReactiveCarSyncService {
+
+    private final ReactiveCarRepository carRepo;
+    private final ApplicationEventPublisher events;
+
+    @Override
+    public Mono<Void> upsert(CarSyncRequest req) {
+        return carRepo.upsert(req.id(), req.brand(), req.model(), req.year(), req.color(), req.price(), Instant.now())
+                // listeners do catálogo fazem leitura JDBC: não podem rodar no event loop
+                .publishOn(Schedulers.boundedElastic())
+                .doOnSuccess(n -> events.publishEvent(CatalogChangedEvent.of(req.id())))
+                .then();
+    }
+}
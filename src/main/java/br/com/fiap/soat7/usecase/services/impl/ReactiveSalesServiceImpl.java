@@ -0,0 +1,134 @@
+package br.com.fiap.soat7.usecase.services.impl;
+
+import br.com.fiap.soat7.adapter.repositories.reactive.ReactiveCarRepository;
+import br.com.fiap.soat7.adapter.repositories.reactive.ReactiveSaleRepository;
+import br.com.fiap.soat7.data.domain.Car;
+import br.com.fiap.soat7.data.domain.Sale;
+import br.com.fiap.soat7.data.domain.dto.CarCursor;
+import br.com.fiap.soat7.data.domain.dto.CarPage;
+import br.com.fiap.soat7.data.domain.dto.PurchaseResponse;
+import br.com.fiap.soat7.data.domain.reactive.CarRow;
+import br.com.fiap.soat7.usecase.catalog.CatalogChangedEvent;
+import br.com.fiap.soat7.usecase.reservation.CarReservedException;
+import br.com.fiap.soat7.usecase.reservation.PaymentCodeGenerator;
+import br.com.fiap.soat7.usecase.reservation.ReservationGate;
+import br.com.fiap.soat7.usecase.reservation.ReservationStateIndex;
+import br.com.fiap.soat7.usecase.services.ReactiveSalesService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Implementação R2DBC de ponta a ponta: nenhuma chamada bloqueia o event loop.
+ * Regras de negócio idênticas às de SalesServiceImpl; o pagamento é aplicado pelo WebhookInbox.
+ */
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+@Log4j2
+public class ReactiveSalesServiceImpl implements ReactiveSalesService {
+
+    private final ReactiveSaleRepository saleRepo;
+    private final ReactiveCarRepository carRepo;
+    private final TransactionalOperator tx;
+    private final ApplicationEventPublisher events;
+    private final ReservationGate gate;
+    private final PaymentCodeGenerator paymentCodeGenerator;
+    private final ReservationStateIndex states;
+
+    @Override
+    public Flux<Car> listAvailable() {
+        return carRepo.findBySoldIsFalseOrderByPriceAscIdAsc().map(CarRow::toCar);
+    }
+
+    @Override
+    public Flux<Car> listSold() {
+        return carRepo.findSoldOrderByPriceAsc().map(CarRow::toCar);
+    }
+
+    @Override
+    public Flux<Car> listReserved() {
+        return carRepo.findReservedOrderByPriceAsc().map(CarRow::toCar);
+    }
+
+    @Override
+    public Mono<CarPage> listAvailable(String cursor, int limit) {
+        return page(cursor, limit, carRepo::findAvailableFirst, carRepo::findAvailableAfter);
+    }
+
+    @Override
+    public Mono<CarPage> listSold(String cursor, int limit) {
+        return page(cursor, limit, carRepo::findSoldFirst, carRepo::findSoldAfter);
+    }
+
+    @Override
+    public Mono<CarPage> listReserved(String cursor, int limit) {
+        return page(cursor, limit, carRepo::findReservedFirst, carRepo::findReservedAfter);
+    }
+
+    private Mono<CarPage> page(String cursor, int limit, FirstPage first, NextPage next) {
+        return Mono.defer(() -> {
+            CarCursor after = CarCursor.decode(cursor);
+            int fetch = CarPage.checkLimit(limit) + 1;
+            Flux<CarRow> rows = after == null
+                    ? first.find(fetch)
+                    : next.find(after.price(), after.id(), fetch);
+            return rows.map(CarRow::toCar).collectList().map(cars -> CarPage.of(cars, limit));
+        });
+    }
+
+    /**
+     * Mesma reserva atômica (compare-and-set) de SalesServiceImpl, num único comando
+     */
+    @Override
+    public Mono<PurchaseResponse> reserved(Long carId) {
+        Mono<PurchaseResponse> known = Mono.defer(() -> {
+            RuntimeException refused = SalesServiceImpl.knownRefusal(states, carId);
+            return refused == null ? Mono.empty() : Mono.error(refused);
+        });
+        return known.switchIfEmpty(gate.guard(carId, Mono.defer(() -> {
+            Instant now = Instant.now();
+            Instant reservedUntil = now.plus(SalesServiceImpl.RESERVATION_TTL);
+            String paymentCode = paymentCodeGenerator.next();
+
+            return saleRepo.tryReserve(carId, paymentCode, reservedUntil, now)
+                    .switchIfEmpty(Mono.defer(() -> reservationRefused(carId)))
+                    .as(tx::transactional)
+                    .publishOn(Schedulers.boundedElastic())
+                    .doOnSuccess(saleId -> events.publishEvent(CatalogChangedEvent.of(carId)))
+                    .map(saleId -> new PurchaseResponse(saleId, carId, paymentCode, reservedUntil));
+        })));
+    }
+
+    private Mono<Long> reservationRefused(Long carId) {
+        return carRepo.existsById(carId).flatMap(exists -> {
+            if (!exists) {
+                return Mono.error(new IllegalArgumentException("Car não encontrado no serviço de venda"));
+            }
+            return saleRepo.findStatusByCarId(carId)
+                    .defaultIfEmpty("")
+                    .flatMap(status -> Mono.error(Sale.Status.PAID.name().equals(status)
+                            ? new IllegalStateException("Car já foi vendido")
+                            : new CarReservedException("Car já está reservado")));
+        });
+    }
+
+    @FunctionalInterface
+    private interface FirstPage {
+        Flux<CarRow> find(int limit);
+    }
+
+    @FunctionalInterface
+    private interface NextPage {
+        Flux<CarRow> find(BigDecimal price, Long id, int limit);
+    }
+}
@@ -1,102 +1,252 @@
 package br.com.fiap.soat7.usecase.services.impl;
 
 import br.com.fiap.soat7.adapter.repositories.CarRepository;
+import br.com.fiap.soat7.adapter.repositories.CarSpecifications;
 import br.com.fiap.soat7.adapter.repositories.SaleRepository;
+import br.com.fiap.soat7.adapter.repositories.WebhookInboxRepository;
 import br.com.fiap.soat7.data.domain.Car;
 import br.com.fiap.soat7.data.domain.Sale;
-import br.com.fiap.soat7.data.domain.dto.CarSoldEvent;
+import br.com.fiap.soat7.data.domain.WebhookInboxEntry;
+import br.com.fiap.soat7.data.domain.dto.BatchPaymentWebhookRequest;
+import br.com.fiap.soat7.data.domain.dto.BatchPaymentWebhookResponse;
+import br.com.fiap.soat7.data.domain.dto.BatchPurchaseRequest;
+import br.com.fiap.soat7.data.domain.dto.BatchPurchaseResponse;
+import br.com.fiap.soat7.data.domain.dto.CarCursor;
+import br.com.fiap.soat7.data.domain.dto.CarPage;
+import br.com.fiap.soat7.data.domain.dto.CarSearch;
+import br.com.fiap.soat7.data.domain.dto.CarSearchCursor;
 import br.com.fiap.soat7.data.domain.dto.PaymentWebhookRequest;
 import br.com.fiap.soat7.data.domain.dto.PurchaseResponse;
+import br.com.fiap.soat7.usecase.catalog.CatalogChangedEvent;
+import br.com.fiap.soat7.usecase.catalog.CatalogFacets;
+import br.com.fiap.soat7.usecase.catalog.CatalogListing;
+import br.com.fiap.soat7.usecase.catalog.CatalogSnapshotStore;
+import br.com.fiap.soat7.usecase.catalog.CatalogView;
+import br.com.fiap.soat7.usecase.notification.CarSoldOutbox;
+import br.com.fiap.soat7.usecase.reservation.CarReservedException;
+import br.com.fiap.soat7.usecase.reservation.PaymentCodeGenerator;
+import br.com.fiap.soat7.usecase.reservation.ReservationGate;
+import br.com.fiap.soat7.usecase.reservation.ReservationStateIndex;
 import br.com.fiap.soat7.usecase.services.SalesService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Log4j2
 public class SalesServiceImpl implements SalesService {
 
-    private final WebClient client;
+    static final Duration RESERVATION_TTL = Duration.ofMinutes(15);
+
+    private final CarSoldOutbox outbox;
     private final SaleRepository saleRepo;
     private final CarRepository carRepo;
+    private final CatalogSnapshotStore catalog;
+    private final ApplicationEventPublisher events;
+    private final ReservationGate gate;
+    private final PaymentCodeGenerator paymentCodeGenerator;
+    private final ReservationStateIndex states;
+    private final WebhookInboxRepository inbox;
 
+    /**
+     * As listagens completas são servidas pela foto em memória do catálogo,
+     * atualizada após o commit de cada escrita (ver CatalogSnapshotStore)
+     */
     @Override
     public List<Car> listAvailable() {
-
-        return carRepo.findBySoldIsFalseOrderByPriceAsc();
+        return catalog.cars(CatalogListing.AVAILABLE);
     }
 
     @Override
     public List<Car> listSold() {
-        //aqui preciso listar as vendas e tirar os que estao reservados, ou seja, tem uma venda com status reservado
-        List<Long> carReserved = saleRepo.findByStatusOrderByLockedPriceAsc(Sale.Status.RESERVED).stream().map(Sale::getCarId).toList();
-        return carRepo.findBySoldIsTrueOrderByPriceAsc().stream().filter(c-> !carReserved.contains(c.getId())).toList();
+        return catalog.cars(CatalogListing.SOLD);
     }
 
     @Override
     public List<Car> listReserved() {
-        //aqui preciso listar as vendas e tirar os que estao reservados, ou seja, tem uma venda com status reservado
-        List<Long> carReserved = saleRepo.findByStatusOrderByLockedPriceAsc(Sale.Status.RESERVED).stream().map(Sale::getCarId).toList();
-        return carRepo.findBySoldIsTrueOrderByPriceAsc().stream().filter(c-> carReserved.contains(c.getId())).toList();
+        return catalog.cars(CatalogListing.RESERVED);
     }
 
     @Override
-    @Transactional
-    public PurchaseResponse reserved(Long carId) {
-        Car car = carRepo.findById(carId)
-                .orElseThrow(() -> new IllegalArgumentException("Car não encontrado no serviço de venda"));
+    public CatalogView view(CatalogListing listing) {
+        return catalog.view(listing);
+    }
+
+    /**
+     * Contagens dos veículos à venda, mantidas junto com a foto em memória
+     */
+    @Override
+    public CatalogFacets facets() {
+        return catalog.current().facets();
+    }
+
+    @Override
+    public CarPage listAvailable(String cursor, int limit) {
+        CarCursor after = CarCursor.decode(cursor);
+        Limit fetch = Limit.of(CarPage.checkLimit(limit) + 1);
+        List<Car> cars = after == null
+                ? carRepo.findBySoldIsFalseOrderByPriceAscIdAsc(fetch)
+                : carRepo.findAvailableAfter(after.price(), after.id(), fetch);
+        return CarPage.of(cars, limit);
+    }
 
-        // LOCK no registro de sale por carId (evita 2 compras simultâneas)
-        Sale sale = saleRepo.lockByCarId(carId).orElse(null);
+    @Override
+    public CarPage listSold(String cursor, int limit) {
+        CarCursor after = CarCursor.decode(cursor);
+        Limit fetch = Limit.of(CarPage.checkLimit(limit) + 1);
+        List<Car> cars = after == null
+                ? carRepo.findSoldFirst(Sale.Status.RESERVED, fetch)
+                : carRepo.findSoldAfter(Sale.Status.RESERVED, after.price(), after.id(), fetch);
+        return CarPage.of(cars, limit);
+    }
 
-        if (sale == null) {
-            sale = new Sale();
-            sale.setCarId(carId);
-            sale.setLockedPrice(car.getPrice());
-            sale.setStatus(Sale.Status.AVAILABLE);
+    @Override
+    public CarPage listReserved(String cursor, int limit) {
+        CarCursor after = CarCursor.decode(cursor);
+        Limit fetch = Limit.of(CarPage.checkLimit(limit) + 1);
+        List<Car> cars = after == null
+                ? carRepo.findReservedFirst(Sale.Status.RESERVED, fetch)
+                : carRepo.findReservedAfter(Sale.Status.RESERVED, after.price(), after.id(), fetch);
+        return CarPage.of(cars, limit);
+    }
+
+    /**
+     * Busca filtrada de veículos à venda, em páginas de search.limit() veículos (keyset, como as listagens)
+     */
+    @Override
+    public CarPage search(CarSearch search) {
+        int limit = search.limit();
+        List<Car> fetched = carRepo.findBy(CarSpecifications.available(search), q -> q
+                .sortBy(CarSpecifications.sort(search.sort()))
+                .limit(limit + 1)
+                .all());
+        if (fetched.size() <= limit) {
+            return new CarPage(fetched, null);
         }
+        List<Car> items = List.copyOf(fetched.subList(0, limit));
+        return new CarPage(items, CarSearchCursor.of(search.sort(), items.get(limit - 1)).encode());
+    }
 
-        // já vendido
-        if (sale.getStatus() == Sale.Status.PAID) {
-            throw new IllegalStateException("Car já foi vendido");
+    /**
+     * Reserva atômica (compare-and-set): um único comando cria ou toma a venda e marca o carro,
+     * sem lock mantido entre round trips. Só quando a reserva é recusada o motivo é consultado.
+     * A transação é a do próprio comando (tryReserve): o evento sai já commitado e a
+     * ReservationGate guarda o resultado depois de o catálogo ser atualizado.
+     * Carro que o ReservationStateIndex já sabe pago é recusado antes.
+     */
+    @Override
+    public PurchaseResponse reserved(Long carId) {
+        RuntimeException refused = knownRefusal(states, carId);
+        if (refused != null) {
+            throw refused;
         }
+        return gate.guard(carId, () -> reserve(carId));
+    }
 
-        // reservado e ainda válido
-        if (sale.getStatus() == Sale.Status.RESERVED
-                && sale.getReservedUntil() != null
-                && sale.getReservedUntil().isAfter(Instant.now())) {
-            throw new IllegalStateException("Car já está reservado");
+    /**
+     * Recusa decidida pelo índice em memória, ou null quando só o banco pode decidir
+     */
+    static RuntimeException knownRefusal(ReservationStateIndex states, Long carId) {
+        Sale.Status status = states.refusal(carId);
+        return status == Sale.Status.PAID ? new IllegalStateException("Car já foi vendido") : null;
+    }
+
+    private PurchaseResponse reserve(Long carId) {
+        Instant now = Instant.now();
+        Instant reservedUntil = now.plus(RESERVATION_TTL);
+        String paymentCode = paymentCodeGenerator.next();
+
+        Long saleId = saleRepo.tryReserve(carId, paymentCode, reservedUntil, now)
+                .orElseThrow(() -> reservationRefused(carId));
+
+        events.publishEvent(CatalogChangedEvent.of(carId));
+        return new PurchaseResponse(saleId, carId, paymentCode, reservedUntil);
+    }
+
+    /**
+     * Reserva em lote para compra de frota: um único comando reserva todos os carros livres
+     * (vendas travadas em ordem crescente de carId) e os recusados são classificados com
+     * duas consultas. Não passa pela ReservationGate: o lote inteiro já é um round trip só.
+     */
+    @Override
+    public BatchPurchaseResponse reservedBatch(BatchPurchaseRequest req) {
+        List<Long> carIds = req.sortedCarIds();
+        Instant now = Instant.now();
+        Instant reservedUntil = now.plus(RESERVATION_TTL);
+        List<String> paymentCodes = carIds.stream().map(id -> paymentCodeGenerator.next()).toList();
+
+        Map<Long, Long> reserved = saleRepo.tryReserveAll(carIds, paymentCodes, reservedUntil, now);
+        Map<Long, BatchPurchaseResponse.Outcome> refused = refusedOutcomes(carIds, reserved.keySet());
+
+        List<BatchPurchaseResponse.Item> results = new ArrayList<>(carIds.size());
+        for (int i = 0; i < carIds.size(); i++) {
+            Long carId = carIds.get(i);
+            Long saleId = reserved.get(carId);
+            results.add(saleId != null
+                    ? new BatchPurchaseResponse.Item(carId, BatchPurchaseResponse.Outcome.RESERVED, saleId, paymentCodes.get(i))
+                    : new BatchPurchaseResponse.Item(carId, refused.get(carId), null, null));
         }
 
-        // reserva / inicia compra
-        sale.setStatus(Sale.Status.RESERVED);
-        sale.setReservedUntil(Instant.now().plusSeconds(15L * 60L));
-        sale.setPaymentCode(UUID.randomUUID().toString());
+        if (!reserved.isEmpty()) {
+            events.publishEvent(new CatalogChangedEvent(Set.copyOf(reserved.keySet())));
+        }
+        return new BatchPurchaseResponse(reservedUntil, results);
+    }
 
-        Sale saved = saleRepo.save(sale);
+    private Map<Long, BatchPurchaseResponse.Outcome> refusedOutcomes(List<Long> carIds, Set<Long> reserved) {
+        List<Long> refused = carIds.stream().filter(id -> !reserved.contains(id)).toList();
+        Map<Long, BatchPurchaseResponse.Outcome> outcomes = new HashMap<>();
+        if (refused.isEmpty()) return outcomes;
 
-        car.setSold(true);
-        carRepo.save(car);
+        Set<Long> existing = new HashSet<>(carRepo.findExistingIds(refused));
+        Map<Long, Sale.Status> status = new HashMap<>();
+        for (Object[] row : saleRepo.findStatusByCarIds(refused)) {
+            status.put((Long) row[0], (Sale.Status) row[1]);
+        }
+        for (Long carId : refused) {
+            outcomes.put(carId, !existing.contains(carId) ? BatchPurchaseResponse.Outcome.NOT_FOUND
+                    : status.get(carId) == Sale.Status.PAID ? BatchPurchaseResponse.Outcome.SOLD
+                    : BatchPurchaseResponse.Outcome.ALREADY_RESERVED);
+        }
+        return outcomes;
+    }
 
-        return new PurchaseResponse(
-                saved.getId(),
-                saved.getCarId(),
-                saved.getPaymentCode(),
-                saved.getReservedUntil()
-        );
+    private RuntimeException reservationRefused(Long carId) {
+        if (!carRepo.existsById(carId)) {
+            return new IllegalArgumentException("Car não encontrado no serviço de venda");
+        }
+        // já vendido
+        if (saleRepo.findStatusByCarId(carId).orElse(null) == Sale.Status.PAID) {
+            return new IllegalStateException("Car já foi vendido");
+        }
+        // reservado e ainda válido
+        return new CarReservedException("Car já está reservado");
     }
 
     @Override
     @Transactional
     public void handlePaymentWebhook(PaymentWebhookRequest req) {
+        applyPaymentWebhook(req);
+    }
+
+    @Override
+    public void applyPaymentWebhook(PaymentWebhookRequest req) {
         String st = req.status() == null ? "" : req.status().toUpperCase();
 
         Sale sale = saleRepo.findByPaymentCode(req.paymentCode())
@@ -109,44 +259,118 @@ public class SalesServiceImpl implements SalesService {
         if (sale.getStatus() == Sale.Status.CANCELED && "CANCELED".equals(st)) return;
 
         if ("PAID".equals(st)) {
-            sale.setStatus(Sale.Status.PAID);
-            sale.setBuyerCpf(req.buyerCpf());
-            sale.setSoldAt(req.eventAt() != null ? req.eventAt() : Instant.now());
-            sale.setReservedUntil(null);
+            // pagamento que chegou depois da reserva expirar (ReservationSweeper já devolveu o carro)
+            boolean carReleased = !car.isSold();
+            markPaid(sale, car, req);
             saleRepo.save(sale);
-            notifyCoreCarSold(sale).subscribe();
+            if (carReleased) {
+                carRepo.save(car);
+            }
+            events.publishEvent(CatalogChangedEvent.of(sale.getCarId()));
+            outbox.enqueue(sale);
 
             return;
         }
 
         if ("CANCELED".equals(st)) {
-            sale.setStatus(Sale.Status.CANCELED);
-            sale.setReservedUntil(null);
-
-            car.setSold(false);
+            markCanceled(sale, car);
             carRepo.save(car);
             saleRepo.save(sale);
+            events.publishEvent(CatalogChangedEvent.of(sale.getCarId()));
             return;
         }
 
         throw new IllegalArgumentException("status inválido (use PAID ou CANCELED)");
     }
 
-    private Mono<Void> notifyCoreCarSold(Sale sale) {
-        CarSoldEvent event = new CarSoldEvent(
-                sale.getCarId(), sale.getBuyerCpf(), sale.getSoldAt(), sale.getPaymentCode()
-        );
-        System.out.println("VIEW vai notificar Core venda do carro " + sale.getCarId() + " -> " + event);
-        return client.post()
-                .uri("/internal/cars/{carId}/sold", sale.getCarId())
-                .bodyValue(event)
-                .retrieve()
-                .toBodilessEntity()
-                .doOnSuccess(r -> log.info("VIEW notificou Core venda carId={}", sale.getCarId()))
-                .doOnError(r -> log.error("VIEW falhou ao notificar Core venda carId={}: {}", sale.getCarId(), r.getMessage()))
-                .then();
+    /**
+     * Webhook em lote (entrega agrupada do gateway, reconciliação): vendas e carros de todos os
+     * eventos vêm em duas consultas IN, as transições são aplicadas nas entidades em memória e
+     * saem no commit como UPDATEs em batch JDBC (as notificações ao Core, como INSERTs na outbox).
+     * Um evento recusado não derruba o lote: vira NOT_FOUND ou INVALID_STATUS no resultado.
+     * Evento de um paymentCode que ainda tem evento pendente na caixa de entrada (recebido antes
+     * por POST /payments/webhook) não passa na frente dele: é gravado na caixa de entrada, atrás,
+     * e volta como QUEUED.
+     */
+    @Override
+    @Transactional
+    public BatchPaymentWebhookResponse handlePaymentWebhookBatch(BatchPaymentWebhookRequest req) {
+        List<PaymentWebhookRequest> payments = req.validatedEvents();
+
+        Set<String> paymentCodes = new HashSet<>();
+        for (PaymentWebhookRequest p : payments) {
+            if (p.paymentCode() != null) paymentCodes.add(p.paymentCode());
+        }
+        Set<String> queued = new HashSet<>(inbox.findPendingPaymentCodes(paymentCodes));
+        Map<String, Sale> sales = new HashMap<>();
+        for (Sale sale : saleRepo.findByPaymentCodeIn(paymentCodes)) {
+            sales.put(sale.getPaymentCode(), sale);
+        }
+        Map<Long, Car> cars = new HashMap<>();
+        for (Car car : carRepo.findAllById(sales.values().stream().map(Sale::getCarId).collect(Collectors.toSet()))) {
+            cars.put(car.getId(), car);
+        }
 
+        List<BatchPaymentWebhookResponse.Item> results = new ArrayList<>(payments.size());
+        Set<Long> changed = new HashSet<>();
+        // por paymentCode: um CANCELED posterior no mesmo lote desfaz a notificação ao Core
+        Map<String, Sale> paid = new LinkedHashMap<>();
+        List<WebhookInboxEntry> deferred = new ArrayList<>();
+        Instant now = Instant.now();
+        for (PaymentWebhookRequest p : payments) {
+            Sale sale = sales.get(p.paymentCode());
+            Car car = sale == null ? null : cars.get(sale.getCarId());
+            String st = p.status() == null ? "" : p.status().trim().toUpperCase(Locale.ROOT);
+            boolean validStatus = "PAID".equals(st) || "CANCELED".equals(st);
+
+            BatchPaymentWebhookResponse.Outcome outcome;
+            if (validStatus && queued.contains(p.paymentCode())) {
+                deferred.add(WebhookInboxEntry.of(p, st, now));
+                outcome = BatchPaymentWebhookResponse.Outcome.QUEUED;
+            } else if (sale == null || car == null) {
+                outcome = BatchPaymentWebhookResponse.Outcome.NOT_FOUND;
+            } else if (!validStatus) {
+                outcome = BatchPaymentWebhookResponse.Outcome.INVALID_STATUS;
+            } else if (sale.getStatus().name().equals(st)) {
+                outcome = BatchPaymentWebhookResponse.Outcome.UNCHANGED;
+            } else if ("PAID".equals(st)) {
+                markPaid(sale, car, p);
+                paid.put(sale.getPaymentCode(), sale);
+                outcome = BatchPaymentWebhookResponse.Outcome.PAID;
+            } else {
+                markCanceled(sale, car);
+                paid.remove(sale.getPaymentCode());
+                outcome = BatchPaymentWebhookResponse.Outcome.CANCELED;
+            }
+            if (outcome == BatchPaymentWebhookResponse.Outcome.PAID || outcome == BatchPaymentWebhookResponse.Outcome.CANCELED) {
+                changed.add(sale.getCarId());
+            }
+            results.add(new BatchPaymentWebhookResponse.Item(p.paymentCode(), sale == null ? null : sale.getCarId(), outcome));
+        }
+
+        if (!changed.isEmpty()) {
+            events.publishEvent(new CatalogChangedEvent(Set.copyOf(changed)));
+        }
+        if (!paid.isEmpty()) {
+            outbox.enqueueAll(List.copyOf(paid.values()));
+        }
+        if (!deferred.isEmpty()) {
+            inbox.saveAll(deferred);
+        }
+        return new BatchPaymentWebhookResponse(results);
     }
 
+    private static void markPaid(Sale sale, Car car, PaymentWebhookRequest req) {
+        sale.setStatus(Sale.Status.PAID);
+        sale.setBuyerCpf(req.buyerCpf());
+        sale.setSoldAt(req.eventAt() != null ? req.eventAt() : Instant.now());
+        sale.setReservedUntil(null);
+        car.setSold(true);
+    }
 
+    private static void markCanceled(Sale sale, Car car) {
+        sale.setStatus(Sale.Status.CANCELED);
+        sale.setReservedUntil(null);
+        car.setSold(false);
+    }
 }
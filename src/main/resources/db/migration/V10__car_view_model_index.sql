@@ -0,0 +1,7 @@
+-- =========================
+-- CarStoreView - V10 Busca por modelo sem marca
+-- =========================
+
+-- idx_car_view_avail_brand_model_price começa por lower(brand) e não serve para ?model= sozinho
+CREATE INDEX IF NOT EXISTS idx_car_view_avail_model_price
+    ON car_view (lower(model), price, id) WHERE sold = false;
@@ -0,0 +1,10 @@
+-- =========================
+-- CarStoreView - V11 Idempotency-Key reservada antes da execução
+-- =========================
+
+-- a linha é gravada antes da ação (completed_at nulo = em andamento) e completada com a resposta
+-- depois do commit; a repetição em outra réplica vê a marca e não executa de novo
+ALTER TABLE idempotency_keys ADD COLUMN IF NOT EXISTS completed_at TIMESTAMPTZ NULL;
+
+-- até aqui só respostas já entregues eram gravadas
+UPDATE idempotency_keys SET completed_at = created_at WHERE completed_at IS NULL;
@@ -0,0 +1,7 @@
+-- =========================
+-- CarStoreView - V12 sales_seq de 1 em 1
+-- =========================
+
+-- toda venda nasce no INSERT nativo da reserva (ReservationSql), com um nextval por linha:
+-- o bloco de 50 da V6 só desperdiçava 49 ids por venda, nenhum otimizador do Hibernate usa a sequência
+ALTER SEQUENCE sales_seq INCREMENT BY 1;
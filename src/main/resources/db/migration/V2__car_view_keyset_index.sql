@@ -0,0 +1,7 @@
+-- =========================
+-- CarStoreView - V2 Paginação keyset das listagens
+-- =========================
+
+-- seek por (price, id) dentro de cada situação (sold = false / true)
+CREATE INDEX IF NOT EXISTS idx_car_view_sold_price_id
+    ON car_view (sold, price, id);
@@ -0,0 +1,16 @@
+-- =========================
+-- CarStoreView - V3 Índices da busca de veículos à venda
+-- =========================
+
+-- parciais (sold = false): a busca só olha veículos à venda
+-- brand / brand + model, com faixa ou ordenação por preço
+CREATE INDEX IF NOT EXISTS idx_car_view_avail_brand_model_price
+    ON car_view (lower(brand), lower(model), price, id) WHERE sold = false;
+
+-- faixa de ano (ordenação por ano usa o mesmo índice)
+CREATE INDEX IF NOT EXISTS idx_car_view_avail_year_price
+    ON car_view (car_year, price, id) WHERE sold = false;
+
+-- cor, com faixa ou ordenação por preço
+CREATE INDEX IF NOT EXISTS idx_car_view_avail_color_price
+    ON car_view (lower(color), price, id) WHERE sold = false;
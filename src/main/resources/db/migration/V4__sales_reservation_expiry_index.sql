@@ -0,0 +1,7 @@
+-- =========================
+-- CarStoreView - V4 Expiração de reservas
+-- =========================
+
+-- varredura das reservas vencidas (ReservationSweeper) em ordem de vencimento
+CREATE INDEX IF NOT EXISTS idx_sales_reserved_until
+    ON sales (reserved_until) WHERE status = 'RESERVED';
@@ -0,0 +1,14 @@
+-- =========================
+-- CarStoreView - V5 Idempotency-Key
+-- =========================
+
+-- respostas já entregues por Idempotency-Key (POST /reserved e webhook), expiradas por created_at
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    id VARCHAR(150) PRIMARY KEY,
+    fingerprint VARCHAR(300) NOT NULL,
+    response VARCHAR(1000) NULL,
+    created_at TIMESTAMPTZ NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_created
+    ON idempotency_keys (created_at);
@@ -0,0 +1,15 @@
+-- =========================
+-- CarStoreView - V6 Sequência de sales
+-- =========================
+
+-- IDENTITY obriga o Hibernate a um INSERT imediato por venda (sem batch JDBC).
+-- sales_seq anda de 50 em 50: cada nextval reserva um bloco de ids para o otimizador pooled.
+CREATE SEQUENCE IF NOT EXISTS sales_seq INCREMENT BY 50 START WITH 50;
+
+SELECT setval('sales_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM sales), false);
+
+-- inserts nativos (ReservationSql) também saem de sales_seq; o id que recebem é o topo
+-- de um bloco que nenhuma instância do Hibernate vai usar
+ALTER TABLE sales ALTER COLUMN id SET DEFAULT nextval('sales_seq');
+ALTER SEQUENCE sales_seq OWNED BY sales.id;
+DROP SEQUENCE IF EXISTS sales_id_seq;
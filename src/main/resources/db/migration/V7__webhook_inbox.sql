@@ -0,0 +1,27 @@
+-- =========================
+-- CarStoreView - V7 Caixa de entrada do webhook de pagamento
+-- =========================
+
+-- POST /payments/webhook só grava aqui e responde 202; o WebhookInbox aplica em lotes
+CREATE TABLE IF NOT EXISTS webhook_inbox (
+    id BIGSERIAL PRIMARY KEY,
+    payment_code VARCHAR(255) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    buyer_cpf VARCHAR(11) NULL,
+    event_at TIMESTAMPTZ NULL,
+    received_at TIMESTAMPTZ NOT NULL,
+    processed_at TIMESTAMPTZ NULL,
+    last_error VARCHAR(500) NULL
+);
+
+-- pendentes em ordem de chegada (lote do worker)
+CREATE INDEX IF NOT EXISTS idx_webhook_inbox_pending
+    ON webhook_inbox (id) WHERE processed_at IS NULL;
+
+-- "existe evento anterior pendente do mesmo paymentCode?"
+CREATE INDEX IF NOT EXISTS idx_webhook_inbox_payment
+    ON webhook_inbox (payment_code, id);
+
+-- limpeza dos já aplicados
+CREATE INDEX IF NOT EXISTS idx_webhook_inbox_processed
+    ON webhook_inbox (processed_at) WHERE processed_at IS NOT NULL;
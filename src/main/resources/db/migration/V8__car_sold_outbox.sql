@@ -0,0 +1,29 @@
+-- =========================
+-- CarStoreView - V8 Outbox das notificações de venda ao Core
+-- =========================
+
+-- gravada na mesma transação do webhook PAID; o CarSoldOutbox entrega ao Core e marca delivered_at
+CREATE SEQUENCE IF NOT EXISTS car_sold_outbox_seq INCREMENT BY 50 START WITH 50;
+
+CREATE TABLE IF NOT EXISTS car_sold_outbox (
+    id BIGINT PRIMARY KEY DEFAULT nextval('car_sold_outbox_seq'),
+    car_id BIGINT NOT NULL,
+    buyer_cpf VARCHAR(11) NULL,
+    sold_at TIMESTAMPTZ NULL,
+    payment_code VARCHAR(255) NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMPTZ NOT NULL,
+    delivered_at TIMESTAMPTZ NULL,
+    last_error VARCHAR(500) NULL
+);
+
+ALTER SEQUENCE car_sold_outbox_seq OWNED BY car_sold_outbox.id;
+
+-- pendentes que já podem ser enviados (lote do relay)
+CREATE INDEX IF NOT EXISTS idx_car_sold_outbox_due
+    ON car_sold_outbox (next_attempt_at, id) WHERE delivered_at IS NULL;
+
+-- limpeza dos já entregues
+CREATE INDEX IF NOT EXISTS idx_car_sold_outbox_delivered
+    ON car_sold_outbox (delivered_at) WHERE delivered_at IS NOT NULL;
@@ -0,0 +1,7 @@
+-- =========================
+-- CarStoreView - V9 Tentativas por evento da caixa de entrada
+-- =========================
+
+-- falhas inesperadas ao aplicar o evento isoladamente; em carstore.webhook-inbox.max-attempts
+-- o evento sai da fila com last_error e libera os seguintes do mesmo paymentCode
+ALTER TABLE webhook_inbox ADD COLUMN IF NOT EXISTS attempts INT NOT NULL DEFAULT 0;
@@ -0,0 +1,208 @@
+package br.com.fiap.soat7.adapter.client;
+
+import br.com.fiap.soat7.data.domain.dto.CarSoldEvent;
+import br.com.fiap.soat7.infra.config.api.CoreWebClientConfig;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CoreClient contra um Core de mentira (reactor-netty local), com a política de CoreWebClientConfig
+ */
+class CoreClientTest {
+
+    static final Duration RESPONSE_TIMEOUT = Duration.ofMillis(300);
+
+    final AtomicInteger hits = new AtomicInteger();
+    final List<String> requests = new CopyOnWriteArrayList<>();
+    volatile IntUnaryOperator statusForHit = n -> 200;
+    volatile Duration delay = Duration.ZERO;
+    volatile boolean bulkEndpoint = true;
+
+    DisposableServer server;
+    SimpleMeterRegistry registry;
+    CircuitBreaker circuitBreaker;
+    Bulkhead bulkhead;
+    CoreClient core;
+
+    @BeforeEach
+    void setup() {
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.post("/internal/cars/sold", (req, res) -> {
+                    if (!bulkEndpoint) return res.status(404).send();
+                    hits.incrementAndGet();
+                    return req.receive().aggregate().asString().defaultIfEmpty("")
+                            .doOnNext(body -> requests.add("bulk " + body))
+                            .then(res.status(200).send());
+                }).post("/internal/cars/{carId}/sold", (req, res) -> {
+                    int n = hits.incrementAndGet();
+                    return req.receive().aggregate().asString().defaultIfEmpty("")
+                            .doOnNext(body -> requests.add(req.param("carId") + " " + body))
+                            .then(Mono.delay(delay))
+                            .then(res.status(statusForHit.applyAsInt(n)).send());
+                }))
+                .bindNow();
+
+        registry = new SimpleMeterRegistry();
+        CoreWebClientConfig config = new CoreWebClientConfig();
+        circuitBreaker = config.coreCircuitBreaker(registry, 50, 4, 4, Duration.ofMinutes(1));
+        bulkhead = config.coreBulkhead(registry, 2);
+        core = new CoreClient(
+                config.coreWebClient("http://localhost:" + server.port(), Duration.ofSeconds(1), RESPONSE_TIMEOUT),
+                circuitBreaker,
+                bulkhead,
+                config.coreRetry(registry, 3, Duration.ofMillis(10), Duration.ofMillis(50)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.disposeNow();
+    }
+
+    private static CarSoldEvent event(long carId) {
+        return new CarSoldEvent(carId, "11122233344", Instant.parse("2026-01-01T00:00:00Z"), "pc" + carId);
+    }
+
+    private double retries() {
+        return registry.get("carstore.core.client.retries").counter().count();
+    }
+
+    @Test
+    void notifyCarSold_devePostarEventoNoEndpointDoCarro() {
+        core.notifyCarSold(event(7L)).block();
+
+        assertEquals(1, hits.get());
+        assertTrue(requests.get(0).startsWith("7 "));
+        assertTrue(requests.get(0).contains("\"paymentCode\":\"pc7\""));
+        assertEquals(0.0, retries());
+    }
+
+    @Test
+    void notifyCarSold_quandoCoreFalhaTemporariamente_repeteEConclui() {
+        statusForHit = n -> n < 3 ? 503 : 200;
+
+        core.notifyCarSold(event(8L)).block();
+
+        assertEquals(3, hits.get());
+        assertEquals(2.0, retries());
+    }
+
+    @Test
+    void notifyCarSold_quandoCoreRecusaComo4xx_naoRepeteNemContaNoCircuito() {
+        statusForHit = n -> 400;
+
+        assertThrows(WebClientResponseException.BadRequest.class, () -> core.notifyCarSold(event(9L)).block());
+
+        assertEquals(1, hits.get());
+        assertEquals(0, circuitBreaker.getMetrics().getNumberOfFailedCalls());
+    }
+
+    @Test
+    void notifyCarSold_quandoCoreNaoResponde_esgotaTentativasComTimeout() {
+        delay = RESPONSE_TIMEOUT.multipliedBy(3);
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> core.notifyCarSold(event(10L)).block());
+
+        assertTrue(CoreClient.isTransient(ex), ex.toString());
+        assertEquals(3, hits.get());
+    }
+
+    @Test
+    void notifyCarSold_quandoCircuitoAbre_recusaSemChamarOCore() {
+        statusForHit = n -> 500;
+
+        // 2 chamadas x 3 tentativas: janela de 4 com 100% de falha
+        assertThrows(WebClientResponseException.class, () -> core.notifyCarSold(event(11L)).block());
+        assertThrows(RuntimeException.class, () -> core.notifyCarSold(event(12L)).block());
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        int before = hits.get();
+
+        assertThrows(CallNotPermittedException.class, () -> core.notifyCarSold(event(13L)).block());
+
+        assertEquals(before, hits.get());
+        assertEquals(1.0, registry.get("resilience4j.circuitbreaker.state")
+                .tag("name", "core").tag("state", "open").gauge().value());
+    }
+
+    @Test
+    void notifyCarSold_quandoBulkheadCheio_recusaNaHora() {
+        delay = Duration.ofMillis(200);
+        Disposable first = core.notifyCarSold(event(14L)).subscribe();
+        Disposable second = core.notifyCarSold(event(15L)).subscribe();
+        try {
+            assertThrows(BulkheadFullException.class, () -> core.notifyCarSold(event(16L)).block());
+            assertEquals(0.0, registry.get("resilience4j.bulkhead.available.concurrent.calls")
+                    .tag("name", "core").gauge().value());
+        } finally {
+            first.dispose();
+            second.dispose();
+        }
+    }
+
+    @Test
+    void notifyCarsSold_devePostarOLoteNumaRequisicao() {
+        core.notifyCarsSold(List.of(event(20L), event(21L))).block();
+
+        assertEquals(1, hits.get());
+        assertTrue(requests.get(0).startsWith("bulk ["));
+        assertTrue(requests.get(0).contains("\"paymentCode\":\"pc20\""));
+        assertTrue(requests.get(0).contains("\"paymentCode\":\"pc21\""));
+    }
+
+    @Test
+    void notifyCarsSold_quandoCoreNaoTemOEndpoint_falhaSemRepetir() {
+        bulkEndpoint = false;
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> core.notifyCarsSold(List.of(event(22L))).block());
+
+        assertTrue(CoreClient.isBulkUnsupported(ex));
+        assertEquals(0.0, retries());
+    }
+
+    @Test
+    void isTransient_soFalhasQuePodemPassarSozinhas() {
+        assertTrue(CoreClient.isTransient(WebClientResponseException.create(503, "x", null, null, null)));
+        assertTrue(CoreClient.isTransient(WebClientResponseException.create(429, "x", null, null, null)));
+        assertTrue(CoreClient.isTransient(new TimeoutException()));
+        assertTrue(CoreClient.isTransient(new WebClientRequestException(new java.io.IOException("reset"),
+                org.springframework.http.HttpMethod.POST, java.net.URI.create("http://core"), new org.springframework.http.HttpHeaders())));
+        assertFalse(CoreClient.isTransient(WebClientResponseException.create(404, "x", null, null, null)));
+        assertFalse(CoreClient.isTransient(WebClientResponseException.create(501, "x", null, null, null)));
+        assertFalse(CoreClient.isTransient(BulkheadFullException.createBulkheadFullException(Bulkhead.ofDefaults("x"))));
+    }
+
+    @Test
+    void isRejected_so4xxQueNaoE429() {
+        assertTrue(CoreClient.isRejected(WebClientResponseException.create(400, "x", null, null, null)));
+        assertTrue(CoreClient.isRejected(WebClientResponseException.create(422, "x", null, null, null)));
+        assertFalse(CoreClient.isRejected(WebClientResponseException.create(429, "x", null, null, null)));
+        assertFalse(CoreClient.isRejected(WebClientResponseException.create(503, "x", null, null, null)));
+        assertFalse(CoreClient.isRejected(new TimeoutException()));
+    }
+}
@@ -0,0 +1,59 @@
+package br.com.fiap.soat7.adapter.controller;
+
+import br.com.fiap.soat7.data.domain.Car;
+import br.com.fiap.soat7.data.domain.dto.CarPage;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CarStreamsTest {
+
+    private static Car car(long id) {
+        Car c = new Car();
+        c.setId(id);
+        return c;
+    }
+
+    @Test
+    void all_deveSeguirCursoresAteUltimaPagina() {
+        Map<String, CarPage> pages = Map.of(
+                "", new CarPage(List.of(car(1), car(2)), "a"),
+                "a", new CarPage(List.of(car(3)), "b"),
+                "b", new CarPage(List.of(car(4)), null));
+        List<String> cursors = new ArrayList<>();
+
+        List<Long> ids = CarStreams.all(cursor -> {
+                    cursors.add(cursor);
+                    return Mono.just(pages.get(cursor == null ? "" : cursor));
+                })
+                .map(Car::getId)
+                .collectList()
+                .block();
+
+        assertThat(ids).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(cursors).containsExactly(null, "a", "b");
+    }
+
+    @Test
+    void all_naoBuscaPaginasAlemDaDemanda() {
+        List<String> cursors = new ArrayList<>();
+
+        // catálogo "infinito": sem backpressure o expand nunca terminaria
+        List<Car> first = CarStreams.all(cursor -> {
+                    cursors.add(cursor);
+                    return Mono.just(new CarPage(List.of(car(cursors.size())), "c" + cursors.size()));
+                })
+                .take(1)
+                .collectList()
+                .block();
+
+        assertThat(first).hasSize(1);
+
+        assertThat(cursors.size()).isLessThanOrEqualTo(3);
+    }
+}
@@ -2,12 +2,13 @@ package br.com.fiap.soat7.adapter.controller;
 
 import br.com.fiap.soat7.data.domain.dto.CarSyncRequest;
 import br.com.fiap.soat7.usecase.services.CarSyncService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
+import reactor.core.scheduler.Schedulers;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -18,16 +19,20 @@ class CarSyncControllerTest {
     @Mock
     CarSyncService carSyncService;
 
-    @InjectMocks
     CarSyncController controller;
 
+    @BeforeEach
+    void setup() {
+        controller = new CarSyncController(carSyncService, Schedulers.immediate());
+    }
+
     @Test
     void upsert_deveChamarServiceEDevolver204() {
         // arrange
         CarSyncRequest req = mock(CarSyncRequest.class); // não depende do construtor do DTO
 
         // act
-        ResponseEntity<Void> resp = controller.upsert(req);
+        ResponseEntity<Void> resp = controller.upsert(req).block();
 
         // assert
         verify(carSyncService, times(1)).upsert(req);
@@ -45,7 +50,7 @@ class CarSyncControllerTest {
         doThrow(boom).when(carSyncService).upsert(req);
 
         // act + assert
-        org.junit.jupiter.api.Assertions.assertThrows(RuntimeException.class, () -> controller.upsert(req));
+        org.junit.jupiter.api.Assertions.assertThrows(RuntimeException.class, () -> controller.upsert(req).block());
 
         verify(carSyncService, times(1)).upsert(req);
         verifyNoMoreInteractions(carSyncService);
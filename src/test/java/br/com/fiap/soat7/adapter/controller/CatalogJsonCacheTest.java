@@ -0,0 +1,63 @@
+package br.com.fiap.soat7.adapter.controller;
+
+import br.com.fiap.soat7.data.domain.Car;
+import br.com.fiap.soat7.usecase.catalog.CatalogListing;
+import br.com.fiap.soat7.usecase.catalog.CatalogView;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogJsonCacheTest {
+
+    private final JsonMapper mapper = JsonMapper.builder().build();
+    private final CatalogJsonCache cache = new CatalogJsonCache(mapper);
+
+    private static Car car(long id, String price) {
+        Car c = new Car("Toyota", "Corolla", 2020, "Prata", new BigDecimal(price));
+        c.setId(id);
+        c.setUpdatedAt(Instant.parse("2026-01-01T10:00:00Z"));
+        return c;
+    }
+
+    @Test
+    void json_deveSerIgualASerializacaoDaLista() {
+        List<Car> cars = List.of(car(1, "95000.00"));
+
+        byte[] json = cache.json(CatalogListing.AVAILABLE, new CatalogView("\"e-1\"", cars));
+
+        assertThat(new String(json, StandardCharsets.UTF_8)).isEqualTo(mapper.writeValueAsString(cars));
+    }
+
+    @Test
+    void json_mesmoEtag_reaproveitaOsBytes() {
+        List<Car> cars = List.of(car(1, "10"));
+        byte[] first = cache.json(CatalogListing.SOLD, new CatalogView("\"e-1\"", cars));
+
+        assertThat(cache.json(CatalogListing.SOLD, new CatalogView("\"e-1\"", cars))).isSameAs(first);
+    }
+
+    @Test
+    void json_etagNovo_serializaDeNovo() {
+        byte[] first = cache.json(CatalogListing.AVAILABLE, new CatalogView("\"e-1\"", List.of(car(1, "10"))));
+
+        byte[] second = cache.json(CatalogListing.AVAILABLE, new CatalogView("\"e-2\"", List.of()));
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(new String(second, StandardCharsets.UTF_8)).isEqualTo("[]");
+    }
+
+    @Test
+    void json_listagensTemEntradasSeparadas() {
+        byte[] available = cache.json(CatalogListing.AVAILABLE, new CatalogView("\"e-1\"", List.of()));
+        byte[] reserved = cache.json(CatalogListing.RESERVED, new CatalogView("\"e-1\"", List.of(car(2, "20"))));
+
+        assertThat(cache.json(CatalogListing.AVAILABLE, new CatalogView("\"e-1\"", List.of()))).isSameAs(available);
+        assertThat(reserved).isNotEqualTo(available);
+    }
+}
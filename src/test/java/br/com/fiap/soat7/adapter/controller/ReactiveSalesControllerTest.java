@@ -0,0 +1,95 @@
+package br.com.fiap.soat7.adapter.controller;
+
+import br.com.fiap.soat7.data.domain.Car;
+import br.com.fiap.soat7.data.domain.dto.CarPage;
+import br.com.fiap.soat7.data.domain.dto.PaymentWebhookRequest;
+import br.com.fiap.soat7.data.domain.dto.PurchaseRequest;
+import br.com.fiap.soat7.data.domain.dto.PurchaseResponse;
+import br.com.fiap.soat7.usecase.idempotency.IdempotencyStore;
+import br.com.fiap.soat7.usecase.payment.WebhookInbox;
+import br.com.fiap.soat7.usecase.services.ReactiveSalesService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveSalesControllerTest {
+
+    @Mock
+    ReactiveSalesService salesService;
+
+    @Mock
+    IdempotencyStore idempotency;
+
+    @Mock
+    WebhookInbox inbox;
+
+    ReactiveSalesController controller;
+
+    @BeforeEach
+    void setup() {
+        controller = new ReactiveSalesController(salesService, idempotency, inbox, Schedulers.immediate());
+    }
+
+    @Test
+    void listAvailable_deveRepassarFluxDoService() {
+        Car c1 = new Car();
+        c1.setId(1L);
+        when(salesService.listAvailable()).thenReturn(Flux.just(c1));
+
+        assertThat(controller.listAvailable().collectList().block()).containsExactly(c1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reserved_deveDevolver200ComRespostaPeloIdempotencyStore() {
+        PurchaseResponse expected = new PurchaseResponse(1L, 55L, "pc", Instant.now());
+        when(salesService.reserved(55L)).thenReturn(Mono.just(expected));
+        when(idempotency.executeReactive(eq("reserved"), eq("k1"), eq("55"), eq(PurchaseResponse.class), any(Mono.class)))
+                .thenAnswer(inv -> inv.getArgument(4));
+
+        ResponseEntity<PurchaseResponse> resp = controller.reserved(new PurchaseRequest(55L), "k1").block();
+
+        assertThat(resp.getStatusCode().value()).isEqualTo(200);
+        assertThat(resp.getBody()).isSameAs(expected);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void webhook_deveGravarNaCaixaDeEntradaEDevolver202() {
+        PaymentWebhookRequest req = new PaymentWebhookRequest("pc", "PAID", "cpf", null);
+        when(idempotency.execute(eq("webhook"), isNull(), eq("pc:PAID"), eq(Void.class), any(Supplier.class)))
+                .thenAnswer(inv -> ((Supplier<Void>) inv.getArgument(4)).get());
+
+        ResponseEntity<Void> resp = controller.webhook(req, null).block();
+
+        assertThat(resp.getStatusCode().value()).isEqualTo(202);
+        verify(inbox).append(req);
+    }
+
+    @Test
+    void streamSold_deveSeguirCursorDoServiceReativo() {
+        Car c1 = new Car();
+        Car c2 = new Car();
+        when(salesService.listSold(null, CarPage.MAX_LIMIT)).thenReturn(Mono.just(new CarPage(List.of(c1), "n")));
+        when(salesService.listSold("n", CarPage.MAX_LIMIT)).thenReturn(Mono.just(new CarPage(List.of(c2), null)));
+
+        assertThat(controller.streamSold().collectList().block()).containsExactly(c1, c2);
+    }
+}
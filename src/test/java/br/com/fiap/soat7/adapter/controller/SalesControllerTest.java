@@ -1,20 +1,43 @@
 package br.com.fiap.soat7.adapter.controller;
 
 import br.com.fiap.soat7.data.domain.Car;
+import br.com.fiap.soat7.data.domain.dto.BatchPaymentWebhookRequest;
+import br.com.fiap.soat7.data.domain.dto.BatchPaymentWebhookResponse;
+import br.com.fiap.soat7.data.domain.dto.BatchPurchaseRequest;
+import br.com.fiap.soat7.data.domain.dto.BatchPurchaseResponse;
+import br.com.fiap.soat7.data.domain.dto.CarPage;
+import br.com.fiap.soat7.data.domain.dto.CarSearch;
+import br.com.fiap.soat7.data.domain.dto.CarSearchCursor;
 import br.com.fiap.soat7.data.domain.dto.PaymentWebhookRequest;
 import br.com.fiap.soat7.data.domain.dto.PurchaseRequest;
 import br.com.fiap.soat7.data.domain.dto.PurchaseResponse;
+import br.com.fiap.soat7.usecase.catalog.CatalogFacets;
+import br.com.fiap.soat7.usecase.catalog.CatalogListing;
+import br.com.fiap.soat7.usecase.catalog.CatalogView;
+import br.com.fiap.soat7.usecase.idempotency.IdempotencyStore;
+import br.com.fiap.soat7.usecase.payment.WebhookInbox;
+import br.com.fiap.soat7.usecase.reservation.ReservationWaitlist;
 import br.com.fiap.soat7.usecase.services.SalesService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -23,9 +46,28 @@ class SalesControllerTest {
     @Mock
     SalesService salesService;
 
-    @InjectMocks
+    @Mock
+    CatalogJsonCache jsonCache;
+
+    @Mock
+    ReservationWaitlist waitlist;
+
+    @Mock
+    IdempotencyStore idempotency;
+
+    @Mock
+    WebhookInbox inbox;
+
     SalesController controller;
 
+    @BeforeEach
+    void setup() {
+        controller = new SalesController(salesService, Schedulers.immediate(), jsonCache, waitlist, idempotency, inbox);
+        // sem Idempotency-Key o store só executa a ação
+        lenient().when(idempotency.execute(anyString(), any(), any(), any(), any()))
+                .thenAnswer(inv -> inv.<Supplier<?>>getArgument(4).get());
+    }
+
     @Test
     void listReserved_deveRetornar200ELista() throws Exception {
         Car c1 = new Car();
@@ -34,13 +76,17 @@ class SalesControllerTest {
         Car c2 = new Car();
         c2.setId(2L);
 
-        when(salesService.listReserved()).thenReturn(List.of(c1, c2));
+        CatalogView view = new CatalogView("\"r1\"", List.of(c1, c2));
+        byte[] json = "[{},{}]".getBytes();
+        when(salesService.view(CatalogListing.RESERVED)).thenReturn(view);
+        when(jsonCache.json(CatalogListing.RESERVED, view)).thenReturn(json);
 
-        ResponseEntity<List<Car>> resp = controller.listReserved();
-        verify(salesService, times(1)).listReserved();
+        ResponseEntity<byte[]> resp = controller.listReserved(get());
+        verify(salesService, times(1)).view(CatalogListing.RESERVED);
         verifyNoMoreInteractions(salesService);
         assertThat(resp.getStatusCode().value()).isEqualTo(200);
-        assertThat(resp.getBody()).hasSize(2);
+        assertThat(resp.getBody()).isSameAs(json);
+        assertThat(resp.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
 
     }
 
@@ -51,36 +97,94 @@ class SalesControllerTest {
         Car s2 = mock(Car.class);
         List<Car> expected = List.of(s1, s2);
 
-        when(salesService.listAvailable()).thenReturn(expected);
+        CatalogView view = new CatalogView("\"a1\"", expected);
+        byte[] json = new byte[0];
+        when(salesService.view(CatalogListing.AVAILABLE)).thenReturn(view);
+        when(jsonCache.json(CatalogListing.AVAILABLE, view)).thenReturn(json);
 
         // act
-        ResponseEntity<List<Car>> resp = controller.listAvailable();
+        ResponseEntity<byte[]> resp = controller.listAvailable(get());
 
         // assert
-        verify(salesService, times(1)).listAvailable();
+        verify(salesService, times(1)).view(CatalogListing.AVAILABLE);
         verifyNoMoreInteractions(salesService);
 
         assertThat(resp.getStatusCode().value()).isEqualTo(200);
-        assertThat(resp.getBody()).isSameAs(expected);
+        assertThat(resp.getBody()).isSameAs(json);
     }
 
     @Test
     void listSold_deveRetornar200ComListaDoService() {
         // arrange
         List<Car> expected = List.of(mock(Car.class));
-        when(salesService.listSold()).thenReturn(expected);
+        CatalogView view = new CatalogView("\"s1\"", expected);
+        byte[] json = new byte[0];
+        when(salesService.view(CatalogListing.SOLD)).thenReturn(view);
+        when(jsonCache.json(CatalogListing.SOLD, view)).thenReturn(json);
 
         // act
-        ResponseEntity<List<Car>> resp = controller.listSold();
+        ResponseEntity<byte[]> resp = controller.listSold(get());
 
         // assert
-        verify(salesService, times(1)).listSold();
+        verify(salesService, times(1)).view(CatalogListing.SOLD);
         verifyNoMoreInteractions(salesService);
 
+        assertThat(resp.getStatusCode().value()).isEqualTo(200);
+        assertThat(resp.getBody()).isSameAs(json);
+        assertThat(resp.getHeaders().getETag()).isEqualTo("\"s1\"");
+    }
+
+    @Test
+    void listAvailable_quandoIfNoneMatchIgualAoEtag_deveRetornar304SemCorpo() {
+        when(salesService.view(CatalogListing.AVAILABLE)).thenReturn(new CatalogView("\"a7\"", List.of(new Car())));
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.get("/api/1/sales/available").ifNoneMatch("\"a7\""));
+
+        ResponseEntity<byte[]> resp = controller.listAvailable(exchange);
+
+        assertThat(resp.getStatusCode().value()).isEqualTo(304);
+        assertThat(resp.getBody()).isNull();
+        assertThat(resp.getHeaders().getETag()).isEqualTo("\"a7\"");
+        verifyNoInteractions(jsonCache);
+    }
+
+    @Test
+    void listAvailable_quandoEtagMudou_deveRetornar200() {
+        CatalogView view = new CatalogView("\"a8\"", List.of());
+        when(salesService.view(CatalogListing.AVAILABLE)).thenReturn(view);
+        when(jsonCache.json(CatalogListing.AVAILABLE, view)).thenReturn("[]".getBytes());
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.get("/api/1/sales/available").ifNoneMatch("\"a7\""));
+
+        assertThat(controller.listAvailable(exchange).getStatusCode().value()).isEqualTo(200);
+    }
+
+    private static MockServerWebExchange get() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/1/sales"));
+    }
+
+    @Test
+    void pageAvailable_deveRepassarCursorELimit() {
+        CarPage expected = new CarPage(List.of(), null);
+        when(salesService.listAvailable("abc", 20)).thenReturn(expected);
+
+        ResponseEntity<CarPage> resp = controller.pageAvailable("abc", 20).block();
+
         assertThat(resp.getStatusCode().value()).isEqualTo(200);
         assertThat(resp.getBody()).isSameAs(expected);
     }
 
+    @Test
+    void pageSoldEPageReserved_devemRepassarCursorELimit() {
+        CarPage sold = new CarPage(List.of(), null);
+        CarPage reserved = new CarPage(List.of(), "next");
+        when(salesService.listSold(null, 50)).thenReturn(sold);
+        when(salesService.listReserved("c", 10)).thenReturn(reserved);
+
+        assertThat(controller.pageSold(null, 50).block().getBody()).isSameAs(sold);
+        assertThat(controller.pageReserved("c", 10).block().getBody()).isSameAs(reserved);
+    }
+
     @Test
     void reserved_deveChamarServiceComCarIdEDepvolver200() {
         // arrange
@@ -91,7 +195,7 @@ class SalesControllerTest {
         when(salesService.reserved(55L)).thenReturn(expected);
 
         // act
-        ResponseEntity<PurchaseResponse> resp = controller.reserved(req);
+        ResponseEntity<PurchaseResponse> resp = controller.reserved(req, null).block();
 
         // assert
         verify(req, times(1)).carId();
@@ -103,32 +207,136 @@ class SalesControllerTest {
     }
 
     @Test
-    void webhook_deveChamarHandlePaymentWebhookEDevolver204() {
+    void reserved_comIdempotencyKey_deveRepassarChaveECarIdAoStore() {
+        PurchaseResponse stored = mock(PurchaseResponse.class);
+        when(idempotency.execute(eq("reserved"), eq("k-1"), eq("55"), eq(PurchaseResponse.class), any()))
+                .thenReturn(stored);
+
+        ResponseEntity<PurchaseResponse> resp = controller.reserved(new PurchaseRequest(55L), "k-1").block();
+
+        assertThat(resp.getBody()).isSameAs(stored);
+        verifyNoInteractions(salesService);
+    }
+
+    @Test
+    void reservedOrWait_deveUsarFilaDeEsperaEDevolver200() {
+        PurchaseResponse expected = mock(PurchaseResponse.class);
+        when(waitlist.reserveOrWait(55L)).thenReturn(Mono.just(expected));
+
+        ResponseEntity<PurchaseResponse> resp = controller.reservedOrWait(new PurchaseRequest(55L)).block();
+
+        assertThat(resp.getStatusCode().value()).isEqualTo(200);
+        assertThat(resp.getBody()).isSameAs(expected);
+        verifyNoInteractions(salesService);
+    }
+
+    @Test
+    void reservedBatch_deveRepassarPedidoEDevolver200() {
+        BatchPurchaseRequest req = new BatchPurchaseRequest(List.of(1L, 2L));
+        BatchPurchaseResponse expected = new BatchPurchaseResponse(null, List.of());
+        when(salesService.reservedBatch(req)).thenReturn(expected);
+
+        ResponseEntity<BatchPurchaseResponse> resp = controller.reservedBatch(req).block();
+
+        assertThat(resp.getStatusCode().value()).isEqualTo(200);
+        assertThat(resp.getBody()).isSameAs(expected);
+    }
+
+    @Test
+    void webhookBatch_deveAplicarNaHoraEDevolver200() {
+        BatchPaymentWebhookRequest req = new BatchPaymentWebhookRequest(List.of());
+        BatchPaymentWebhookResponse expected = new BatchPaymentWebhookResponse(List.of());
+        when(salesService.handlePaymentWebhookBatch(req)).thenReturn(expected);
+
+        ResponseEntity<BatchPaymentWebhookResponse> resp = controller.webhookBatch(req).block();
+
+        assertThat(resp.getStatusCode().value()).isEqualTo(200);
+        assertThat(resp.getBody()).isSameAs(expected);
+        verifyNoInteractions(inbox);
+    }
+
+    @Test
+    void webhook_deveGravarNaCaixaDeEntradaEDevolver202() {
         // arrange
         PaymentWebhookRequest req = mock(PaymentWebhookRequest.class);
 
         // act
-        ResponseEntity<Void> resp = controller.webhook(req);
+        ResponseEntity<Void> resp = controller.webhook(req, null).block();
 
         // assert
-        verify(salesService, times(1)).handlePaymentWebhook(req);
-        verifyNoMoreInteractions(salesService);
+        verify(inbox, times(1)).append(req);
+        verifyNoInteractions(salesService);
 
-        assertThat(resp.getStatusCode().value()).isEqualTo(204);
+        assertThat(resp.getStatusCode().value()).isEqualTo(202);
         assertThat(resp.getBody()).isNull();
     }
 
     @Test
-    void webhook_quandoServiceLancarExcecao_devePropagar() {
+    void webhook_quandoCaixaDeEntradaRecusar_devePropagar() {
         // arrange
         PaymentWebhookRequest req = mock(PaymentWebhookRequest.class);
-        RuntimeException boom = new RuntimeException("falhou");
-        doThrow(boom).when(salesService).handlePaymentWebhook(req);
+        IllegalArgumentException boom = new IllegalArgumentException("status inválido");
+        doThrow(boom).when(inbox).append(req);
 
         // act + assert
-        org.junit.jupiter.api.Assertions.assertThrows(RuntimeException.class, () -> controller.webhook(req));
+        org.junit.jupiter.api.Assertions.assertThrows(IllegalArgumentException.class, () -> controller.webhook(req, null).block());
 
-        verify(salesService, times(1)).handlePaymentWebhook(req);
-        verifyNoMoreInteractions(salesService);
+        verify(inbox, times(1)).append(req);
+        verifyNoInteractions(salesService);
+    }
+
+    @Test
+    void streamAvailable_devePercorrerPaginasDoService() {
+        Car c1 = new Car();
+        c1.setId(1L);
+        Car c2 = new Car();
+        c2.setId(2L);
+        when(salesService.listAvailable(null, CarPage.MAX_LIMIT)).thenReturn(new CarPage(List.of(c1), "n"));
+        when(salesService.listAvailable("n", CarPage.MAX_LIMIT)).thenReturn(new CarPage(List.of(c2), null));
+
+        assertThat(controller.streamAvailable().collectList().block()).containsExactly(c1, c2);
+    }
+
+    @Test
+    void streamSoldEStreamReserved_devemUsarPaginasDoService() {
+        Car c = new Car();
+        when(salesService.listSold(null, CarPage.MAX_LIMIT)).thenReturn(new CarPage(List.of(c), null));
+        when(salesService.listReserved(null, CarPage.MAX_LIMIT)).thenReturn(new CarPage(List.of(), null));
+
+        assertThat(controller.streamSold().collectList().block()).containsExactly(c);
+        assertThat(controller.streamReserved().collectList().block()).isEmpty();
+    }
+
+    @Test
+    void search_deveMontarFiltrosECursorERepassarAoService() {
+        CarPage expected = new CarPage(List.of(new Car()), "n");
+        CarSearchCursor after = new CarSearchCursor(CarSearch.Sort.YEAR_DESC, 2012, new BigDecimal("5000"), 9L);
+        CarSearch search = new CarSearch("Fiat", "Uno", 2010, 2015, new BigDecimal("1000"), null, "Branco",
+                CarSearch.Sort.YEAR_DESC, 30, after);
+        when(salesService.search(search)).thenReturn(expected);
+
+        ResponseEntity<CarPage> resp = controller.search("Fiat", "Uno", 2010, 2015, new BigDecimal("1000"), null,
+                "Branco", "-year", after.encode(), 30).block();
+
+        assertThat(resp.getStatusCode().value()).isEqualTo(200);
+        assertThat(resp.getBody()).isSameAs(expected);
+    }
+
+    @Test
+    void search_sortInvalido_lancaIllegalArgumentSemConsultar() {
+        org.junit.jupiter.api.Assertions.assertThrows(IllegalArgumentException.class,
+                () -> controller.search(null, null, null, null, null, null, null, "cor", null, 10));
+        verifyNoInteractions(salesService);
+    }
+
+    @Test
+    void facets_deveRetornar200ComContagensDoService() {
+        CatalogFacets facets = CatalogFacets.empty();
+        when(salesService.facets()).thenReturn(facets);
+
+        ResponseEntity<CatalogFacets> resp = controller.facets();
+
+        assertThat(resp.getStatusCode().value()).isEqualTo(200);
+        assertThat(resp.getBody()).isSameAs(facets);
     }
 }
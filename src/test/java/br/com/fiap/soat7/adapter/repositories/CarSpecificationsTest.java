@@ -0,0 +1,85 @@
+package br.com.fiap.soat7.adapter.repositories;
+
+import br.com.fiap.soat7.data.domain.Car;
+import br.com.fiap.soat7.data.domain.dto.CarPage;
+import br.com.fiap.soat7.data.domain.dto.CarSearch;
+import br.com.fiap.soat7.data.domain.dto.CarSearchCursor;
+import br.com.fiap.soat7.support.PostgresTestDatabase;
+import br.com.fiap.soat7.support.TestJwtKey;
+import br.com.fiap.soat7.usecase.services.SalesService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Paginação keyset da busca (CarSpecifications) num PostgreSQL real (ver PostgresTestDatabase).
+ */
+@EnabledIf("br.com.fiap.soat7.support.PostgresTestDatabase#available")
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class CarSpecificationsTest {
+
+    private static final long FIRST_CAR_ID = 900_000L;
+    private static final String BRAND = "KeysetTest";
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) throws Exception {
+        PostgresTestDatabase.register(registry);
+        TestJwtKey.register(registry);
+    }
+
+    @Autowired SalesService salesService;
+    @Autowired CarRepository carRepo;
+    @Autowired JdbcTemplate jdbc;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("delete from car_view where id >= ?", FIRST_CAR_ID);
+        // anos e preços repetidos: os desempates (price, id) decidem a fronteira das páginas
+        for (int i = 0; i < 23; i++) {
+            jdbc.update("""
+                    insert into car_view (id, brand, model, car_year, color, price, sold, updated_at)
+                    values (?, ?, 'M', ?, 'C', ?, ?, ?)
+                    """, FIRST_CAR_ID + i, BRAND, 2018 + i % 3, 1_000 + (i % 4) * 100, i == 7,
+                    Timestamp.from(Instant.now()));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(CarSearch.Sort.class)
+    void search_paginasEmSequencia_cobremOResultadoInteiroNaOrdemSemRepetir(CarSearch.Sort sort) {
+        List<Long> expected = carRepo.findBy(CarSpecifications.available(search(sort, 200, null)),
+                        q -> q.sortBy(CarSpecifications.sort(sort)).all())
+                .stream().map(Car::getId).toList();
+
+        List<Long> paged = new ArrayList<>();
+        String next = null;
+        int pages = 0;
+        do {
+            CarPage page = salesService.search(search(sort, 5, CarSearchCursor.decode(next)));
+            page.items().forEach(car -> paged.add(car.getId()));
+            next = page.next();
+            pages++;
+        } while (next != null);
+
+        assertThat(expected).hasSize(22).doesNotContain(FIRST_CAR_ID + 7);
+        assertThat(paged).containsExactlyElementsOf(expected);
+        assertThat(pages).isEqualTo(5);
+    }
+
+    private static CarSearch search(CarSearch.Sort sort, int limit, CarSearchCursor after) {
+        return new CarSearch(BRAND, null, null, null, null, null, null, sort, limit, after);
+    }
+}
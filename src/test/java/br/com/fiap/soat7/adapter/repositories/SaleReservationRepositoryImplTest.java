@@ -0,0 +1,212 @@
+package br.com.fiap.soat7.adapter.repositories;
+
+import br.com.fiap.soat7.support.PostgresTestDatabase;
+import br.com.fiap.soat7.support.TestJwtKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Executa o SQL de ReservationSql num PostgreSQL real (ver PostgresTestDatabase).
+ */
+@EnabledIf("br.com.fiap.soat7.support.PostgresTestDatabase#available")
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class SaleReservationRepositoryImplTest {
+
+    private static final long FIRST_CAR_ID = 800_000L;
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    private static final Instant UNTIL = NOW.plus(Duration.ofMinutes(15));
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) throws Exception {
+        PostgresTestDatabase.register(registry);
+        TestJwtKey.register(registry);
+    }
+
+    @Autowired SaleRepository repository;
+    @Autowired JdbcTemplate jdbc;
+
+    @BeforeEach
+    void clean() {
+        jdbc.update("delete from sales where car_id >= ?", FIRST_CAR_ID);
+        jdbc.update("delete from car_view where id >= ?", FIRST_CAR_ID);
+    }
+
+    // -----------------------------
+    // tryReserve
+    // -----------------------------
+
+    @Test
+    void tryReserve_quandoCarroLivre_criaVendaEMarcaVendido() {
+        long carId = car(0, false);
+
+        Optional<Long> saleId = repository.tryReserve(carId, "pc-free", UNTIL, NOW);
+
+        assertThat(saleId).isPresent();
+        assertThat(saleRow(carId)).containsEntry("id", saleId.get())
+                .containsEntry("status", "RESERVED")
+                .containsEntry("payment_code", "pc-free")
+                .containsEntry("version", 0L);
+        assertThat(saleRow(carId).get("locked_price")).isEqualTo(new BigDecimal("10000.00"));
+        assertThat(instant(saleRow(carId).get("reserved_until"))).isEqualTo(UNTIL);
+        assertThat(sold(carId)).isTrue();
+    }
+
+    @Test
+    void tryReserve_quandoReservaExpirada_retomaAVendaComNovoPaymentCode() {
+        long carId = car(0, true);
+        long existing = sale(carId, "RESERVED", NOW.minusSeconds(1), "pc-old", "12345678901");
+
+        Optional<Long> saleId = repository.tryReserve(carId, "pc-new", UNTIL, NOW);
+
+        assertThat(saleId).contains(existing);
+        Map<String, Object> row = saleRow(carId);
+        assertThat(row).containsEntry("status", "RESERVED")
+                .containsEntry("payment_code", "pc-new")
+                .containsEntry("buyer_cpf", null)
+                .containsEntry("version", 2L);
+        assertThat(instant(row.get("reserved_until"))).isEqualTo(UNTIL);
+        assertThat(sold(carId)).isTrue();
+    }
+
+    @Test
+    void tryReserve_quandoVendaCanceladaEOCarroLiberado_reservaEMarcaVendido() {
+        long carId = car(0, false);
+        long existing = sale(carId, "CANCELED", null, "pc-old", null);
+
+        Optional<Long> saleId = repository.tryReserve(carId, "pc-new", UNTIL, NOW);
+
+        assertThat(saleId).contains(existing);
+        assertThat(saleRow(carId)).containsEntry("status", "RESERVED").containsEntry("payment_code", "pc-new");
+        assertThat(sold(carId)).isTrue();
+    }
+
+    @Test
+    void tryReserve_quandoReservaValida_recusaSemAlterarNada() {
+        long carId = car(0, true);
+        sale(carId, "RESERVED", NOW.plusSeconds(60), "pc-old", null);
+
+        Optional<Long> saleId = repository.tryReserve(carId, "pc-new", UNTIL, NOW);
+
+        assertThat(saleId).isEmpty();
+        assertThat(saleRow(carId)).containsEntry("payment_code", "pc-old").containsEntry("version", 1L);
+    }
+
+    @Test
+    void tryReserve_quandoPago_recusaMesmoComReservaVencida() {
+        long carId = car(0, true);
+        sale(carId, "PAID", NOW.minusSeconds(60), "pc-paid", "12345678901");
+
+        Optional<Long> saleId = repository.tryReserve(carId, "pc-new", UNTIL, NOW);
+
+        assertThat(saleId).isEmpty();
+        assertThat(saleRow(carId)).containsEntry("status", "PAID").containsEntry("payment_code", "pc-paid");
+    }
+
+    @Test
+    void tryReserve_quandoCarroNaoExiste_naoCriaVenda() {
+        long carId = FIRST_CAR_ID + 99;
+
+        assertThat(repository.tryReserve(carId, "pc-missing", UNTIL, NOW)).isEmpty();
+        assertThat(jdbc.queryForObject("select count(*) from sales where car_id = ?", Integer.class, carId)).isZero();
+    }
+
+    // -----------------------------
+    // tryReserveAll
+    // -----------------------------
+
+    @Test
+    void tryReserveAll_quandoLoteMisto_reservaSoOsLivresComOPaymentCodeDaMesmaPosicao() {
+        long free = car(0, false);
+        long reserved = car(1, true);
+        long paid = car(2, true);
+        long expired = car(3, true);
+        long missing = FIRST_CAR_ID + 99;
+        long reservedSale = sale(reserved, "RESERVED", NOW.plusSeconds(60), "pc-reserved", null);
+        sale(paid, "PAID", null, "pc-paid", "12345678901");
+        long expiredSale = sale(expired, "RESERVED", NOW.minusSeconds(1), "pc-expired", null);
+
+        // fora de ordem: o mapeamento (car_id, id) e os paymentCodes não podem depender da posição no resultado
+        Map<Long, Long> result = repository.tryReserveAll(
+                List.of(expired, missing, paid, free, reserved),
+                List.of("pc-3", "pc-99", "pc-2", "pc-0", "pc-1"),
+                UNTIL, NOW);
+
+        assertThat(result).containsOnlyKeys(free, expired).containsEntry(expired, expiredSale);
+        assertThat(saleRow(free)).containsEntry("id", result.get(free))
+                .containsEntry("status", "RESERVED")
+                .containsEntry("payment_code", "pc-0");
+        assertThat(saleRow(free).get("locked_price")).isEqualTo(new BigDecimal("10000.00"));
+        assertThat(saleRow(expired)).containsEntry("payment_code", "pc-3").containsEntry("version", 2L);
+        assertThat(instant(saleRow(expired).get("reserved_until"))).isEqualTo(UNTIL);
+        assertThat(saleRow(reserved)).containsEntry("id", reservedSale).containsEntry("payment_code", "pc-reserved");
+        assertThat(saleRow(paid)).containsEntry("status", "PAID").containsEntry("payment_code", "pc-paid");
+        assertThat(jdbc.queryForObject("select count(*) from sales where car_id = ?", Integer.class, missing)).isZero();
+        assertThat(sold(free)).isTrue();
+        assertThat(sold(expired)).isTrue();
+    }
+
+    @Test
+    void tryReserveAll_quandoNenhumLivre_naoMarcaNenhumCarro() {
+        long released = car(0, false);
+        sale(released, "PAID", null, "pc-paid", null);
+
+        Map<Long, Long> result = repository.tryReserveAll(List.of(released), List.of("pc-0"), UNTIL, NOW);
+
+        assertThat(result).isEmpty();
+        assertThat(sold(released)).isFalse();
+    }
+
+    // -----------------------------
+    // apoio
+    // -----------------------------
+
+    private long car(int offset, boolean sold) {
+        long id = FIRST_CAR_ID + offset;
+        jdbc.update("""
+                insert into car_view (id, brand, model, car_year, color, price, sold, updated_at)
+                values (?, 'Test', 'M', 2020, 'C', ?, ?, ?)
+                """, id, 10_000 + offset * 100, sold, Timestamp.from(NOW));
+        return id;
+    }
+
+    private long sale(long carId, String status, Instant reservedUntil, String paymentCode, String buyerCpf) {
+        Long id = jdbc.queryForObject("select nextval('sales_seq')", Long.class);
+        jdbc.update("""
+                insert into sales (id, car_id, status, locked_price, reserved_until, payment_code, buyer_cpf, version)
+                values (?, ?, ?, 9000, ?, ?, ?, 1)
+                """, id, carId, status, reservedUntil == null ? null : Timestamp.from(reservedUntil), paymentCode, buyerCpf);
+        return id;
+    }
+
+    private Map<String, Object> saleRow(long carId) {
+        return jdbc.queryForMap("""
+                select id, status, locked_price, reserved_until, payment_code, buyer_cpf, version
+                from sales where car_id = ?
+                """, carId);
+    }
+
+    private boolean sold(long carId) {
+        return Boolean.TRUE.equals(jdbc.queryForObject("select sold from car_view where id = ?", Boolean.class, carId));
+    }
+
+    private static Instant instant(Object timestamp) {
+        return ((Timestamp) timestamp).toInstant();
+    }
+}
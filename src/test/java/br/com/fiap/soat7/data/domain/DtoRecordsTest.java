@@ -12,9 +12,11 @@ import org.junit.jupiter.api.Test;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class DtoRecordsTest {
 
@@ -150,4 +152,119 @@ class DtoRecordsTest {
         assertThat(dto.paymentCode()).isEqualTo("PAY-123");
         assertThat(dto.reservedUntil()).isEqualTo(reservedUntil);
     }
+
+    @Test
+    void carCursor_encodeDecode_deveSerSimetrico() {
+        CarCursor cursor = new CarCursor(new BigDecimal("95000.50"), 42L);
+
+        CarCursor decoded = CarCursor.decode(cursor.encode());
+
+        assertThat(decoded.price()).isEqualByComparingTo("95000.50");
+        assertThat(decoded.id()).isEqualTo(42L);
+    }
+
+    @Test
+    void carCursor_decode_quandoVazio_retornaNull_eQuandoInvalido_lancaIllegalArgument() {
+        assertThat(CarCursor.decode(null)).isNull();
+        assertThat(CarCursor.decode(" ")).isNull();
+        assertThrows(IllegalArgumentException.class,
+                () -> CarCursor.decode("###"));
+    }
+
+    @Test
+    void carPage_of_quandoBuscouLinhaExcedente_cortaEGeraNext() {
+        Car c1 = new Car(); c1.setId(1L); c1.setPrice(new BigDecimal("10"));
+        Car c2 = new Car(); c2.setId(2L); c2.setPrice(new BigDecimal("20"));
+        Car c3 = new Car(); c3.setId(3L); c3.setPrice(new BigDecimal("30"));
+
+        CarPage page = CarPage.of(List.of(c1, c2, c3), 2);
+
+        assertThat(page.items()).containsExactly(c1, c2);
+        CarCursor next = CarCursor.decode(page.next());
+        assertThat(next.id()).isEqualTo(2L);
+        assertThat(next.price()).isEqualByComparingTo("20");
+    }
+
+    @Test
+    void carPage_of_quandoUltimaPagina_nextNull() {
+        Car c1 = new Car(); c1.setId(1L); c1.setPrice(new BigDecimal("10"));
+
+        CarPage page = CarPage.of(List.of(c1), 2);
+
+        assertThat(page.items()).containsExactly(c1);
+        assertThat(page.next()).isNull();
+    }
+
+    @Test
+    void carPage_checkLimit_foraDoIntervalo_lancaIllegalArgument() {
+        assertThat(CarPage.checkLimit(1)).isEqualTo(1);
+        assertThrows(IllegalArgumentException.class, () -> CarPage.checkLimit(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> CarPage.checkLimit(CarPage.MAX_LIMIT + 1));
+    }
+
+    @Test
+    void carSearch_deveNormalizarFiltrosEmBrancoESortPadrao() {
+        CarSearch search = new CarSearch(" Toyota ", "  ", null, null, null, null, "", null, 10, null);
+
+        assertThat(search.brand()).isEqualTo("Toyota");
+        assertThat(search.model()).isNull();
+        assertThat(search.color()).isNull();
+        assertThat(search.sort()).isEqualTo(CarSearch.Sort.PRICE_ASC);
+    }
+
+    @Test
+    void carSearch_faixasInvertidasOuLimitInvalido_lancaIllegalArgument() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CarSearch(null, null, 2022, 2020, null, null, null, null, 10, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CarSearch(null, null, null, null, new BigDecimal("10"), new BigDecimal("5"), null, null, 10, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CarSearch(null, null, null, null, null, null, null, null, 0, null));
+    }
+
+    @Test
+    void carSearchCursor_encodeDecode_preservaOrdenacaoEChave() {
+        CarSearchCursor cursor = new CarSearchCursor(CarSearch.Sort.YEAR_DESC, 2020, new BigDecimal("95000.50"), 42L);
+
+        assertThat(CarSearchCursor.decode(cursor.encode())).isEqualTo(cursor);
+        assertThat(CarSearchCursor.decode(null)).isNull();
+        assertThrows(IllegalArgumentException.class, () -> CarSearchCursor.decode("!!"));
+        assertThrows(IllegalArgumentException.class, () -> CarSearchCursor.decode(new CarCursor(BigDecimal.ONE, 1L).encode()));
+    }
+
+    @Test
+    void carSearch_cursorDeOutraOrdenacao_lancaIllegalArgument() {
+        CarSearchCursor byPrice = new CarSearchCursor(CarSearch.Sort.PRICE_ASC, 2020, BigDecimal.TEN, 1L);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new CarSearch(null, null, null, null, null, null, null, CarSearch.Sort.YEAR_ASC, 10, byPrice));
+        assertThat(new CarSearch(null, null, null, null, null, null, null, null, 10, byPrice).after()).isSameAs(byPrice);
+    }
+
+    @Test
+    void carSearchSort_of_deveAceitarParametrosDaApi() {
+        assertThat(CarSearch.Sort.of(null)).isEqualTo(CarSearch.Sort.PRICE_ASC);
+        assertThat(CarSearch.Sort.of("-price")).isEqualTo(CarSearch.Sort.PRICE_DESC);
+        assertThat(CarSearch.Sort.of("year")).isEqualTo(CarSearch.Sort.YEAR_ASC);
+        assertThat(CarSearch.Sort.of("-year")).isEqualTo(CarSearch.Sort.YEAR_DESC);
+        assertThrows(IllegalArgumentException.class, () -> CarSearch.Sort.of("brand"));
+    }
+
+    @Test
+    void batchPurchaseRequest_sortedCarIds_deveRemoverRepetidosEOrdenar() {
+        assertThat(new BatchPurchaseRequest(List.of(30L, 10L, 30L, 20L)).sortedCarIds())
+                .containsExactly(10L, 20L, 30L);
+    }
+
+    @Test
+    void batchPurchaseRequest_sortedCarIds_quandoVazioNuloOuGrandeDemais_lancaIllegalArgument() {
+        assertThrows(IllegalArgumentException.class, () -> new BatchPurchaseRequest(null).sortedCarIds());
+        assertThrows(IllegalArgumentException.class, () -> new BatchPurchaseRequest(List.of()).sortedCarIds());
+        assertThrows(IllegalArgumentException.class,
+                () -> new BatchPurchaseRequest(java.util.Arrays.asList(1L, null)).sortedCarIds());
+
+        List<Long> tooMany = java.util.stream.LongStream.rangeClosed(1, BatchPurchaseRequest.MAX_CARS + 1).boxed().toList();
+        assertThrows(IllegalArgumentException.class, () -> new BatchPurchaseRequest(tooMany).sortedCarIds());
+    }
 }
@@ -6,6 +6,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
 
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -36,4 +37,12 @@ class ApiExceptionHandlerWithSalesControllerTest {
         assertNotNull(res.getBody());
         assertEquals("pagamento já processado", res.getBody().get("error"));
     }
+
+    @Test
+    void unavailable_shouldReturn503_whenJpaExecutorIsSaturated() {
+        ResponseEntity<Map<String, Object>> res = handler.unavailable(new RejectedExecutionException("cheio"));
+
+        assertEquals(503, res.getStatusCode().value());
+        assertNotNull(res.getBody().get("error"));
+    }
 }
@@ -1,9 +1,13 @@
 package br.com.fiap.soat7.infra.config.api;
 
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockitoAnnotations;
-import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -18,9 +22,30 @@ class CoreWebClientConfigTest {
     void shouldCreateWebClient() {
         CoreWebClientConfig config = new CoreWebClientConfig();
 
-        var client = config.coreWebClient("https://api.test.com");
+        var client = config.coreWebClient("https://api.test.com", Duration.ofSeconds(1), Duration.ofSeconds(2));
 
         assertNotNull(client);
     }
 
-}
\ No newline at end of file
+    @Test
+    void shouldCreateCircuitBreakerAndBulkheadWithMetrics() {
+        CoreWebClientConfig config = new CoreWebClientConfig();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        CircuitBreaker breaker = config.coreCircuitBreaker(registry, 50, 20, 10, Duration.ofSeconds(30));
+        Bulkhead bulkhead = config.coreBulkhead(registry, 16);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(16, bulkhead.getMetrics().getAvailableConcurrentCalls());
+        assertNotNull(registry.find("resilience4j.circuitbreaker.state").tag("name", "core").gauge());
+        assertNotNull(registry.find("resilience4j.bulkhead.max.allowed.concurrent.calls").tag("name", "core").gauge());
+    }
+
+    @Test
+    void shouldRejectRetryWithoutAttempts() {
+        CoreWebClientConfig config = new CoreWebClientConfig();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> config.coreRetry(new SimpleMeterRegistry(), 0, Duration.ofMillis(10), Duration.ofMillis(50)));
+    }
+}
@@ -0,0 +1,74 @@
+package br.com.fiap.soat7.infra.config.executor;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JpaSchedulerConfigTest {
+
+    private final JpaSchedulerConfig config = new JpaSchedulerConfig();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private ThreadPoolExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) executor.shutdownNow();
+    }
+
+    @Test
+    void jpaScheduler_executaForaDaThreadChamadoraEMedeEspera() {
+        executor = config.jpaExecutor(2, 10, registry);
+        Scheduler scheduler = config.jpaScheduler(executor);
+
+        String thread = Mono.fromCallable(() -> Thread.currentThread().getName())
+                .subscribeOn(scheduler)
+                .block();
+
+        assertTrue(thread.startsWith("jpa-"));
+        assertEquals(1, registry.get("carstore.jpa.executor.wait").timer().count());
+    }
+
+    @Test
+    void jpaExecutor_quandoFilaCheia_rejeitaEContaRejeicao() throws Exception {
+        executor = config.jpaExecutor(1, 1, registry);
+        Scheduler scheduler = config.jpaScheduler(executor);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        Mono.fromRunnable(() -> {
+            started.countDown();
+            awaitQuietly(release);
+        }).subscribeOn(scheduler).subscribe();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Mono.fromRunnable(() -> {}).subscribeOn(scheduler).subscribe(); // ocupa a única vaga da fila
+
+        assertEquals(1.0, registry.get("carstore.jpa.executor.queued").gauge().value());
+        assertThrows(RejectedExecutionException.class,
+                () -> Mono.just(1).subscribeOn(scheduler).block());
+        assertEquals(1.0, registry.get("carstore.jpa.executor.rejected").counter().count());
+
+        release.countDown();
+    }
+
+    @Test
+    void jpaExecutor_configuracaoInvalida_lancaIllegalArgument() {
+        assertThrows(IllegalArgumentException.class, () -> config.jpaExecutor(0, 10, registry));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package br.com.fiap.soat7.load;
+
+import br.com.fiap.soat7.usecase.reservation.PaymentCodeGenerator;
+import br.com.fiap.soat7.usecase.reservation.TimeOrderedPaymentCodeGenerator;
+import br.com.fiap.soat7.usecase.reservation.UuidPaymentCodeGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Custo do paymentCode por formato (UUID v4 x ULID), com as threads disputando ao mesmo tempo.
+ * <p>
+ * Desligado no build normal. Para rodar:
+ * <pre>
+ * ./mvnw test -Dtest=PaymentCodeBenchmarkTest -Dcarstore.load=true -Dcarstore.load.threads=16 -Dcarstore.load.duration=5s
+ * </pre>
+ * Relata ns por código (por thread), códigos/s somando as threads e a localidade no índice:
+ * a fração dos códigos, na ordem de geração, maiores que todos os anteriores (INSERT na
+ * última folha da B-tree de sales.payment_code).
+ */
+@EnabledIfSystemProperty(named = "carstore.load", matches = "true")
+class PaymentCodeBenchmarkTest {
+
+    private static final int LOCALITY_SAMPLE = 100_000;
+
+    @Test
+    void uuid_x_ulid() throws Exception {
+        int threads = Integer.getInteger("carstore.load.threads", Runtime.getRuntime().availableProcessors());
+        Duration duration = DurationStyle.detectAndParse(System.getProperty("carstore.load.duration", "5s"));
+        Duration warmup = DurationStyle.detectAndParse(System.getProperty("carstore.load.warmup", "2s"));
+
+        StringBuilder out = new StringBuilder("\n=== paymentCode ===\n");
+        out.append(String.format(Locale.ROOT, "threads=%d duração=%ss%n", threads, duration.toSeconds()));
+        for (PaymentCodeGenerator generator : List.of(new UuidPaymentCodeGenerator(), new TimeOrderedPaymentCodeGenerator())) {
+            measure(generator, threads, warmup);
+            long ops = measure(generator, threads, duration);
+            double perSecond = ops / (duration.toNanos() / 1e9);
+            out.append(String.format(Locale.ROOT, "%-32s %8.1f ns/código por thread %,14.0f códigos/s tamanho=%d sequencial=%.1f%%%n",
+                    generator.getClass().getSimpleName(), threads * 1e9 / perSecond, perSecond,
+                    generator.next().length(), 100 * appendRatio(generator)));
+        }
+        System.out.println(out);
+
+        assertThat(appendRatio(new TimeOrderedPaymentCodeGenerator())).isEqualTo(1.0);
+    }
+
+    private static long measure(PaymentCodeGenerator generator, int threads, Duration duration) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Long>> counts = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                counts.add(pool.submit(() -> {
+                    start.await();
+                    long deadline = System.nanoTime() + duration.toNanos();
+                    long n = 0;
+                    int sink = 0;
+                    while (System.nanoTime() < deadline) {
+                        for (int i = 0; i < 64; i++) sink += generator.next().length();
+                        n += 64;
+                    }
+                    return sink == 0 ? -1 : n;
+                }));
+            }
+            start.countDown();
+            long total = 0;
+            for (Future<Long> c : counts) total += c.get();
+            return total;
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    private static double appendRatio(PaymentCodeGenerator generator) {
+        String max = generator.next();
+        int appended = 0;
+        for (int i = 0; i < LOCALITY_SAMPLE; i++) {
+            String code = generator.next();
+            if (code.compareTo(max) > 0) {
+                appended++;
+                max = code;
+            }
+        }
+        return (double) appended / LOCALITY_SAMPLE;
+    }
+}
@@ -0,0 +1,361 @@
+package br.com.fiap.soat7.load;
+
+import br.com.fiap.soat7.adapter.controller.SalesController;
+import br.com.fiap.soat7.data.domain.dto.PaymentWebhookRequest;
+import br.com.fiap.soat7.data.domain.dto.PurchaseRequest;
+import br.com.fiap.soat7.data.domain.dto.PurchaseResponse;
+import br.com.fiap.soat7.infra.config.api.ApiExceptionHandler;
+import br.com.fiap.soat7.support.PostgresTestDatabase;
+import br.com.fiap.soat7.support.TestJwtKey;
+import br.com.fiap.soat7.usecase.catalog.CatalogChangedEvent;
+import br.com.fiap.soat7.usecase.catalog.CatalogSnapshotStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Carga concorrente no caminho de reserva: N compradores disputando M carros, sobre PostgreSQL
+ * (ver PostgresTestDatabase), chamando o SalesController via WebTestClient (com o ApiExceptionHandler, sem JWT).
+ * <p>
+ * Desligado no build normal. Para rodar:
+ * <pre>
+ * ./mvnw test -Dtest=ReservationLoadHarnessTest -Dcarstore.load=true \
+ *     -Dcarstore.load.threads=64 -Dcarstore.load.cars=10 -Dcarstore.load.skew=1.2 -Dcarstore.load.duration=20s
+ * </pre>
+ * Cada comprador escolhe um carro (Zipf com expoente skew; 0 = uniforme; cars=1 = todos no mesmo carro),
+ * tenta POST /reserved e, quando consegue, cancela pelo webhook com probabilidade cancel-ratio
+ * (o carro volta a ser disputado). Relata vazão, p50/p99/p999, proporção de 409/503, espera no
+ * executor JPA e no pool de conexões, e falha se alguma invariante for violada:
+ * dois compradores com o mesmo carro reservado ao mesmo tempo, ou sales/car_view divergentes no fim.
+ */
+@EnabledIfSystemProperty(named = "carstore.load", matches = "true")
+@EnabledIf("br.com.fiap.soat7.support.PostgresTestDatabase#available")
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class ReservationLoadHarnessTest {
+
+    private static final long FIRST_CAR_ID = 900_000L;
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) throws Exception {
+        PostgresTestDatabase.register(registry);
+        TestJwtKey.register(registry);
+    }
+
+    @Autowired SalesController controller;
+    @Autowired JdbcTemplate jdbc;
+    @Autowired CatalogSnapshotStore catalog;
+    @Autowired MeterRegistry meters;
+    @Autowired ApplicationEventPublisher events;
+
+    @Test
+    void reservas_concorrentes() throws Exception {
+        Config cfg = Config.fromSystemProperties();
+        seedCars(cfg.cars);
+        catalog.reload();
+
+        WebTestClient client = WebTestClient.bindToController(controller)
+                .controllerAdvice(new ApiExceptionHandler())
+                .configureClient()
+                .responseTimeout(Duration.ofSeconds(30))
+                .build();
+        Zipf picker = new Zipf(cfg.cars, cfg.skew);
+
+        run(client, picker, cfg, cfg.warmup, new Stats(cfg.cars));
+
+        MeterSnapshot before = MeterSnapshot.of(meters);
+        Stats stats = new Stats(cfg.cars);
+        long started = System.nanoTime();
+        run(client, picker, cfg, cfg.duration, stats);
+        double seconds = (System.nanoTime() - started) / 1e9;
+        MeterSnapshot after = MeterSnapshot.of(meters);
+
+        List<String> violations = new ArrayList<>(stats.violations);
+        violations.addAll(checkDatabase());
+        report(cfg, stats, seconds, before, after, violations);
+
+        assertThat(violations).isEmpty();
+        assertThat(stats.successes.get()).isPositive();
+    }
+
+    // -----------------------------
+    // carga
+    // -----------------------------
+
+    private void run(WebTestClient client, Zipf picker, Config cfg, Duration duration, Stats stats)
+            throws InterruptedException {
+        ExecutorService buyers = Executors.newFixedThreadPool(cfg.threads);
+        CountDownLatch done = new CountDownLatch(cfg.threads);
+        long deadline = System.nanoTime() + duration.toNanos();
+        for (int t = 0; t < cfg.threads; t++) {
+            buyers.execute(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        buy(client, picker, cfg, stats);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        buyers.shutdown();
+        buyers.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private void buy(WebTestClient client, Zipf picker, Config cfg, Stats stats) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int car = picker.next(random);
+        long carId = FIRST_CAR_ID + car;
+
+        long t0 = System.nanoTime();
+        EntityExchangeResult<PurchaseResponse> result = client.post().uri("/api/1/sales/reserved")
+                .bodyValue(new PurchaseRequest(carId))
+                .exchange()
+                .expectBody(PurchaseResponse.class)
+                .returnResult();
+        stats.latencies.get().add(System.nanoTime() - t0);
+
+        int status = result.getStatus().value();
+        if (status != 200) {
+            (status == 409 ? stats.conflicts : status == 503 ? stats.rejected : stats.errors).incrementAndGet();
+            return;
+        }
+        stats.successes.incrementAndGet();
+        if (stats.holders.incrementAndGet(car) != 1) {
+            stats.violations.add("carId=" + carId + " reservado para dois compradores ao mesmo tempo");
+        }
+
+        if (random.nextDouble() < cfg.cancelRatio) {
+            // libera antes de cancelar: ninguém pode reservar de novo antes do commit do webhook
+            stats.holders.decrementAndGet(car);
+            client.post().uri("/api/1/sales/payments/webhook")
+                    .bodyValue(new PaymentWebhookRequest(result.getResponseBody().paymentCode(), "CANCELED", null, null))
+                    .exchange()
+                    .expectStatus().isNoContent();
+        } else {
+            // fica com o carro até vencer: força a reserva a expirar para a próxima rodada
+            stats.holders.decrementAndGet(car);
+            jdbc.update("update sales set reserved_until = ? where car_id = ?",
+                    Timestamp.from(Instant.now().minusSeconds(1)), carId);
+            // como o ReservationSweeper faria: índice e porta locais deixam de considerar a reserva
+            events.publishEvent(CatalogChangedEvent.of(carId));
+        }
+    }
+
+    // -----------------------------
+    // dados e invariantes
+    // -----------------------------
+
+    private void seedCars(int cars) {
+        jdbc.update("delete from sales where car_id >= ?", FIRST_CAR_ID);
+        jdbc.update("delete from car_view where id >= ?", FIRST_CAR_ID);
+        List<Object[]> rows = new ArrayList<>(cars);
+        for (int i = 0; i < cars; i++) {
+            rows.add(new Object[]{FIRST_CAR_ID + i, "Load", "M" + (i % 7), 2015 + (i % 10), "C" + (i % 5),
+                    10_000 + i * 100, Timestamp.from(Instant.now())});
+        }
+        jdbc.batchUpdate("""
+                insert into car_view (id, brand, model, car_year, color, price, sold, updated_at)
+                values (?, ?, ?, ?, ?, ?, false, ?)
+                """, rows);
+    }
+
+    private List<String> checkDatabase() {
+        List<String> violations = new ArrayList<>();
+        Integer reservedNotSold = jdbc.queryForObject("""
+                select count(*) from sales s join car_view c on c.id = s.car_id
+                where c.id >= ? and s.status = 'RESERVED' and c.sold = false
+                """, Integer.class, FIRST_CAR_ID);
+        Integer releasedButSold = jdbc.queryForObject("""
+                select count(*) from sales s join car_view c on c.id = s.car_id
+                where c.id >= ? and s.status in ('AVAILABLE', 'CANCELED') and c.sold = true
+                """, Integer.class, FIRST_CAR_ID);
+        Integer duplicated = jdbc.queryForObject("""
+                select count(*) from (select car_id from sales where car_id >= ? group by car_id having count(*) > 1) d
+                """, Integer.class, FIRST_CAR_ID);
+        if (reservedNotSold > 0) violations.add(reservedNotSold + " venda(s) RESERVED com car_view.sold = false");
+        if (releasedButSold > 0) violations.add(releasedButSold + " venda(s) liberadas com car_view.sold = true");
+        if (duplicated > 0) violations.add(duplicated + " carro(s) com mais de uma linha em sales");
+        return violations;
+    }
+
+    // -----------------------------
+    // relatório
+    // -----------------------------
+
+    private static void report(Config cfg, Stats stats, double seconds, MeterSnapshot before, MeterSnapshot after,
+                               List<String> violations) {
+        long[] latencies = stats.allLatencies();
+        long total = latencies.length;
+        StringBuilder out = new StringBuilder("\n=== carga de reservas ===\n");
+        out.append(String.format(Locale.ROOT, "threads=%d cars=%d skew=%.2f cancel-ratio=%.2f duração=%.1fs%n",
+                cfg.threads, cfg.cars, cfg.skew, cfg.cancelRatio, seconds));
+        out.append(String.format(Locale.ROOT, "requisições=%d vazão=%.0f req/s reservas=%d (%.0f/s)%n",
+                total, total / seconds, stats.successes.get(), stats.successes.get() / seconds));
+        out.append(String.format(Locale.ROOT, "latência p50=%s p99=%s p999=%s max=%s%n",
+                millis(percentile(latencies, 0.50)), millis(percentile(latencies, 0.99)),
+                millis(percentile(latencies, 0.999)), millis(total == 0 ? 0 : latencies[latencies.length - 1])));
+        out.append(String.format(Locale.ROOT, "409=%.1f%% 503=%.1f%% outros erros=%d%n",
+                ratio(stats.conflicts.get(), total), ratio(stats.rejected.get(), total), stats.errors.get()));
+        out.append(String.format(Locale.ROOT, "espera executor JPA: média=%s max=%s | espera por conexão: média=%s max=%s%n",
+                millis(after.executorWait.meanSince(before.executorWait)), millis(after.executorWait.maxNanos),
+                millis(after.connectionWait.meanSince(before.connectionWait)), millis(after.connectionWait.maxNanos)));
+        out.append("invariantes: ").append(violations.isEmpty() ? "ok" : String.join("; ", violations)).append('\n');
+        System.out.println(out);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2fms", nanos / 1e6);
+    }
+
+    private static double ratio(long part, long total) {
+        return total == 0 ? 0 : 100.0 * part / total;
+    }
+
+    // -----------------------------
+    // apoio
+    // -----------------------------
+
+    private record Config(int threads, int cars, double skew, double cancelRatio, Duration duration, Duration warmup) {
+
+        static Config fromSystemProperties() {
+            Config cfg = new Config(
+                    Integer.getInteger("carstore.load.threads", 64),
+                    Integer.getInteger("carstore.load.cars", 10),
+                    Double.parseDouble(System.getProperty("carstore.load.skew", "1.2")),
+                    Double.parseDouble(System.getProperty("carstore.load.cancel-ratio", "0.9")),
+                    DurationStyle.detectAndParse(System.getProperty("carstore.load.duration", "10s")),
+                    DurationStyle.detectAndParse(System.getProperty("carstore.load.warmup", "2s")));
+            if (cfg.threads < 1 || cfg.cars < 1) {
+                throw new IllegalArgumentException("carstore.load.threads e carstore.load.cars devem ser >= 1");
+            }
+            return cfg;
+        }
+    }
+
+    private static final class Stats {
+        final AtomicLong successes = new AtomicLong();
+        final AtomicLong conflicts = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicIntegerArray holders;
+        final List<String> violations = Collections.synchronizedList(new ArrayList<>());
+
+        private final List<Latencies> all = Collections.synchronizedList(new ArrayList<>());
+        final ThreadLocal<Latencies> latencies = ThreadLocal.withInitial(() -> {
+            Latencies l = new Latencies();
+            all.add(l);
+            return l;
+        });
+
+        Stats(int cars) {
+            holders = new AtomicIntegerArray(cars);
+        }
+
+        long[] allLatencies() {
+            synchronized (all) {
+                long[] merged = new long[all.stream().mapToInt(l -> l.size).sum()];
+                int offset = 0;
+                for (Latencies l : all) {
+                    System.arraycopy(l.values, 0, merged, offset, l.size);
+                    offset += l.size;
+                }
+                Arrays.sort(merged);
+                return merged;
+            }
+        }
+    }
+
+    /**
+     * Latências de uma thread (sem boxing nem sincronização no caminho medido)
+     */
+    private static final class Latencies {
+        long[] values = new long[1 << 14];
+        int size;
+
+        void add(long nanos) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = nanos;
+        }
+    }
+
+    /**
+     * Zipf sobre [0, n): o carro 0 é o mais disputado; expoente 0 = uniforme
+     */
+    private static final class Zipf {
+        private final double[] cumulative;
+
+        Zipf(int n, double exponent) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1.0 / Math.pow(i + 1, exponent);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < n; i++) cumulative[i] /= sum;
+        }
+
+        int next(ThreadLocalRandom random) {
+            int i = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(i >= 0 ? i : -i - 1, cumulative.length - 1);
+        }
+    }
+
+    private record TimerReading(long count, double totalNanos, long maxNanos) {
+
+        static TimerReading of(MeterRegistry meters, String name) {
+            Timer timer = meters.find(name).timer();
+            if (timer == null) return new TimerReading(0, 0, 0);
+            return new TimerReading(timer.count(), timer.totalTime(TimeUnit.NANOSECONDS),
+                    (long) timer.max(TimeUnit.NANOSECONDS));
+        }
+
+        long meanSince(TimerReading before) {
+            long n = count - before.count;
+            return n == 0 ? 0 : (long) ((totalNanos - before.totalNanos) / n);
+        }
+    }
+
+    private record MeterSnapshot(TimerReading executorWait, TimerReading connectionWait) {
+
+        static MeterSnapshot of(MeterRegistry meters) {
+            return new MeterSnapshot(TimerReading.of(meters, "carstore.jpa.executor.wait"),
+                    TimerReading.of(meters, "hikaricp.connections.acquire"));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package br.com.fiap.soat7.support;
+
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+/**
+ * PostgreSQL real para os testes que executam SQL específico do banco (a reserva usa
+ * INSERT ... ON CONFLICT DO UPDATE, que o H2 não tem).
+ * <p>
+ * Com -Dcarstore.it.postgres.url=jdbc:postgresql://host:porta/banco usa esse banco (descartável:
+ * o Flyway migra e os testes apagam as próprias linhas); senão sobe um container com a mesma imagem
+ * do docker-compose. Sem nenhum dos dois, os testes que dependem daqui ficam desligados, a não ser
+ * com -Dcarstore.it.required=true (CI): aí falham, em vez de passar sem ter rodado.
+ */
+public final class PostgresTestDatabase {
+
+    public static final String URL_PROPERTY = "carstore.it.postgres.url";
+    public static final String REQUIRED_PROPERTY = "carstore.it.required";
+
+    private static final String IMAGE = "postgres:12-alpine";
+
+    private static PostgreSQLContainer container;
+
+    private PostgresTestDatabase() {
+    }
+
+    /**
+     * Condição para @EnabledIf: banco informado, Docker disponível ou testes obrigatórios
+     */
+    public static boolean available() {
+        if (System.getProperty(URL_PROPERTY) != null || Boolean.getBoolean(REQUIRED_PROPERTY)) return true;
+        try {
+            return DockerClientFactory.instance().isDockerAvailable();
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Troca o datasource H2 dos testes pelo PostgreSQL, com o schema das migrations do Flyway
+     */
+    public static void register(DynamicPropertyRegistry registry) {
+        String url = System.getProperty(URL_PROPERTY);
+        if (url != null) {
+            registry.add("spring.datasource.url", () -> url);
+            registry.add("spring.datasource.username", () -> System.getProperty("carstore.it.postgres.username", "postgres"));
+            registry.add("spring.datasource.password", () -> System.getProperty("carstore.it.postgres.password", ""));
+        } else {
+            PostgreSQLContainer db = start();
+            registry.add("spring.datasource.url", db::getJdbcUrl);
+            registry.add("spring.datasource.username", db::getUsername);
+            registry.add("spring.datasource.password", db::getPassword);
+        }
+        registry.add("spring.datasource.driverClassName", () -> "org.postgresql.Driver");
+        registry.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.flyway.enabled", () -> "true");
+    }
+
+    private static synchronized PostgreSQLContainer start() {
+        if (container == null) {
+            // um container por JVM, compartilhado pelas classes de teste (o Ryuk remove no fim)
+            container = new PostgreSQLContainer(IMAGE);
+            container.start();
+        }
+        return container;
+    }
+}
@@ -0,0 +1,24 @@
+package br.com.fiap.soat7.support;
+
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Chave pública RSA descartável em JWT_PUBLIC_KEY, para subir o contexto inteiro nos testes.
+ */
+public final class TestJwtKey {
+
+    private TestJwtKey() {
+    }
+
+    public static void register(DynamicPropertyRegistry registry) throws NoSuchAlgorithmException {
+        var generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        String b64 = Base64.getEncoder().encodeToString(generator.generateKeyPair().getPublic().getEncoded());
+        String pem = "-----BEGIN PUBLIC KEY-----\n" + b64 + "\n-----END PUBLIC KEY-----\n";
+        registry.add("JWT_PUBLIC_KEY", () -> Base64.getEncoder().encodeToString(pem.getBytes()));
+    }
+}
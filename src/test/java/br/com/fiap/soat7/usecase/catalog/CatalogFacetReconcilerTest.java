@@ -0,0 +1,56 @@
+package br.com.fiap.soat7.usecase.catalog;
+
+import br.com.fiap.soat7.adapter.repositories.CarRepository;
+import br.com.fiap.soat7.data.domain.Car;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogFacetReconcilerTest {
+
+    @Mock CarRepository carRepo;
+    @Mock CatalogSnapshotStore store;
+
+    @InjectMocks CatalogFacetReconciler reconciler;
+
+    private void stubDatabase(long fiat) {
+        when(carRepo.countAvailableByBrand()).thenReturn(List.<Object[]>of(new Object[]{"Fiat", fiat}));
+        when(carRepo.countAvailableByYear()).thenReturn(List.<Object[]>of(new Object[]{2020, fiat}));
+        when(carRepo.countAvailableByColor()).thenReturn(List.<Object[]>of(new Object[]{"Branco", fiat}));
+        when(carRepo.countAvailableByPriceBucket()).thenReturn(List.<Object[]>of(new Object[]{new BigDecimal("0"), fiat}));
+    }
+
+    private void stubMemory() {
+        Car car = new Car("Fiat", "Uno", 2020, "Branco", new BigDecimal("10000"));
+        car.setId(1L);
+        when(store.current()).thenReturn(CatalogSnapshot.empty().replace(List.of(car), List.of(), List.of()));
+    }
+
+    @Test
+    void reconcile_quandoContagensBatem_naoRecarrega() {
+        stubMemory();
+        stubDatabase(1L);
+
+        reconciler.reconcile();
+
+        verify(store, never()).reload();
+    }
+
+    @Test
+    void reconcile_quandoDivergem_recarregaCatalogo() {
+        stubMemory();
+        stubDatabase(2L);
+
+        reconciler.reconcile();
+
+        verify(store).reload();
+    }
+}
@@ -0,0 +1,54 @@
+package br.com.fiap.soat7.usecase.catalog;
+
+import br.com.fiap.soat7.data.domain.Car;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogFacetsTest {
+
+    private static Car car(long id, String brand, int year, String color, String price) {
+        Car c = new Car(brand, "M", year, color, new BigDecimal(price));
+        c.setId(id);
+        return c;
+    }
+
+    @Test
+    void of_deveContarPorMarcaAnoCorEFaixaDePreco() {
+        CatalogFacets facets = CatalogFacets.of(List.of(
+                car(1, "Fiat", 2020, "Branco", "24999.99"),
+                car(2, "Fiat", 2021, "Preto", "25000.00"),
+                car(3, "Ford", 2020, "Branco", "80000.00")));
+
+        assertThat(facets.total()).isEqualTo(3);
+        assertThat(facets.brand()).containsEntry("Fiat", 2L).containsEntry("Ford", 1L);
+        assertThat(facets.year()).containsEntry(2020, 2L).containsEntry(2021, 1L);
+        assertThat(facets.color()).containsEntry("Branco", 2L).containsEntry("Preto", 1L);
+        assertThat(facets.price()).containsEntry(0L, 1L).containsEntry(25000L, 1L).containsEntry(75000L, 1L);
+    }
+
+    @Test
+    void update_deveAjustarApenasOsCarrosAlteradosERemoverChavesZeradas() {
+        Car ford = car(3, "Ford", 2020, "Branco", "80000.00");
+        CatalogFacets facets = CatalogFacets.of(List.of(car(1, "Fiat", 2020, "Branco", "10000"), ford));
+
+        CatalogFacets next = facets.update(List.of(ford), List.of(car(4, "VW", 2019, "Azul", "30000")));
+
+        assertThat(next.total()).isEqualTo(2);
+        assertThat(next.brand()).containsOnlyKeys("Fiat", "VW");
+        assertThat(next.year()).containsEntry(2020, 1L).containsEntry(2019, 1L);
+        assertThat(next.price()).containsOnlyKeys(0L, 25000L);
+        // a instância anterior não muda
+        assertThat(facets.brand()).containsKey("Ford");
+    }
+
+    @Test
+    void update_semMudancas_devolveAMesmaInstancia() {
+        CatalogFacets facets = CatalogFacets.of(List.of(car(1, "Fiat", 2020, "Branco", "10000")));
+
+        assertThat(facets.update(List.of(), List.of())).isSameAs(facets);
+    }
+}
@@ -0,0 +1,107 @@
+package br.com.fiap.soat7.usecase.catalog;
+
+import br.com.fiap.soat7.adapter.repositories.CarRepository;
+import br.com.fiap.soat7.data.domain.Car;
+import br.com.fiap.soat7.usecase.reservation.ReservationStateIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogSnapshotStoreTest {
+
+    @Mock CarRepository carRepo;
+    @Mock ReservationStateIndex states;
+
+    @InjectMocks CatalogSnapshotStore store;
+
+    private static Car car(long id, String price, boolean sold) {
+        Car c = new Car();
+        c.setId(id);
+        c.setPrice(new BigDecimal(price));
+        c.setSold(sold);
+        return c;
+    }
+
+    @Test
+    void reload_deveCarregarAsTresListagensDoBanco() {
+        Car a = car(1, "10", false);
+        Car s = car(2, "20", true);
+        Car r = car(3, "30", true);
+        when(carRepo.findBySoldIsFalseOrderByPriceAscIdAsc()).thenReturn(List.of(a));
+        when(carRepo.findBySoldIsTrueOrderByPriceAscIdAsc()).thenReturn(List.of(s, r));
+        when(states.isReserved(2L)).thenReturn(false);
+        when(states.isReserved(3L)).thenReturn(true);
+
+        store.afterSingletonsInstantiated();
+
+        var order = inOrder(states, carRepo);
+        order.verify(states).reload();
+        order.verify(carRepo).findBySoldIsTrueOrderByPriceAscIdAsc();
+
+        assertThat(store.cars(CatalogListing.AVAILABLE)).containsExactly(a);
+        assertThat(store.cars(CatalogListing.SOLD)).containsExactly(s);
+        assertThat(store.cars(CatalogListing.RESERVED)).containsExactly(r);
+        assertThat(store.current().version()).isEqualTo(1L);
+    }
+
+    @Test
+    void onCatalogChanged_deveReclassificarApenasOsCarrosAlterados() {
+        Car reserved = car(5, "50", true);
+        when(states.isReserved(5L)).thenReturn(true);
+        when(carRepo.findAllById(Set.of(5L))).thenReturn(List.of(reserved));
+
+        store.onCatalogChanged(CatalogChangedEvent.of(5L));
+
+        assertThat(store.cars(CatalogListing.RESERVED)).containsExactly(reserved);
+        assertThat(store.cars(CatalogListing.AVAILABLE)).isEmpty();
+        verify(carRepo, never()).findBySoldIsFalseOrderByPriceAscIdAsc();
+    }
+
+    @Test
+    void onCatalogChanged_quandoBancoFalha_naoPropagaEMantemFoto() {
+        CatalogSnapshot before = store.current();
+        when(carRepo.findAllById(Set.of(1L))).thenThrow(new RuntimeException("db down"));
+
+        store.onCatalogChanged(CatalogChangedEvent.of(1L));
+
+        assertThat(store.current()).isSameAs(before);
+    }
+
+    @Test
+    void listingOf_deveClassificarPorSoldEReserva() {
+        assertThat(CatalogSnapshotStore.listingOf(car(1, "1", false), false)).isEqualTo(CatalogListing.AVAILABLE);
+        assertThat(CatalogSnapshotStore.listingOf(car(1, "1", true), true)).isEqualTo(CatalogListing.RESERVED);
+        assertThat(CatalogSnapshotStore.listingOf(car(1, "1", true), false)).isEqualTo(CatalogListing.SOLD);
+    }
+
+    @Test
+    void view_etagMudaSoComAListagemAlterada() {
+        Car a = car(1, "10", false);
+        when(carRepo.findBySoldIsFalseOrderByPriceAscIdAsc()).thenReturn(List.of(a));
+        when(carRepo.findBySoldIsTrueOrderByPriceAscIdAsc()).thenReturn(List.of());
+        store.reload();
+        CatalogView available = store.view(CatalogListing.AVAILABLE);
+        CatalogView sold = store.view(CatalogListing.SOLD);
+
+        store.reload(); // recarga sem mudança não invalida caches dos clientes
+        assertThat(store.view(CatalogListing.AVAILABLE).etag()).isEqualTo(available.etag());
+
+        when(carRepo.findBySoldIsFalseOrderByPriceAscIdAsc()).thenReturn(List.of(a, car(2, "20", false)));
+        store.reload();
+
+        assertThat(store.view(CatalogListing.AVAILABLE).etag()).isNotEqualTo(available.etag());
+        assertThat(store.view(CatalogListing.AVAILABLE).cars()).hasSize(2);
+        assertThat(store.view(CatalogListing.SOLD).etag()).isEqualTo(sold.etag());
+        assertThat(available.etag()).startsWith("\"").endsWith("\"");
+    }
+}
@@ -0,0 +1,105 @@
+package br.com.fiap.soat7.usecase.catalog;
+
+import br.com.fiap.soat7.data.domain.Car;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CatalogSnapshotTest {
+
+    private static Car car(long id, String price, boolean sold) {
+        Car c = new Car();
+        c.setId(id);
+        c.setPrice(new BigDecimal(price));
+        c.setSold(sold);
+        return c;
+    }
+
+    @Test
+    void replace_deveIncrementarVersaoEExporListas() {
+        Car a = car(1, "10", false);
+        Car s = car(2, "20", true);
+
+        CatalogSnapshot snap = CatalogSnapshot.empty().replace(List.of(a), List.of(s), List.of());
+
+        assertThat(snap.version()).isEqualTo(1L);
+        assertThat(snap.cars(CatalogListing.AVAILABLE)).containsExactly(a);
+        assertThat(snap.cars(CatalogListing.SOLD)).containsExactly(s);
+        assertThat(snap.cars(CatalogListing.RESERVED)).isEmpty();
+    }
+
+    @Test
+    void apply_deveMoverCarroEntreListagensMantendoOrdemPorPrecoEId() {
+        Car c1 = car(1, "10", false);
+        Car c2 = car(2, "30", false);
+        Car c3 = car(3, "20", false);
+        CatalogSnapshot snap = CatalogSnapshot.empty().replace(List.of(c1, c3, c2), List.of(), List.of());
+
+        Car c3Reserved = car(3, "20", true);
+        Car c4 = car(4, "20", false);
+        CatalogSnapshot next = snap.apply(Set.of(3L, 4L),
+                Map.of(c3Reserved, CatalogListing.RESERVED, c4, CatalogListing.AVAILABLE));
+
+        assertThat(next.version()).isEqualTo(snap.version() + 1);
+        assertThat(next.cars(CatalogListing.AVAILABLE)).containsExactly(c1, c4, c2);
+        assertThat(next.cars(CatalogListing.RESERVED)).containsExactly(c3Reserved);
+
+        // a foto anterior não é alterada
+        assertThat(snap.cars(CatalogListing.AVAILABLE)).containsExactly(c1, c3, c2);
+    }
+
+    @Test
+    void apply_quandoCarroNaoVoltou_deveApenasRemover() {
+        Car c1 = car(1, "10", false);
+        CatalogSnapshot snap = CatalogSnapshot.empty().replace(List.of(c1), List.of(), List.of());
+
+        CatalogSnapshot next = snap.apply(Set.of(1L), Map.of());
+
+        assertThat(next.cars(CatalogListing.AVAILABLE)).isEmpty();
+    }
+
+    @Test
+    void listas_devemSerImutaveis() {
+        CatalogSnapshot snap = CatalogSnapshot.empty().replace(List.of(car(1, "10", false)), List.of(), List.of());
+
+        assertThrows(UnsupportedOperationException.class,
+                () -> snap.cars(CatalogListing.AVAILABLE).add(new Car()));
+    }
+
+    @Test
+    void versaoPorListagem_soAvancaQuandoOConteudoMuda() {
+        Car a = car(1, "10", false);
+        Car s = car(2, "20", true);
+        CatalogSnapshot snap = CatalogSnapshot.empty().replace(List.of(a), List.of(s), List.of());
+
+        // mesma linha relida do banco (outra instância, mesmo conteúdo)
+        CatalogSnapshot same = snap.replace(List.of(car(1, "10.00", false)), List.of(car(2, "20", true)), List.of());
+        assertThat(same).isSameAs(snap);
+
+        CatalogSnapshot next = snap.apply(Set.of(1L), Map.of(car(1, "10", true), CatalogListing.RESERVED));
+        assertThat(next.version(CatalogListing.AVAILABLE)).isEqualTo(snap.version(CatalogListing.AVAILABLE) + 1);
+        assertThat(next.version(CatalogListing.RESERVED)).isEqualTo(snap.version(CatalogListing.RESERVED) + 1);
+        assertThat(next.version(CatalogListing.SOLD)).isEqualTo(snap.version(CatalogListing.SOLD));
+        assertThat(next.cars(CatalogListing.SOLD)).isSameAs(snap.cars(CatalogListing.SOLD));
+    }
+
+    @Test
+    void apply_deveAjustarFacetasDosDisponiveis() {
+        Car a1 = car(1, "10", false);
+        Car a2 = car(2, "30000", false);
+        CatalogSnapshot snap = CatalogSnapshot.empty().replace(List.of(a1, a2), List.of(), List.of());
+        assertThat(snap.facets().total()).isEqualTo(2);
+
+        CatalogSnapshot next = snap.apply(Set.of(2L), Map.of(car(2, "30000", true), CatalogListing.RESERVED));
+
+        assertThat(next.facets().total()).isEqualTo(1);
+        assertThat(next.facets().price()).containsOnlyKeys(0L);
+        assertThat(next.facets()).isEqualTo(CatalogFacets.of(next.cars(CatalogListing.AVAILABLE)));
+    }
+}
@@ -0,0 +1,263 @@
+package br.com.fiap.soat7.usecase.idempotency;
+
+import br.com.fiap.soat7.adapter.repositories.IdempotencyKeyRepository;
+import br.com.fiap.soat7.data.domain.IdempotencyKey;
+import br.com.fiap.soat7.data.domain.dto.PurchaseResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyStoreTest {
+
+    @Mock IdempotencyKeyRepository repo;
+
+    JsonMapper json = JsonMapper.builder().build();
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    IdempotencyStore store;
+
+    @BeforeEach
+    void setup() {
+        store = new IdempotencyStore(repo, json, registry, Schedulers.immediate(), Duration.ofHours(24), 2, Duration.ofMinutes(1));
+    }
+
+    private static PurchaseResponse response() {
+        return new PurchaseResponse(1L, 10L, "pc-1", Instant.now().truncatedTo(ChronoUnit.MILLIS));
+    }
+
+    @Test
+    void execute_semChave_apenasExecuta() {
+        AtomicInteger calls = new AtomicInteger();
+
+        store.execute("reserved", null, "10", Integer.class, calls::incrementAndGet);
+        store.execute("reserved", " ", "10", Integer.class, calls::incrementAndGet);
+
+        assertEquals(2, calls.get());
+        verifyNoInteractions(repo);
+    }
+
+    @Test
+    void execute_repeticao_devolveMesmaRespostaSemExecutarDeNovo() {
+        when(repo.findById("reserved:k1")).thenReturn(Optional.empty());
+        AtomicInteger calls = new AtomicInteger();
+        PurchaseResponse first = response();
+
+        PurchaseResponse r1 = store.execute("reserved", "k1", "10", PurchaseResponse.class, () -> {
+            calls.incrementAndGet();
+            return first;
+        });
+        PurchaseResponse r2 = store.execute("reserved", "k1", "10", PurchaseResponse.class, () -> {
+            calls.incrementAndGet();
+            return response();
+        });
+
+        assertEquals(1, calls.get());
+        assertThat(r1).isSameAs(first);
+        assertEquals(first, r2);
+        verify(repo).claim(eq("reserved:k1"), eq("10"), any(Instant.class));
+        verify(repo).complete(eq("reserved:k1"), any(Instant.class), anyString(), any(Instant.class));
+        assertEquals(1.0, registry.get("carstore.idempotency.replays").counter().count());
+    }
+
+    @Test
+    void execute_quandoOutraReplicaJaGravou_devolveRespostaDaTabela() {
+        PurchaseResponse stored = response();
+        IdempotencyKey row = new IdempotencyKey();
+        row.setId("reserved:k1");
+        row.setFingerprint("10");
+        row.setResponse(json.writeValueAsString(stored));
+        row.setCreatedAt(Instant.now().minusSeconds(60));
+        row.setCompletedAt(Instant.now().minusSeconds(59));
+        when(repo.findById("reserved:k1")).thenReturn(Optional.of(row));
+
+        PurchaseResponse r = store.execute("reserved", "k1", "10", PurchaseResponse.class, () -> {
+            throw new AssertionError("não deveria reservar de novo");
+        });
+
+        assertEquals(stored, r);
+        verify(repo, never()).claim(any(), any(), any());
+    }
+
+    @Test
+    void execute_chaveComOutroCorpo_lancaIllegalArgument() {
+        when(repo.findById("reserved:k1")).thenReturn(Optional.empty());
+        store.execute("reserved", "k1", "10", PurchaseResponse.class, IdempotencyStoreTest::response);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> store.execute("reserved", "k1", "11", PurchaseResponse.class, IdempotencyStoreTest::response));
+    }
+
+    @Test
+    void execute_quandoAcaoFalha_naoGuardaEPermiteNovaTentativa() {
+        when(repo.findById("reserved:k1")).thenReturn(Optional.empty());
+
+        assertThrows(IllegalStateException.class, () -> store.execute("reserved", "k1", "10", PurchaseResponse.class, () -> {
+            throw new IllegalStateException("Car já está reservado");
+        }));
+        PurchaseResponse r = store.execute("reserved", "k1", "10", PurchaseResponse.class, IdempotencyStoreTest::response);
+
+        assertThat(r).isNotNull();
+        verify(repo).release(eq("reserved:k1"), any(Instant.class));
+        verify(repo, times(2)).claim(eq("reserved:k1"), eq("10"), any(Instant.class));
+        verify(repo, times(1)).complete(any(), any(), any(), any());
+    }
+
+    @Test
+    void execute_repeticaoEnquantoAPrimeiraExecuta_lancaIllegalState() {
+        when(repo.findById("webhook:k1")).thenReturn(Optional.empty());
+
+        var ex = assertThrows(IllegalStateException.class, () -> store.execute("webhook", "k1", "pc:PAID", Void.class, () ->
+                store.execute("webhook", "k1", "pc:PAID", Void.class, () -> null)));
+
+        assertThat(ex.getMessage()).contains("em andamento");
+    }
+
+    @Test
+    void execute_semCorpoDeResposta_repeticaoDevolveNull() {
+        when(repo.findById("webhook:k1")).thenReturn(Optional.empty());
+        AtomicInteger calls = new AtomicInteger();
+
+        store.execute("webhook", "k1", "pc:PAID", Void.class, () -> { calls.incrementAndGet(); return null; });
+        Void again = store.execute("webhook", "k1", "pc:PAID", Void.class, () -> { calls.incrementAndGet(); return null; });
+
+        assertNull(again);
+        assertEquals(1, calls.get());
+        verify(repo).complete(eq("webhook:k1"), any(Instant.class), isNull(), any(Instant.class));
+    }
+
+    @Test
+    void execute_quandoOutraReplicaAindaExecuta_lancaIllegalStateSemExecutar() {
+        IdempotencyKey pending = pending("10", Instant.now().minusSeconds(5));
+        when(repo.findById("reserved:k1")).thenReturn(Optional.of(pending));
+        doThrow(new DataIntegrityViolationException("pk")).when(repo).claim(any(), any(), any());
+
+        var ex = assertThrows(IllegalStateException.class, () -> store.execute("reserved", "k1", "10", PurchaseResponse.class, () -> {
+            throw new AssertionError("não deveria reservar enquanto a outra réplica executa");
+        }));
+
+        assertThat(ex.getMessage()).contains("em andamento");
+        verify(repo, never()).release(any(), any());
+    }
+
+    @Test
+    void execute_quandoOutraReplicaConcluiuEntreConsultaEMarca_devolveRespostaDela() {
+        PurchaseResponse stored = response();
+        IdempotencyKey done = pending("10", Instant.now().minusSeconds(1));
+        done.setResponse(json.writeValueAsString(stored));
+        done.setCompletedAt(Instant.now());
+        when(repo.findById("reserved:k1")).thenReturn(Optional.empty(), Optional.of(done));
+        doThrow(new DataIntegrityViolationException("pk")).when(repo).claim(any(), any(), any());
+
+        PurchaseResponse r = store.execute("reserved", "k1", "10", PurchaseResponse.class, () -> {
+            throw new AssertionError("não deveria reservar de novo");
+        });
+
+        assertEquals(stored, r);
+    }
+
+    @Test
+    void execute_quandoMarcaAbandonada_retomaEExecuta() {
+        when(repo.findById("reserved:k1")).thenReturn(Optional.of(pending("10", Instant.now().minusSeconds(120))));
+        doThrow(new DataIntegrityViolationException("pk")).when(repo).claim(any(), any(), any());
+        when(repo.reclaim(eq("reserved:k1"), eq("10"), any(), any(), any())).thenReturn(1);
+        PurchaseResponse first = response();
+
+        assertThat(store.execute("reserved", "k1", "10", PurchaseResponse.class, () -> first)).isSameAs(first);
+        verify(repo).complete(eq("reserved:k1"), any(Instant.class), anyString(), any(Instant.class));
+    }
+
+    @Test
+    void execute_quandoOutraReplicaExecutaOutroCorpo_lancaIllegalArgument() {
+        when(repo.findById("reserved:k1")).thenReturn(Optional.of(pending("11", Instant.now())));
+        doThrow(new DataIntegrityViolationException("pk")).when(repo).claim(any(), any(), any());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> store.execute("reserved", "k1", "10", PurchaseResponse.class, IdempotencyStoreTest::response));
+    }
+
+    @Test
+    void execute_quandoGravacaoDaChaveFalha_devolveResultadoERepeteDaMemoria() {
+        when(repo.findById("reserved:k1")).thenReturn(Optional.empty());
+        doThrow(new CannotCreateTransactionException("pool esgotado")).when(repo).complete(any(), any(), any(), any());
+        AtomicInteger calls = new AtomicInteger();
+        PurchaseResponse first = response();
+
+        PurchaseResponse r1 = store.execute("reserved", "k1", "10", PurchaseResponse.class, () -> {
+            calls.incrementAndGet();
+            return first;
+        });
+        PurchaseResponse r2 = store.execute("reserved", "k1", "10", PurchaseResponse.class, () -> {
+            calls.incrementAndGet();
+            return response();
+        });
+
+        assertThat(r1).isSameAs(first);
+        assertEquals(first, r2);
+        assertEquals(1, calls.get());
+        assertEquals(1.0, registry.get("carstore.idempotency.store.failures").counter().count());
+    }
+
+    @Test
+    void executeReativo_repeticao_devolveMesmaRespostaSemAssinarAAcao() {
+        when(repo.findById("reserved:k1")).thenReturn(Optional.empty());
+        PurchaseResponse first = response();
+        AtomicInteger subscriptions = new AtomicInteger();
+        Mono<PurchaseResponse> action = Mono.fromSupplier(() -> {
+            subscriptions.incrementAndGet();
+            return first;
+        });
+
+        PurchaseResponse r1 = store.executeReactive("reserved", "k1", "10", PurchaseResponse.class, action).block();
+        PurchaseResponse r2 = store.executeReactive("reserved", "k1", "10", PurchaseResponse.class, action).block();
+
+        assertThat(r1).isSameAs(first);
+        assertEquals(first, r2);
+        assertEquals(1, subscriptions.get());
+        verify(repo).complete(eq("reserved:k1"), any(Instant.class), anyString(), any(Instant.class));
+    }
+
+    @Test
+    void executeReativo_quandoAcaoFalha_soltaAMarcaEPropagaOErro() {
+        when(repo.findById("reserved:k1")).thenReturn(Optional.empty());
+
+        assertThrows(IllegalStateException.class, () -> store.executeReactive("reserved", "k1", "10", PurchaseResponse.class,
+                Mono.<PurchaseResponse>error(new IllegalStateException("Car já está reservado"))).block());
+
+        verify(repo).release(eq("reserved:k1"), any(Instant.class));
+        verify(repo, never()).complete(any(), any(), any(), any());
+        // a marca local também foi solta
+        assertThat(store.executeReactive("reserved", "k1", "10", PurchaseResponse.class, Mono.just(response())).block()).isNotNull();
+    }
+
+    private static IdempotencyKey pending(String fingerprint, Instant createdAt) {
+        IdempotencyKey row = new IdempotencyKey();
+        row.setId("reserved:k1");
+        row.setFingerprint(fingerprint);
+        row.setCreatedAt(createdAt);
+        return row;
+    }
+}
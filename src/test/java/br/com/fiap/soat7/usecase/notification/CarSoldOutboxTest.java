@@ -0,0 +1,255 @@
+package br.com.fiap.soat7.usecase.notification;
+
+import br.com.fiap.soat7.adapter.client.CoreClient;
+import br.com.fiap.soat7.adapter.repositories.CarSoldOutboxRepository;
+import br.com.fiap.soat7.data.domain.CarSoldOutboxEntry;
+import br.com.fiap.soat7.data.domain.Sale;
+import br.com.fiap.soat7.data.domain.dto.CarSoldEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CarSoldOutboxTest {
+
+    @Mock CarSoldOutboxRepository repo;
+    @Mock CoreClient core;
+    @Mock PlatformTransactionManager transactionManager;
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    CarSoldOutbox outbox;
+
+    @BeforeEach
+    void setup() {
+        // um POST por carro; o envio em lote tem testes próprios
+        outbox = newOutbox(Duration.ofMinutes(1), false);
+    }
+
+    private CarSoldOutbox newOutbox(Duration lease, boolean bulk) {
+        return new CarSoldOutbox(repo, core, transactionManager, Schedulers.immediate(), registry,
+                2, 2, Duration.ofSeconds(1), lease, Duration.ofSeconds(1), Duration.ofSeconds(5), Duration.ofDays(7),
+                Duration.ofMillis(100), bulk, Duration.ofMinutes(10));
+    }
+
+    private static CarSoldOutboxEntry entry(long id, long carId) {
+        Sale sale = new Sale();
+        sale.setCarId(carId);
+        sale.setPaymentCode("pc" + carId);
+        sale.setBuyerCpf("123");
+        CarSoldOutboxEntry e = CarSoldOutboxEntry.of(sale, Instant.now().minusSeconds(2));
+        e.setId(id);
+        return e;
+    }
+
+    @Test
+    void constructor_quandoLeaseCurtoDemais_lancaIllegalArgument() {
+        assertThrows(IllegalArgumentException.class, () -> newOutbox(Duration.ofMillis(1500), false));
+    }
+
+    @Test
+    void enqueueAll_deveGravarUmaEntradaPorVendaEAcordarORelayNoCommit() {
+        Sale sale = new Sale();
+        sale.setCarId(7L);
+        sale.setPaymentCode("pc7");
+        sale.setBuyerCpf("111");
+        sale.setSoldAt(Instant.parse("2026-01-01T00:00:00Z"));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            outbox.enqueueAll(List.of(sale));
+            assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<CarSoldOutboxEntry>> saved = ArgumentCaptor.forClass(List.class);
+        verify(repo).saveAll(saved.capture());
+        CarSoldOutboxEntry e = saved.getValue().get(0);
+        assertEquals(new CarSoldEvent(7L, "111", sale.getSoldAt(), "pc7"), e.toEvent());
+        assertEquals(0, e.getAttempts());
+        assertNull(e.getDeliveredAt());
+        assertNotNull(e.getNextAttemptAt());
+        verifyNoInteractions(core);
+    }
+
+    @Test
+    void claim_deveAdiarOProximoEnvioPeloLease() {
+        CarSoldOutboxEntry e1 = entry(1, 10);
+        when(repo.lockDue(any(Instant.class), anyInt())).thenReturn(List.of(e1));
+
+        Instant before = Instant.now();
+        outbox.claim();
+
+        assertTrue(!e1.getNextAttemptAt().isBefore(before.plus(Duration.ofMinutes(1))));
+    }
+
+    @Test
+    void drain_deveMarcarEntreguesEReagendarFalhasComBackoff() {
+        CarSoldOutboxEntry ok = entry(1, 10);
+        CarSoldOutboxEntry ko = entry(2, 20);
+        when(repo.lockDue(any(Instant.class), anyInt())).thenReturn(List.of(ok, ko), List.of());
+        when(core.notifyCarSold(ok.toEvent())).thenReturn(Mono.empty());
+        when(core.notifyCarSold(ko.toEvent())).thenReturn(Mono.error(new IllegalStateException("Core fora do ar")));
+        when(repo.findAllById(List.of(1L, 2L))).thenReturn(List.of(ok, ko));
+
+        Instant before = Instant.now();
+        int delivered = outbox.drain().block();
+
+        assertEquals(1, delivered);
+        assertNotNull(ok.getDeliveredAt());
+        assertEquals(1, ok.getAttempts());
+        assertNull(ko.getDeliveredAt());
+        assertEquals(1, ko.getAttempts());
+        assertEquals("Core fora do ar", ko.getLastError());
+        assertTrue(ko.getNextAttemptAt().isBefore(before.plus(Duration.ofSeconds(30))));
+        // lote cheio (2): busca mais uma vez, vem vazio
+        verify(repo, times(2)).lockDue(any(Instant.class), anyInt());
+        assertEquals(1.0, registry.get("carstore.core.outbox.sent").tag("outcome", "failed").counter().count());
+    }
+
+    @Test
+    void drain_quandoCoreNaoResponde_deveTratarComoFalhaPorTimeout() {
+        CarSoldOutboxEntry slow = entry(1, 10);
+        when(repo.lockDue(any(Instant.class), anyInt())).thenReturn(List.of(slow));
+        when(core.notifyCarSold(any())).thenReturn(Mono.never());
+        when(repo.findAllById(anyList())).thenReturn(List.of(slow));
+
+        int delivered = outbox.drain().block(Duration.ofSeconds(5));
+
+        assertEquals(0, delivered);
+        assertNull(slow.getDeliveredAt());
+        assertNotNull(slow.getLastError());
+    }
+
+    @Test
+    void backoff_deveDobrarAteOLimite() {
+        assertEquals(Duration.ofSeconds(1), outbox.backoff(1));
+        assertEquals(Duration.ofSeconds(2), outbox.backoff(2));
+        assertEquals(Duration.ofSeconds(4), outbox.backoff(3));
+        assertEquals(Duration.ofSeconds(5), outbox.backoff(4));
+        assertEquals(Duration.ofSeconds(5), outbox.backoff(40));
+    }
+
+    @Test
+    void drain_comBulk_deveMandarOLoteNumPostSo() {
+        CarSoldOutbox bulk = newOutbox(Duration.ofMinutes(1), true);
+        CarSoldOutboxEntry e1 = entry(1, 10);
+        CarSoldOutboxEntry e2 = entry(2, 20);
+        when(repo.lockDue(any(Instant.class), anyInt())).thenReturn(List.of(e1, e2), List.of());
+        when(core.notifyCarsSold(List.of(e1.toEvent(), e2.toEvent()))).thenReturn(Mono.empty());
+        when(repo.findAllById(List.of(1L, 2L))).thenReturn(List.of(e1, e2));
+
+        int delivered = bulk.drain().block();
+
+        assertEquals(2, delivered);
+        verify(core, never()).notifyCarSold(any());
+        assertEquals(1.0, registry.get("carstore.core.outbox.requests").tag("mode", "bulk").counter().count());
+        assertEquals(1, registry.get("carstore.core.outbox.batch.size").summary().count());
+        assertEquals(2.0, registry.get("carstore.core.outbox.batch.size").summary().totalAmount());
+        assertEquals(1, registry.get("carstore.core.outbox.flush").timer().count());
+    }
+
+    @Test
+    void drain_quandoCoreNaoTemBulk_mandaUmPorCarroESoTentaLoteDepois() {
+        CarSoldOutbox bulk = newOutbox(Duration.ofMinutes(1), true);
+        CarSoldOutboxEntry e1 = entry(1, 10);
+        CarSoldOutboxEntry e2 = entry(2, 20);
+        when(repo.lockDue(any(Instant.class), anyInt())).thenReturn(List.of(e1), List.of(e2));
+        when(core.notifyCarsSold(anyList())).thenReturn(Mono.error(WebClientResponseException.create(404, "Not Found", null, null, null)));
+        when(core.notifyCarSold(any())).thenReturn(Mono.empty());
+        when(repo.findAllById(anyList())).thenReturn(List.of(e1), List.of(e2));
+
+        assertEquals(1, bulk.drain().block());
+        assertEquals(1, bulk.drain().block());
+
+        verify(core, times(1)).notifyCarsSold(anyList());
+        verify(core).notifyCarSold(e1.toEvent());
+        verify(core).notifyCarSold(e2.toEvent());
+        assertNotNull(e1.getDeliveredAt());
+    }
+
+    @Test
+    void drain_quandoCoreRecusaOLote_mandaUmPorCarroESoAEntradaRuimFalha() {
+        CarSoldOutbox bulk = newOutbox(Duration.ofMinutes(1), true);
+        CarSoldOutboxEntry e1 = entry(1, 10);
+        CarSoldOutboxEntry e2 = entry(2, 20);
+        when(repo.lockDue(any(Instant.class), anyInt())).thenReturn(List.of(e1, e2), List.of());
+        when(core.notifyCarsSold(anyList())).thenReturn(Mono.error(WebClientResponseException.create(422, "Unprocessable", null, null, null)));
+        when(core.notifyCarSold(e1.toEvent())).thenReturn(Mono.error(WebClientResponseException.create(422, "Unprocessable", null, null, null)));
+        when(core.notifyCarSold(e2.toEvent())).thenReturn(Mono.empty());
+        when(repo.findAllById(anyList())).thenReturn(List.of(e1, e2));
+
+        assertEquals(1, bulk.drain().block());
+
+        assertNotNull(e1.getLastError());
+        assertNull(e1.getDeliveredAt());
+        assertNotNull(e2.getDeliveredAt());
+        assertEquals(2.0, registry.get("carstore.core.outbox.requests").tag("mode", "single").counter().count());
+    }
+
+    @Test
+    void drain_quandoLoteFalha_reagendaTodasAsEntradas() {
+        CarSoldOutbox bulk = newOutbox(Duration.ofMinutes(1), true);
+        CarSoldOutboxEntry e1 = entry(1, 10);
+        CarSoldOutboxEntry e2 = entry(2, 20);
+        when(repo.lockDue(any(Instant.class), anyInt())).thenReturn(List.of(e1, e2), List.of());
+        when(core.notifyCarsSold(anyList())).thenReturn(Mono.error(new IllegalStateException("Core fora do ar")));
+        when(repo.findAllById(anyList())).thenReturn(List.of(e1, e2));
+
+        assertEquals(0, bulk.drain().block());
+
+        assertEquals("Core fora do ar", e1.getLastError());
+        assertEquals("Core fora do ar", e2.getLastError());
+        verify(core, never()).notifyCarSold(any());
+    }
+
+    @Test
+    void onEnqueued_deveJuntarVendasDentroDoLingerNumaRodadaSo() throws InterruptedException {
+        CarSoldOutbox coalescing = newOutbox(Duration.ofMinutes(1), true);
+        when(repo.lockDue(any(Instant.class), anyInt())).thenReturn(List.of());
+
+        coalescing.onEnqueued(1);
+        verify(repo, never()).lockDue(any(Instant.class), anyInt());
+        Thread.sleep(300);
+
+        verify(repo, times(1)).lockDue(any(Instant.class), anyInt());
+    }
+
+    @Test
+    void onEnqueued_quandoLoteEnche_relayNaHora() {
+        CarSoldOutbox coalescing = newOutbox(Duration.ofMinutes(1), true);
+        when(repo.lockDue(any(Instant.class), anyInt())).thenReturn(List.of());
+
+        coalescing.onEnqueued(2);
+
+        verify(repo, times(1)).lockDue(any(Instant.class), anyInt());
+    }
+}
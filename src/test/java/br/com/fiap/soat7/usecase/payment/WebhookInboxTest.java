@@ -0,0 +1,197 @@
+package br.com.fiap.soat7.usecase.payment;
+
+import br.com.fiap.soat7.adapter.repositories.WebhookInboxRepository;
+import br.com.fiap.soat7.data.domain.WebhookInboxEntry;
+import br.com.fiap.soat7.data.domain.dto.PaymentWebhookRequest;
+import br.com.fiap.soat7.usecase.services.SalesService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WebhookInboxTest {
+
+    @Mock WebhookInboxRepository repo;
+    @Mock SalesService salesService;
+    @Mock PlatformTransactionManager transactionManager;
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    WebhookInbox inbox;
+
+    @BeforeEach
+    void setup() {
+        inbox = new WebhookInbox(repo, salesService, transactionManager, Schedulers.immediate(), registry, 2, 3, Duration.ofDays(7));
+    }
+
+    private static WebhookInboxEntry entry(long id, String paymentCode, String status) {
+        WebhookInboxEntry e = new WebhookInboxEntry();
+        e.setId(id);
+        e.setPaymentCode(paymentCode);
+        e.setStatus(status);
+        e.setReceivedAt(Instant.now().minusSeconds(1));
+        return e;
+    }
+
+    @Test
+    void append_quandoStatusInvalido_deveLancarIAESemGravar() {
+        PaymentWebhookRequest req = new PaymentWebhookRequest("PAY-1", "REFUNDED", null, null);
+
+        assertThrows(IllegalArgumentException.class, () -> inbox.append(req));
+        verifyNoInteractions(repo, salesService);
+    }
+
+    @Test
+    void append_quandoPaymentCodeVazio_deveLancarIAE() {
+        PaymentWebhookRequest req = new PaymentWebhookRequest(" ", "PAID", null, null);
+
+        assertThrows(IllegalArgumentException.class, () -> inbox.append(req));
+        verifyNoInteractions(repo);
+    }
+
+    @Test
+    void append_deveGravarStatusNormalizadoEAplicarEmSeguida() {
+        when(repo.lockPendingHeads(2)).thenReturn(List.of());
+
+        inbox.append(new PaymentWebhookRequest("PAY-1", " paid ", "12345678901", null));
+
+        ArgumentCaptor<WebhookInboxEntry> saved = ArgumentCaptor.forClass(WebhookInboxEntry.class);
+        verify(repo).save(saved.capture());
+        assertEquals("PAY-1", saved.getValue().getPaymentCode());
+        assertEquals("PAID", saved.getValue().getStatus());
+        assertNotNull(saved.getValue().getReceivedAt());
+        assertNull(saved.getValue().getProcessedAt());
+        verify(repo).lockPendingHeads(2);
+    }
+
+    @Test
+    void drain_deveAplicarNaOrdemEContinuarEnquantoOLoteVierCheio() {
+        WebhookInboxEntry e1 = entry(1, "PAY-1", "PAID");
+        WebhookInboxEntry e2 = entry(2, "PAY-2", "CANCELED");
+        WebhookInboxEntry e3 = entry(3, "PAY-3", "PAID");
+        when(repo.lockPendingHeads(2)).thenReturn(List.of(e1, e2), List.of(e3));
+
+        inbox.drain();
+
+        InOrder order = inOrder(salesService);
+        order.verify(salesService).applyPaymentWebhook(new PaymentWebhookRequest("PAY-1", "PAID", null, null));
+        order.verify(salesService).applyPaymentWebhook(new PaymentWebhookRequest("PAY-2", "CANCELED", null, null));
+        order.verify(salesService).applyPaymentWebhook(new PaymentWebhookRequest("PAY-3", "PAID", null, null));
+        verify(repo, times(2)).lockPendingHeads(2);
+        verify(transactionManager, times(2)).commit(any());
+        assertNotNull(e1.getProcessedAt());
+        assertNotNull(e3.getProcessedAt());
+        assertEquals(3.0, registry.get("carstore.webhook.inbox.processed").tag("outcome", "applied").counter().count());
+    }
+
+    @Test
+    void drain_quandoEventoRecusado_deveMarcarComErroESeguirOLote() {
+        WebhookInboxEntry e1 = entry(1, "PAY-X", "PAID");
+        WebhookInboxEntry e2 = entry(2, "PAY-2", "PAID");
+        when(repo.lockPendingHeads(2)).thenReturn(List.of(e1, e2), List.of());
+        doThrow(new IllegalArgumentException("paymentCode inválido"))
+                .when(salesService).applyPaymentWebhook(new PaymentWebhookRequest("PAY-X", "PAID", null, null));
+
+        inbox.drain();
+
+        assertEquals("paymentCode inválido", e1.getLastError());
+        assertNotNull(e1.getProcessedAt());
+        assertNull(e2.getLastError());
+        assertNotNull(e2.getProcessedAt());
+        assertEquals(1.0, registry.get("carstore.webhook.inbox.processed").tag("outcome", "rejected").counter().count());
+    }
+
+    @Test
+    void drain_quandoFalhaInesperada_deveDesfazerOLoteEAplicarCadaEventoSozinho() {
+        WebhookInboxEntry poison = entry(1, "PAY-X", "PAID");
+        WebhookInboxEntry good = entry(2, "PAY-2", "PAID");
+        when(repo.lockPendingHeads(2)).thenReturn(List.of(poison, good));
+        when(repo.lockPending(1L)).thenReturn(Optional.of(poison));
+        when(repo.lockPending(2L)).thenReturn(Optional.of(good));
+        doThrow(new RuntimeException("deadlock"))
+                .when(salesService).applyPaymentWebhook(new PaymentWebhookRequest("PAY-X", "PAID", null, null));
+
+        inbox.drain();
+
+        // lote desfeito; depois o evento ruim sozinho (desfeito), a falha registrada e o bom aplicado
+        verify(transactionManager, times(2)).rollback(any());
+        verify(transactionManager, times(2)).commit(any());
+        verify(repo, times(1)).lockPendingHeads(2);
+        assertEquals(1, poison.getAttempts());
+        assertEquals("java.lang.RuntimeException: deadlock", poison.getLastError());
+        assertNull(poison.getProcessedAt());
+        assertNotNull(good.getProcessedAt());
+        assertNull(good.getLastError());
+        assertEquals(1.0, registry.get("carstore.webhook.inbox.processed").tag("outcome", "failed").counter().count());
+        assertEquals(1.0, registry.get("carstore.webhook.inbox.processed").tag("outcome", "applied").counter().count());
+    }
+
+    @Test
+    void drain_quandoFalhaNaUltimaTentativa_deveTirarOEventoDaFilaComErro() {
+        WebhookInboxEntry poison = entry(1, "PAY-X", "PAID");
+        poison.setAttempts(2);
+        when(repo.lockPendingHeads(2)).thenReturn(List.of(poison));
+        when(repo.lockPending(1L)).thenReturn(Optional.of(poison));
+        doThrow(new RuntimeException("deadlock")).when(salesService).applyPaymentWebhook(any());
+
+        inbox.drain();
+
+        assertEquals(3, poison.getAttempts());
+        assertNotNull(poison.getProcessedAt());
+        assertEquals("java.lang.RuntimeException: deadlock", poison.getLastError());
+        assertEquals(1.0, registry.get("carstore.webhook.inbox.processed").tag("outcome", "parked").counter().count());
+    }
+
+    @Test
+    void drain_quandoOutraReplicaJaAplicou_naoAplicaDeNovo() {
+        WebhookInboxEntry e1 = entry(1, "PAY-1", "PAID");
+        when(repo.lockPendingHeads(2)).thenReturn(List.of(e1));
+        when(repo.lockPending(1L)).thenReturn(Optional.empty());
+        doThrow(new RuntimeException("serialization failure")).when(salesService).applyPaymentWebhook(any());
+
+        inbox.drain();
+
+        verify(salesService, times(1)).applyPaymentWebhook(any());
+        assertEquals(0, e1.getAttempts());
+    }
+
+    @Test
+    void constructor_quandoMaxAttemptsInvalido_deveLancarIAE() {
+        assertThrows(IllegalArgumentException.class, () -> new WebhookInbox(
+                repo, salesService, transactionManager, Schedulers.immediate(), registry, 2, 0, Duration.ofDays(7)));
+    }
+
+    @Test
+    void purgeProcessed_deveRemoverOsAplicadosAntesDaRetencao() {
+        Instant before = Instant.now().minus(Duration.ofDays(7));
+
+        inbox.purgeProcessed();
+
+        ArgumentCaptor<Instant> cutoff = ArgumentCaptor.forClass(Instant.class);
+        verify(repo).deleteProcessedBefore(cutoff.capture());
+        assertEquals(0, Duration.between(before, cutoff.getValue()).toMinutes());
+    }
+}
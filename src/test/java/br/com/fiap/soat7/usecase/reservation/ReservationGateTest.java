@@ -0,0 +1,127 @@
+package br.com.fiap.soat7.usecase.reservation;
+
+import br.com.fiap.soat7.usecase.catalog.CatalogChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReservationGateTest {
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    AtomicLong clock = new AtomicLong();
+    ReservationGate gate;
+
+    @BeforeEach
+    void setup() {
+        gate = new ReservationGate(registry, Duration.ofSeconds(5), clock::get);
+    }
+
+    private double rejected(String reason) {
+        return registry.get("carstore.reservations.gate.rejected").tag("reason", reason).counter().count();
+    }
+
+    @Test
+    void guard_quandoJaHaTentativaEmAndamento_recusaSemExecutar() {
+        AtomicInteger calls = new AtomicInteger();
+
+        var ex = assertThrows(CarReservedException.class, () -> gate.guard(1L, () ->
+                gate.guard(1L, calls::incrementAndGet)));
+
+        assertEquals(ReservationGate.IN_FLIGHT_MESSAGE, ex.getMessage());
+        assertEquals(0, calls.get());
+        assertEquals(1.0, rejected("in_flight"));
+    }
+
+    @Test
+    void guard_quandoReservadoHaPouco_recusaAteOTtlVencer() {
+        gate.guard(1L, () -> "ok");
+
+        clock.addAndGet(Duration.ofSeconds(4).toNanos());
+        var ex = assertThrows(CarReservedException.class, () -> gate.guard(1L, () -> "de novo"));
+        assertEquals(ReservationGate.RESERVED_MESSAGE, ex.getMessage());
+        assertEquals(1.0, rejected("taken"));
+
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertEquals("de novo", gate.guard(1L, () -> "de novo"));
+    }
+
+    @Test
+    void guard_quandoBancoRecusa_guardaOMotivoDoBanco() {
+        assertThrows(IllegalStateException.class, () -> gate.guard(1L, () -> {
+            throw new IllegalStateException("Car já foi vendido");
+        }));
+
+        var ex = assertThrows(IllegalStateException.class, () -> gate.guard(1L, () -> "x"));
+        assertEquals("Car já foi vendido", ex.getMessage());
+        assertThat(ex).isNotInstanceOf(CarReservedException.class);
+    }
+
+    @Test
+    void guard_quandoOutroErro_liberaOCarroSemGuardar() {
+        assertThrows(IllegalArgumentException.class, () -> gate.guard(1L, () -> {
+            throw new IllegalArgumentException("Car não encontrado no serviço de venda");
+        }));
+
+        assertEquals("x", gate.guard(1L, () -> "x"));
+    }
+
+    @Test
+    void guard_carrosDiferentesNaoSeBloqueiam() {
+        String r = gate.guard(1L, () -> gate.guard(2L, () -> "ok"));
+
+        assertEquals("ok", r);
+        assertEquals(2, gate.size());
+    }
+
+    @Test
+    void onCatalogChanged_descartaResultadoGuardadoMasNaoTentativaEmAndamento() {
+        gate.guard(1L, () -> "ok");
+
+        gate.onCatalogChanged(CatalogChangedEvent.of(1L));
+        assertEquals("x", gate.guard(1L, () -> "x"));
+
+        var ex = assertThrows(IllegalStateException.class, () -> gate.guard(2L, () -> {
+            gate.onCatalogChanged(CatalogChangedEvent.of(2L));
+            return gate.guard(2L, () -> "concorrente");
+        }));
+        assertEquals(ReservationGate.IN_FLIGHT_MESSAGE, ex.getMessage());
+    }
+
+    @Test
+    void purgeExpired_removeSomenteVencidos() {
+        gate.guard(1L, () -> "ok");
+        clock.addAndGet(Duration.ofSeconds(3).toNanos());
+        gate.guard(2L, () -> "ok");
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+
+        gate.purgeExpired();
+
+        assertEquals(1, gate.size());
+        assertThrows(IllegalStateException.class, () -> gate.guard(2L, () -> "x"));
+    }
+
+    @Test
+    void guardReativo_admiteNaAssinaturaELiberaNoCancelamento() {
+        Sinks.One<String> pending = Sinks.one();
+        Mono<String> first = gate.guard(1L, pending.asMono());
+        assertEquals(0, gate.size());
+
+        var subscription = first.subscribe();
+        var ex = assertThrows(IllegalStateException.class, () -> gate.guard(1L, Mono.just("x")).block());
+        assertEquals(ReservationGate.IN_FLIGHT_MESSAGE, ex.getMessage());
+
+        subscription.dispose();
+        assertEquals("x", gate.guard(1L, Mono.just("x")).block());
+        assertThat(gate.guard(1L, Mono.just("y")).onErrorReturn("recusado").block()).isEqualTo("recusado");
+    }
+}
@@ -0,0 +1,130 @@
+package br.com.fiap.soat7.usecase.reservation;
+
+import br.com.fiap.soat7.adapter.repositories.SaleRepository;
+import br.com.fiap.soat7.data.domain.Sale;
+import br.com.fiap.soat7.usecase.catalog.CatalogChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationStateIndexTest {
+
+    @Mock SaleRepository saleRepo;
+
+    ReservationStateIndex index;
+
+    @BeforeEach
+    void setup() {
+        index = new ReservationStateIndex(saleRepo);
+    }
+
+    private static Object[] row(long carId, Sale.Status status) {
+        return new Object[]{carId, status};
+    }
+
+    @Test
+    void reload_carregaStatusDeCadaCarro() {
+        when(saleRepo.findStatuses()).thenReturn(List.of(
+                row(1, Sale.Status.RESERVED),
+                row(2, Sale.Status.PAID),
+                row(3, Sale.Status.CANCELED)));
+
+        index.reload();
+
+        assertEquals(Sale.Status.RESERVED, index.status(1));
+        assertTrue(index.isReserved(1));
+        assertEquals(Sale.Status.PAID, index.status(2));
+        assertEquals(Sale.Status.CANCELED, index.status(3));
+        assertNull(index.status(4));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void refusal_soPagoEDecididoPeloIndice() {
+        when(saleRepo.findStatuses()).thenReturn(List.of(
+                row(1, Sale.Status.RESERVED),
+                row(2, Sale.Status.PAID),
+                row(3, Sale.Status.AVAILABLE)));
+        index.reload();
+
+        // reserva válida pode ter sido cancelada em outra réplica: quem decide é a gate/o banco
+        assertNull(index.refusal(1));
+        assertTrue(index.isReserved(1));
+        assertEquals(Sale.Status.PAID, index.refusal(2));
+        assertNull(index.refusal(3));
+        assertNull(index.refusal(99));
+    }
+
+    @Test
+    void onCatalogChanged_atualizaSoOsCarrosDoEventoERemoveOsSemVenda() {
+        when(saleRepo.findStatuses()).thenReturn(List.of(
+                row(1, Sale.Status.RESERVED),
+                row(2, Sale.Status.RESERVED)));
+        index.reload();
+        when(saleRepo.findStatusByCarIds(Set.of(1L, 5L))).thenReturn(List.<Object[]>of(row(1, Sale.Status.CANCELED)));
+
+        index.onCatalogChanged(new CatalogChangedEvent(Set.of(1L, 5L)));
+
+        assertEquals(Sale.Status.CANCELED, index.status(1));
+        assertEquals(Sale.Status.RESERVED, index.status(2));
+        assertNull(index.status(5));
+
+        when(saleRepo.findStatusByCarIds(Set.of(2L))).thenReturn(List.of());
+        index.onCatalogChanged(CatalogChangedEvent.of(2L));
+        assertNull(index.status(2));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void onCatalogChanged_quandoBancoFalha_mantemOIndice() {
+        when(saleRepo.findStatuses()).thenReturn(List.<Object[]>of(row(1, Sale.Status.PAID)));
+        index.reload();
+        when(saleRepo.findStatusByCarIds(any())).thenThrow(new RuntimeException("db down"));
+
+        index.onCatalogChanged(CatalogChangedEvent.of(1L));
+
+        assertEquals(Sale.Status.PAID, index.status(1));
+    }
+
+    @Test
+    void refresh_cresceERemoveSemPerderOutrasChaves() {
+        when(saleRepo.findStatuses()).thenReturn(List.of());
+        index.reload();
+
+        // ids em colisão provável e acima da capacidade inicial
+        List<Long> ids = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= 5_000; id++) {
+            ids.add(id * 1024);
+            rows.add(row(id * 1024, Sale.Status.PAID));
+        }
+        when(saleRepo.findStatusByCarIds(ids)).thenReturn(rows);
+        index.refresh(ids);
+        assertEquals(5_000, index.size());
+
+        List<Long> evens = ids.stream().filter(id -> (id / 1024) % 2 == 0).toList();
+        when(saleRepo.findStatusByCarIds(evens)).thenReturn(List.of());
+        index.refresh(evens);
+
+        assertEquals(2_500, index.size());
+        for (long id : ids) {
+            boolean odd = (id / 1024) % 2 == 1;
+            assertEquals(odd ? Sale.Status.PAID : null, index.status(id), "carId=" + id);
+        }
+        assertFalse(index.isReserved(1024));
+    }
+}
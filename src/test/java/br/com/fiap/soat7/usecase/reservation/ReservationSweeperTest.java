@@ -0,0 +1,96 @@
+package br.com.fiap.soat7.usecase.reservation;
+
+import br.com.fiap.soat7.adapter.repositories.CarRepository;
+import br.com.fiap.soat7.adapter.repositories.SaleRepository;
+import br.com.fiap.soat7.data.domain.Sale;
+import br.com.fiap.soat7.usecase.catalog.CatalogChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationSweeperTest {
+
+    @Mock SaleRepository saleRepo;
+    @Mock CarRepository carRepo;
+    @Mock ApplicationEventPublisher events;
+    @Mock PlatformTransactionManager transactionManager;
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    ReservationSweeper sweeper;
+
+    @BeforeEach
+    void setup() {
+        sweeper = new ReservationSweeper(saleRepo, carRepo, events, transactionManager, registry, 2);
+    }
+
+    private static Object[] row(long saleId, long carId, Instant reservedUntil) {
+        return new Object[]{saleId, carId, Timestamp.from(reservedUntil)};
+    }
+
+    @Test
+    void sweep_deveLiberarEmLotesAteEsvaziar() {
+        Instant expired = Instant.now().minusSeconds(120);
+        when(saleRepo.lockExpiredReservations(any(Instant.class), eq(2)))
+                .thenReturn(List.of(row(1, 10, expired), row(2, 20, expired)))
+                .thenReturn(List.<Object[]>of(row(3, 30, expired)));
+
+        sweeper.sweep();
+
+        verify(saleRepo).releaseReservations(List.of(1L, 2L), Sale.Status.AVAILABLE);
+        verify(carRepo).markAvailable(Set.of(10L, 20L));
+        verify(saleRepo).releaseReservations(List.of(3L), Sale.Status.AVAILABLE);
+        verify(carRepo).markAvailable(Set.of(30L));
+        verify(events).publishEvent(new CatalogChangedEvent(Set.of(10L, 20L)));
+        verify(events).publishEvent(new CatalogChangedEvent(Set.of(30L)));
+        verify(transactionManager, times(2)).commit(any());
+
+        assertThat(registry.get("carstore.reservations.expired").counter().count()).isEqualTo(3.0);
+        assertThat(registry.get("carstore.reservations.expiry.delay").timer().count()).isEqualTo(3);
+    }
+
+    @Test
+    void sweep_semReservasVencidas_naoAtualizaNada() {
+        when(saleRepo.lockExpiredReservations(any(Instant.class), anyInt())).thenReturn(List.of());
+
+        sweeper.sweep();
+
+        verify(saleRepo, never()).releaseReservations(any(), any());
+        verifyNoInteractions(carRepo, events);
+        assertThat(registry.get("carstore.reservations.expiry.lag").gauge().value()).isZero();
+    }
+
+    @Test
+    void sweep_quandoSobramVencidasTravadasPorOutraReplica_expoeLag() {
+        when(saleRepo.lockExpiredReservations(any(Instant.class), anyInt())).thenReturn(List.of());
+        when(saleRepo.findOldestExpiry(eq(Sale.Status.RESERVED), any(Instant.class)))
+                .thenReturn(Instant.now().minusSeconds(90));
+
+        sweeper.sweep();
+
+        assertThat(registry.get("carstore.reservations.expiry.lag").gauge().value()).isGreaterThanOrEqualTo(90.0);
+    }
+
+    @Test
+    void construtor_batchInvalido_lancaIllegalArgument() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ReservationSweeper(saleRepo, carRepo, events, transactionManager, registry, 0));
+    }
+}
@@ -0,0 +1,161 @@
+package br.com.fiap.soat7.usecase.reservation;
+
+import br.com.fiap.soat7.data.domain.dto.PurchaseResponse;
+import br.com.fiap.soat7.usecase.catalog.CatalogChangedEvent;
+import br.com.fiap.soat7.usecase.services.SalesService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationWaitlistTest {
+
+    @Mock SalesService salesService;
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    ReservationWaitlist waitlist;
+
+    // compradores ainda na fila no fim do teste: descartados antes do timeout disparar
+    Disposable.Composite subscriptions = Disposables.composite();
+
+    @BeforeEach
+    void setup() {
+        waitlist = new ReservationWaitlist(salesService, Schedulers.immediate(), registry, Duration.ofSeconds(5), 2);
+    }
+
+    @AfterEach
+    void disposeWaiting() {
+        subscriptions.dispose();
+    }
+
+    private Disposable waitFor(AtomicReference<PurchaseResponse> result, AtomicReference<Throwable> error) {
+        Disposable d = waitlist.reserveOrWait(1L).subscribe(result::set, error::set);
+        subscriptions.add(d);
+        return d;
+    }
+
+    private Disposable waitFor(AtomicReference<PurchaseResponse> result) {
+        return waitFor(result, new AtomicReference<>());
+    }
+
+    private static PurchaseResponse response(long saleId) {
+        return new PurchaseResponse(saleId, 1L, "pc-" + saleId, Instant.now());
+    }
+
+    private static CarReservedException reserved() {
+        return new CarReservedException("Car já está reservado");
+    }
+
+    @Test
+    void reserveOrWait_quandoCarLivre_reservaSemEntrarNaFila() {
+        PurchaseResponse r = response(10);
+        when(salesService.reserved(1L)).thenReturn(r);
+
+        assertThat(waitlist.reserveOrWait(1L).block()).isSameAs(r);
+        assertEquals(0, waitlist.waiting(1L));
+    }
+
+    @Test
+    void reserveOrWait_quandoVendido_naoEntraNaFila() {
+        when(salesService.reserved(1L)).thenThrow(new IllegalStateException("Car já foi vendido"));
+
+        var ex = assertThrows(IllegalStateException.class, () -> waitlist.reserveOrWait(1L).block());
+        assertEquals("Car já foi vendido", ex.getMessage());
+        assertEquals(0, waitlist.waiting(1L));
+    }
+
+    @Test
+    void onCatalogChanged_entregaAReservaAoPrimeiroDaFilaEmOrdem() {
+        when(salesService.reserved(1L)).thenThrow(reserved());
+        AtomicReference<PurchaseResponse> first = new AtomicReference<>();
+        AtomicReference<PurchaseResponse> second = new AtomicReference<>();
+        waitFor(first);
+        waitFor(second);
+        assertEquals(2, waitlist.waiting(1L));
+
+        PurchaseResponse r1 = response(11);
+        doReturn(r1).when(salesService).reserved(1L);
+        waitlist.onCatalogChanged(CatalogChangedEvent.of(1L));
+
+        assertThat(first.get()).isSameAs(r1);
+        assertThat(second.get()).isNull();
+        assertEquals(1, waitlist.waiting(1L));
+        assertEquals(1.0, registry.get("carstore.reservations.waitlist.handovers").counter().count());
+    }
+
+    @Test
+    void handOver_quandoAindaReservado_primeiroContinuaNaFrente() {
+        when(salesService.reserved(1L)).thenThrow(reserved());
+        AtomicReference<PurchaseResponse> first = new AtomicReference<>();
+        waitFor(first);
+
+        waitlist.poll();
+
+        assertThat(first.get()).isNull();
+        assertEquals(1, waitlist.waiting(1L));
+    }
+
+    @Test
+    void handOver_quandoCarVendido_encerraAFilaComOErro() {
+        when(salesService.reserved(1L)).thenThrow(reserved());
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        waitFor(new AtomicReference<>(), error);
+        waitFor(new AtomicReference<>(), error);
+
+        doThrow(new IllegalStateException("Car já foi vendido")).when(salesService).reserved(1L);
+        waitlist.onCatalogChanged(CatalogChangedEvent.of(1L));
+
+        assertEquals("Car já foi vendido", error.get().getMessage());
+        assertEquals(0, waitlist.waiting(1L));
+    }
+
+    @Test
+    void reserveOrWait_quandoFilaCheia_recusaComConflito() {
+        when(salesService.reserved(1L)).thenThrow(reserved());
+        waitFor(new AtomicReference<>());
+        waitFor(new AtomicReference<>());
+
+        var ex = assertThrows(CarReservedException.class, () -> waitlist.reserveOrWait(1L).block());
+        assertEquals(ReservationWaitlist.FULL_MESSAGE, ex.getMessage());
+    }
+
+    @Test
+    void reserveOrWait_quandoTempoEsgota_saiDaFilaCom409() {
+        waitlist = new ReservationWaitlist(salesService, Schedulers.immediate(), new SimpleMeterRegistry(), Duration.ofMillis(50), 2);
+        when(salesService.reserved(1L)).thenThrow(reserved());
+
+        var ex = assertThrows(CarReservedException.class, () -> waitlist.reserveOrWait(1L).block());
+
+        assertEquals(ReservationWaitlist.TIMEOUT_MESSAGE, ex.getMessage());
+        assertEquals(0, waitlist.waiting(1L));
+    }
+
+    @Test
+    void cancelamento_tiraCompradorDaFila() {
+        when(salesService.reserved(1L)).thenThrow(reserved());
+        var subscription = waitFor(new AtomicReference<>());
+        assertEquals(1, waitlist.waiting(1L));
+
+        subscription.dispose();
+
+        assertEquals(0, waitlist.waiting(1L));
+        waitlist.poll();
+        verify(salesService, times(2)).reserved(1L); // tentativa direta + a da entrada na fila
+    }
+}
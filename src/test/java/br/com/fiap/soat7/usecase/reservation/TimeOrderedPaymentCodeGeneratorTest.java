@@ -0,0 +1,103 @@
+package br.com.fiap.soat7.usecase.reservation;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TimeOrderedPaymentCodeGeneratorTest {
+
+    AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+    TimeOrderedPaymentCodeGenerator generator = new TimeOrderedPaymentCodeGenerator(clock::get);
+
+    @Test
+    void next_geraUlidCom26CaracteresCrockford() {
+        String code = generator.next();
+
+        assertThat(code).hasSize(TimeOrderedPaymentCodeGenerator.LENGTH).matches("[0-9A-HJKMNP-TV-Z]{26}");
+    }
+
+    @Test
+    void next_prefixoCodificaOsMilissegundos() {
+        assertEquals("01HF7YAT00", generator.next().substring(0, 10));
+    }
+
+    @Test
+    void next_codigosPosterioresSaoMaiores_inclusiveNoMesmoMilissegundo() {
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            if (i % 100 == 0) clock.incrementAndGet();
+            codes.add(generator.next());
+        }
+
+        assertThat(codes).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void next_mesmoMilissegundo_codigosNaoSaoAdjacentes() {
+        String previous = generator.next();
+        for (int i = 0; i < 200; i++) {
+            String code = generator.next();
+            assertThat(code.substring(0, 10)).isEqualTo(previous.substring(0, 10));
+
+            BigInteger step = randomPart(code).subtract(randomPart(previous));
+            assertThat(step).isGreaterThan(BigInteger.valueOf(1L << 16));
+            previous = code;
+        }
+    }
+
+    @Test
+    void next_relogioVoltando_mantemAOrdem() {
+        String first = generator.next();
+        clock.addAndGet(-5_000);
+
+        assertThat(generator.next()).isGreaterThan(first);
+    }
+
+    @Test
+    void encode_carryDaParteAleatoriaSobeParaOTempo() {
+        String last = TimeOrderedPaymentCodeGenerator.encode(1L, 0xFFFF, -1L);
+        String next = TimeOrderedPaymentCodeGenerator.encode(2L, 0, 0);
+
+        assertEquals("0000000001ZZZZZZZZZZZZZZZZ", last);
+        assertThat(next).isGreaterThan(last);
+    }
+
+    @Test
+    void next_variasThreads_semRepeticao() throws Exception {
+        TimeOrderedPaymentCodeGenerator real = new TimeOrderedPaymentCodeGenerator();
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                tasks.add(pool.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) codes.add(real.next());
+                }));
+            }
+            for (Future<?> f : tasks) f.get();
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(80_000, codes.size());
+    }
+
+    private static BigInteger randomPart(String code) {
+        BigInteger v = BigInteger.ZERO;
+        for (char c : code.substring(10).toCharArray()) {
+            v = v.shiftLeft(5).add(BigInteger.valueOf("0123456789ABCDEFGHJKMNPQRSTVWXYZ".indexOf(c)));
+        }
+        return v;
+    }
+}
@@ -3,10 +3,12 @@ package br.com.fiap.soat7.usecase.services.impl;
 import br.com.fiap.soat7.adapter.repositories.CarRepository;
 import br.com.fiap.soat7.data.domain.Car;
 import br.com.fiap.soat7.data.domain.dto.CarSyncRequest;
+import br.com.fiap.soat7.usecase.catalog.CatalogChangedEvent;
 import br.com.fiap.soat7.usecase.services.impl.CarSyncServiceImpl;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -21,6 +23,9 @@ class CarSyncServiceImplTest {
     @Mock
     CarRepository carRepo;
 
+    @Mock
+    ApplicationEventPublisher events;
+
     @InjectMocks
     CarSyncServiceImpl service;
 
@@ -53,6 +58,8 @@ class CarSyncServiceImplTest {
         assertEquals(2020, saved.getYear());
         assertEquals("Prata", saved.getColor());
         assertEquals(new BigDecimal("95000.00"), saved.getPrice());
+
+        verify(events).publishEvent(CatalogChangedEvent.of(10L));
     }
 
     @Test
@@ -0,0 +1,40 @@
+package br.com.fiap.soat7.usecase.services.impl;
+
+import br.com.fiap.soat7.adapter.repositories.reactive.ReactiveCarRepository;
+import br.com.fiap.soat7.data.domain.dto.CarSyncRequest;
+import br.com.fiap.soat7.usecase.catalog.CatalogChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveCarSyncServiceImplTest {
+
+    @Mock ReactiveCarRepository carRepo;
+    @Mock ApplicationEventPublisher events;
+
+    @InjectMocks ReactiveCarSyncServiceImpl service;
+
+    @Test
+    void upsert_deveGravarEmUmUnicoComandoEPublicarEvento() {
+        CarSyncRequest req = new CarSyncRequest(10L, "Toyota", "Corolla", 2020, "Prata",
+                new BigDecimal("95000.00"), Instant.now());
+        when(carRepo.upsert(eq(10L), eq("Toyota"), eq("Corolla"), eq(2020), eq("Prata"),
+                eq(new BigDecimal("95000.00")), any(Instant.class))).thenReturn(Mono.just(1));
+
+        service.upsert(req).block();
+
+        verify(events).publishEvent(CatalogChangedEvent.of(10L));
+    }
+}
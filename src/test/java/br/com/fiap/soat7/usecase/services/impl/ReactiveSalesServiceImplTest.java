@@ -0,0 +1,141 @@
+package br.com.fiap.soat7.usecase.services.impl;
+
+import br.com.fiap.soat7.adapter.repositories.reactive.ReactiveCarRepository;
+import br.com.fiap.soat7.adapter.repositories.reactive.ReactiveSaleRepository;
+import br.com.fiap.soat7.data.domain.Car;
+import br.com.fiap.soat7.data.domain.Sale;
+import br.com.fiap.soat7.data.domain.dto.CarPage;
+import br.com.fiap.soat7.data.domain.dto.PurchaseResponse;
+import br.com.fiap.soat7.data.domain.reactive.CarRow;
+import br.com.fiap.soat7.usecase.catalog.CatalogChangedEvent;
+import br.com.fiap.soat7.usecase.reservation.ReservationGate;
+import br.com.fiap.soat7.usecase.reservation.ReservationStateIndex;
+import br.com.fiap.soat7.usecase.reservation.TimeOrderedPaymentCodeGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveSalesServiceImplTest {
+
+    @Mock ReactiveSaleRepository saleRepo;
+    @Mock ReactiveCarRepository carRepo;
+    @Mock TransactionalOperator tx;
+    @Mock ApplicationEventPublisher events;
+    @Mock ReservationStateIndex states;
+
+    ReactiveSalesServiceImpl service;
+
+    @BeforeEach
+    void setup() {
+        service = new ReactiveSalesServiceImpl(saleRepo, carRepo, tx, events,
+                new ReservationGate(new SimpleMeterRegistry(), Duration.ofSeconds(5)),
+                new TimeOrderedPaymentCodeGenerator(), states);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubTransaction() {
+        when(tx.transactional(any(Mono.class))).thenAnswer(inv -> inv.getArgument(0));
+    }
+
+    private static CarRow car(long id, String price) {
+        CarRow c = new CarRow();
+        c.setId(id);
+        c.setPrice(new BigDecimal(price));
+        return c;
+    }
+
+    @Test
+    void listAvailable_deveMapearLinhasParaCar() {
+        when(carRepo.findBySoldIsFalseOrderByPriceAscIdAsc()).thenReturn(Flux.just(car(1, "10"), car(2, "20")));
+
+        List<Car> cars = service.listAvailable().collectList().block();
+
+        assertEquals(List.of(1L, 2L), cars.stream().map(Car::getId).toList());
+    }
+
+    @Test
+    void listSoldPaginado_buscaLimitMaisUm() {
+        when(carRepo.findSoldFirst(3)).thenReturn(Flux.just(car(1, "10"), car(2, "20"), car(3, "30")));
+
+        CarPage page = service.listSold(null, 2).block();
+
+        assertEquals(2, page.items().size());
+        assertNotNull(page.next());
+    }
+
+    @Test
+    void reserved_quandoIndiceSabeQueEstaVendido_recusaSemConsultarOBanco() {
+        when(states.refusal(3L)).thenReturn(Sale.Status.PAID);
+
+        var ex = assertThrows(IllegalStateException.class, () -> service.reserved(3L).block());
+        assertEquals("Car já foi vendido", ex.getMessage());
+        verifyNoInteractions(saleRepo, carRepo, events);
+    }
+
+    @Test
+    void reserved_quandoCarNaoExiste_deveLancarIllegalArgument() {
+        stubTransaction();
+        when(saleRepo.tryReserve(eq(1L), anyString(), any(Instant.class), any(Instant.class))).thenReturn(Mono.empty());
+        when(carRepo.existsById(1L)).thenReturn(Mono.just(false));
+
+        var ex = assertThrows(IllegalArgumentException.class, () -> service.reserved(1L).block());
+        assertEquals("Car não encontrado no serviço de venda", ex.getMessage());
+        verifyNoInteractions(events);
+    }
+
+    @Test
+    void reserved_quandoReservaAceita_devolveVendaEPublicaEvento() {
+        stubTransaction();
+        when(saleRepo.tryReserve(eq(10L), anyString(), any(Instant.class), any(Instant.class))).thenReturn(Mono.just(99L));
+
+        PurchaseResponse resp = service.reserved(10L).block();
+
+        assertEquals(99L, resp.saleId());
+        assertEquals(10L, resp.carId());
+        assertNotNull(resp.paymentCode());
+        assertTrue(resp.reservedUntil().isAfter(Instant.now()));
+        verify(events).publishEvent(CatalogChangedEvent.of(10L));
+    }
+
+    @Test
+    void reserved_quandoSaleReservadoEValido_lancaIllegalState() {
+        stubTransaction();
+        when(saleRepo.tryReserve(eq(2L), anyString(), any(Instant.class), any(Instant.class))).thenReturn(Mono.empty());
+        when(carRepo.existsById(2L)).thenReturn(Mono.just(true));
+        when(saleRepo.findStatusByCarId(2L)).thenReturn(Mono.just("RESERVED"));
+
+        var ex = assertThrows(IllegalStateException.class, () -> service.reserved(2L).block());
+        assertEquals("Car já está reservado", ex.getMessage());
+        verify(saleRepo, never()).save(any());
+    }
+
+    @Test
+    void reserved_quandoSaleJaPago_lancaIllegalState() {
+        stubTransaction();
+        when(saleRepo.tryReserve(eq(4L), anyString(), any(Instant.class), any(Instant.class))).thenReturn(Mono.empty());
+        when(carRepo.existsById(4L)).thenReturn(Mono.just(true));
+        when(saleRepo.findStatusByCarId(4L)).thenReturn(Mono.just("PAID"));
+
+        var ex = assertThrows(IllegalStateException.class, () -> service.reserved(4L).block());
+        assertEquals("Car já foi vendido", ex.getMessage());
+    }
+}
@@ -2,22 +2,47 @@ package br.com.fiap.soat7.usecase.services.impl;
 
 import br.com.fiap.soat7.adapter.repositories.CarRepository;
 import br.com.fiap.soat7.adapter.repositories.SaleRepository;
+import br.com.fiap.soat7.adapter.repositories.WebhookInboxRepository;
 import br.com.fiap.soat7.data.domain.Car;
 import br.com.fiap.soat7.data.domain.Sale;
+import br.com.fiap.soat7.data.domain.WebhookInboxEntry;
+import br.com.fiap.soat7.data.domain.dto.BatchPaymentWebhookRequest;
+import br.com.fiap.soat7.data.domain.dto.BatchPaymentWebhookResponse;
+import br.com.fiap.soat7.data.domain.dto.BatchPurchaseRequest;
+import br.com.fiap.soat7.data.domain.dto.BatchPurchaseResponse;
+import br.com.fiap.soat7.data.domain.dto.CarCursor;
+import br.com.fiap.soat7.data.domain.dto.CarPage;
+import br.com.fiap.soat7.data.domain.dto.CarSearch;
+import br.com.fiap.soat7.data.domain.dto.CarSearchCursor;
 import br.com.fiap.soat7.data.domain.dto.PaymentWebhookRequest;
 import br.com.fiap.soat7.data.domain.dto.PurchaseResponse;
+import br.com.fiap.soat7.usecase.catalog.CatalogChangedEvent;
+import br.com.fiap.soat7.usecase.catalog.CatalogListing;
+import br.com.fiap.soat7.usecase.catalog.CatalogSnapshot;
+import br.com.fiap.soat7.usecase.catalog.CatalogView;
+import br.com.fiap.soat7.usecase.catalog.CatalogSnapshotStore;
+import br.com.fiap.soat7.usecase.notification.CarSoldOutbox;
+import br.com.fiap.soat7.usecase.reservation.CarReservedException;
+import br.com.fiap.soat7.usecase.reservation.ReservationGate;
+import br.com.fiap.soat7.usecase.reservation.ReservationStateIndex;
+import br.com.fiap.soat7.usecase.reservation.TimeOrderedPaymentCodeGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Mono;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -25,31 +50,21 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class SalesServiceImplTest {
 
-    @Mock WebClient client;
+    @Mock CarSoldOutbox outbox;
     @Mock SaleRepository saleRepo;
     @Mock CarRepository carRepo;
+    @Mock CatalogSnapshotStore catalog;
+    @Mock ApplicationEventPublisher events;
+    @Mock ReservationStateIndex states;
+    @Mock WebhookInboxRepository inbox;
 
     SalesServiceImpl service;
 
     @BeforeEach
     void setup() {
-        service = new SalesServiceImpl(client, saleRepo, carRepo);
-    }
-
-    // ---- helper: stub do webclient só quando precisar (webhook PAID) ----
-    @SuppressWarnings({"rawtypes", "unchecked"})
-    private void stubWebClientNotifyOk() {
-        WebClient.RequestBodyUriSpec reqBodyUriSpec = mock(WebClient.RequestBodyUriSpec.class);
-        WebClient.RequestBodySpec reqBodySpec = mock(WebClient.RequestBodySpec.class);
-        WebClient.RequestHeadersSpec reqHeadersSpec = mock(WebClient.RequestHeadersSpec.class);
-        WebClient.ResponseSpec responseSpec = mock(WebClient.ResponseSpec.class);
-
-        when(client.post()).thenReturn(reqBodyUriSpec);
-        when(reqBodyUriSpec.uri(Mockito.anyString(), Mockito.<Object>any()))
-                .thenReturn(reqBodySpec);
-        when(reqBodySpec.bodyValue(any())).thenReturn(reqHeadersSpec);
-        when(reqHeadersSpec.retrieve()).thenReturn(responseSpec);
-        when(responseSpec.toBodilessEntity()).thenReturn(Mono.empty());
+        service = new SalesServiceImpl(outbox, saleRepo, carRepo, catalog, events,
+                new ReservationGate(new SimpleMeterRegistry(), Duration.ofSeconds(5)),
+                new TimeOrderedPaymentCodeGenerator(), states, inbox);
     }
 
     // -----------------------------
@@ -57,185 +72,262 @@ class SalesServiceImplTest {
     // -----------------------------
 
     @Test
-    void listAvailable_deveDelegarRepo() {
+    void listAvailable_deveServirDaFotoEmMemoria() {
         List<Car> expected = List.of(new Car(), new Car());
-        when(carRepo.findBySoldIsFalseOrderByPriceAsc()).thenReturn(expected);
+        when(catalog.cars(CatalogListing.AVAILABLE)).thenReturn(expected);
 
         List<Car> actual = service.listAvailable();
 
         assertSame(expected, actual);
-        verify(carRepo).findBySoldIsFalseOrderByPriceAsc();
-        verifyNoMoreInteractions(carRepo);
-        verifyNoInteractions(saleRepo, client);
+        verifyNoInteractions(carRepo, saleRepo, outbox);
     }
 
     @Test
-    void listSold_deveRemoverCarrosQueEstaoReservados() {
-        // cars sold = true
+    void listSold_deveServirDaFotoEmMemoria() {
         Car c1 = new Car(); c1.setId(1L);
-        Car c2 = new Car(); c2.setId(2L);
         Car c3 = new Car(); c3.setId(3L);
+        when(catalog.cars(CatalogListing.SOLD)).thenReturn(List.of(c1, c3));
 
-        when(carRepo.findBySoldIsTrueOrderByPriceAsc()).thenReturn(List.of(c1, c2, c3));
+        List<Car> actual = service.listSold();
+
+        assertEquals(List.of(1L, 3L), actual.stream().map(Car::getId).toList());
+        verifyNoInteractions(carRepo, saleRepo, outbox);
+    }
 
-        // reserved sales -> carId 2 e 99 (99 não existe na lista)
-        Sale s1 = new Sale(); s1.setCarId(2L); s1.setStatus(Sale.Status.RESERVED);
-        Sale s2 = new Sale(); s2.setCarId(99L); s2.setStatus(Sale.Status.RESERVED);
+    @Test
+    void listReserved_deveServirDaFotoEmMemoria() {
+        Car c2 = new Car(); c2.setId(2L);
+        when(catalog.cars(CatalogListing.RESERVED)).thenReturn(List.of(c2));
 
-        when(saleRepo.findByStatusOrderByLockedPriceAsc(Sale.Status.RESERVED))
-                .thenReturn(List.of(s1, s2));
+        List<Car> actual = service.listReserved();
 
-        List<Car> actual = service.listSold();
+        assertEquals(List.of(2L), actual.stream().map(Car::getId).toList());
+        verifyNoInteractions(carRepo, saleRepo, outbox);
+    }
 
-        // deve excluir o carro 2 (reservado) e manter 1 e 3
-        assertEquals(List.of(1L, 3L), actual.stream().map(Car::getId).toList());
+    @Test
+    void facets_deveVirDaFotoAtualSemBanco() {
+        CatalogSnapshot snap = CatalogSnapshot.empty();
+        when(catalog.current()).thenReturn(snap);
 
-        verify(saleRepo).findByStatusOrderByLockedPriceAsc(Sale.Status.RESERVED);
-        verify(carRepo).findBySoldIsTrueOrderByPriceAsc();
-        verifyNoMoreInteractions(carRepo, saleRepo);
-        verifyNoInteractions(client);
+        assertSame(snap.facets(), service.facets());
+        verifyNoInteractions(carRepo, saleRepo);
     }
 
     @Test
-    void listReserved_deveRetornarApenasCarrosQueEstaoReservados() {
-        Car c1 = new Car(); c1.setId(1L);
-        Car c2 = new Car(); c2.setId(2L);
-        Car c3 = new Car(); c3.setId(3L);
+    void view_deveDelegarAoCatalogoSemBanco() {
+        CatalogView view = new CatalogView("\"x-available-3\"", List.of());
+        when(catalog.view(CatalogListing.AVAILABLE)).thenReturn(view);
 
-        when(carRepo.findBySoldIsTrueOrderByPriceAsc()).thenReturn(List.of(c1, c2, c3));
+        assertSame(view, service.view(CatalogListing.AVAILABLE));
+        verifyNoInteractions(carRepo, saleRepo, outbox);
+    }
 
-        Sale s1 = new Sale(); s1.setCarId(2L); s1.setStatus(Sale.Status.RESERVED);
+    @Test
+    @SuppressWarnings("unchecked")
+    void search_quandoCabeNoLimite_devolvePaginaSemCursor() {
+        Car c = new Car(); c.setId(7L);
+        when(carRepo.findBy(any(Specification.class), any())).thenReturn(List.of(c));
 
-        when(saleRepo.findByStatusOrderByLockedPriceAsc(Sale.Status.RESERVED))
-                .thenReturn(List.of(s1));
+        CarPage page = service.search(new CarSearch("Toyota", null, 2018, 2022, null, null, null, null, 20, null));
 
-        List<Car> actual = service.listReserved();
+        assertEquals(List.of(c), page.items());
+        assertNull(page.next());
+        verify(carRepo).findBy(any(Specification.class), any());
+        verifyNoInteractions(saleRepo, catalog);
+    }
 
-        // deve retornar só o 2
-        assertEquals(List.of(2L), actual.stream().map(Car::getId).toList());
+    @Test
+    @SuppressWarnings("unchecked")
+    void search_quandoHaMaisQueOLimite_devolveCursorDoUltimoNaOrdenacaoPedida() {
+        Car c1 = new Car("Toyota", "Corolla", 2022, "Prata", new BigDecimal("100")); c1.setId(1L);
+        Car c2 = new Car("Toyota", "Yaris", 2021, "Preto", new BigDecimal("90")); c2.setId(2L);
+        Car c3 = new Car("Toyota", "Etios", 2020, "Branco", new BigDecimal("80")); c3.setId(3L);
+        when(carRepo.findBy(any(Specification.class), any())).thenReturn(List.of(c1, c2, c3));
+
+        CarPage page = service.search(new CarSearch("Toyota", null, null, null, null, null, null,
+                CarSearch.Sort.YEAR_DESC, 2, null));
+
+        assertEquals(List.of(c1, c2), page.items());
+        assertEquals(new CarSearchCursor(CarSearch.Sort.YEAR_DESC, 2021, new BigDecimal("90"), 2L),
+                CarSearchCursor.decode(page.next()));
+    }
+
+    // -----------------------------
+    // listagens paginadas (keyset)
+    // -----------------------------
+
+    @Test
+    void listAvailablePaginado_semCursor_buscaPrimeiraPaginaComLinhaExcedente() {
+        Car c1 = new Car(); c1.setId(1L); c1.setPrice(new BigDecimal("10"));
+        Car c2 = new Car(); c2.setId(2L); c2.setPrice(new BigDecimal("20"));
+        when(carRepo.findBySoldIsFalseOrderByPriceAscIdAsc(Limit.of(2))).thenReturn(List.of(c1, c2));
+
+        CarPage page = service.listAvailable(null, 1);
 
-        verify(saleRepo).findByStatusOrderByLockedPriceAsc(Sale.Status.RESERVED);
-        verify(carRepo).findBySoldIsTrueOrderByPriceAsc();
-        verifyNoMoreInteractions(carRepo, saleRepo);
-        verifyNoInteractions(client);
+        assertEquals(List.of(c1), page.items());
+        assertEquals(1L, CarCursor.decode(page.next()).id());
+        verifyNoInteractions(saleRepo, outbox);
+    }
+
+    @Test
+    void listAvailablePaginado_comCursor_fazSeekAposChave() {
+        String cursor = new CarCursor(new BigDecimal("20"), 2L).encode();
+        when(carRepo.findAvailableAfter(new BigDecimal("20"), 2L, Limit.of(51))).thenReturn(List.of());
+
+        CarPage page = service.listAvailable(cursor, 50);
+
+        assertTrue(page.items().isEmpty());
+        assertNull(page.next());
+    }
+
+    @Test
+    void listSoldPaginado_excluiReservadosNaConsulta() {
+        when(carRepo.findSoldFirst(Sale.Status.RESERVED, Limit.of(11))).thenReturn(List.of());
+
+        service.listSold(null, 10);
+
+        verify(carRepo).findSoldFirst(Sale.Status.RESERVED, Limit.of(11));
+        verifyNoInteractions(saleRepo);
+    }
+
+    @Test
+    void listReservedPaginado_comCursor_fazSeekAposChave() {
+        String cursor = new CarCursor(new BigDecimal("5"), 9L).encode();
+        when(carRepo.findReservedAfter(Sale.Status.RESERVED, new BigDecimal("5"), 9L, Limit.of(11)))
+                .thenReturn(List.of());
+
+        service.listReserved(cursor, 10);
+
+        verify(carRepo).findReservedAfter(Sale.Status.RESERVED, new BigDecimal("5"), 9L, Limit.of(11));
+    }
+
+    @Test
+    void listPaginado_quandoLimitInvalido_lancaIllegalArgument() {
+        assertThrows(IllegalArgumentException.class, () -> service.listAvailable(null, 0));
+        verifyNoInteractions(carRepo, saleRepo, outbox);
     }
 
     // -----------------------------
     // purchase()
     // -----------------------------
 
+    @Test
+    void reserved_quandoIndiceSabeQueEstaVendido_recusaSemConsultarOBanco() {
+        when(states.refusal(3L)).thenReturn(Sale.Status.PAID);
+
+        var ex = assertThrows(IllegalStateException.class, () -> service.reserved(3L));
+        assertEquals("Car já foi vendido", ex.getMessage());
+        verifyNoInteractions(saleRepo, carRepo, events);
+    }
+
     @Test
     void reserved_quandoCarNaoExiste_deveLancarIllegalArgument() {
-        when(carRepo.findById(1L)).thenReturn(Optional.empty());
+        when(saleRepo.tryReserve(eq(1L), anyString(), any(Instant.class), any(Instant.class))).thenReturn(Optional.empty());
+        when(carRepo.existsById(1L)).thenReturn(false);
 
         var ex = assertThrows(IllegalArgumentException.class, () -> service.reserved(1L));
         assertEquals("Car não encontrado no serviço de venda", ex.getMessage());
 
-        verify(carRepo).findById(1L);
-        verifyNoInteractions(saleRepo, client);
+        verifyNoInteractions(outbox, events);
     }
 
     @Test
-    void reserved_quandoSaleNaoExiste_criaReservaESalva() {
-        Car car = new Car();
-        car.setPrice(new BigDecimal("12345.67"));
-        when(carRepo.findById(10L)).thenReturn(Optional.of(car));
-        when(saleRepo.lockByCarId(10L)).thenReturn(Optional.empty());
-
-        when(saleRepo.save(any(Sale.class))).thenAnswer(inv -> {
-            Sale s = inv.getArgument(0);
-            s.setId(99L);
-            return s;
-        });
+    void reserved_quandoReservaAceita_devolveVendaSemLerNemSalvarEntidades() {
+        when(saleRepo.tryReserve(eq(10L), anyString(), any(Instant.class), any(Instant.class))).thenReturn(Optional.of(99L));
 
+        Instant before = Instant.now();
         PurchaseResponse resp = service.reserved(10L);
 
+        ArgumentCaptor<String> paymentCode = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Instant> reservedUntil = ArgumentCaptor.forClass(Instant.class);
+        ArgumentCaptor<Instant> now = ArgumentCaptor.forClass(Instant.class);
+        verify(saleRepo).tryReserve(eq(10L), paymentCode.capture(), reservedUntil.capture(), now.capture());
+
         assertEquals(99L, resp.saleId());
         assertEquals(10L, resp.carId());
-        assertNotNull(resp.paymentCode());
-        assertNotNull(resp.reservedUntil());
-
-        ArgumentCaptor<Sale> captor = ArgumentCaptor.forClass(Sale.class);
-        verify(saleRepo).save(captor.capture());
-
-        Sale saved = captor.getValue();
-        assertEquals(10L, saved.getCarId());
-        assertEquals(Sale.Status.RESERVED, saved.getStatus());
-        assertEquals(new BigDecimal("12345.67"), saved.getLockedPrice());
-        assertNotNull(saved.getPaymentCode());
-        assertNotNull(saved.getReservedUntil());
+        assertEquals(paymentCode.getValue(), resp.paymentCode());
+        assertEquals(reservedUntil.getValue(), resp.reservedUntil());
+        assertFalse(now.getValue().isBefore(before));
+        assertEquals(SalesServiceImpl.RESERVATION_TTL, Duration.between(now.getValue(), resp.reservedUntil()));
 
-        verify(saleRepo).lockByCarId(10L);
-        verify(carRepo).findById(10L);
-        verifyNoInteractions(client);
+        verify(events).publishEvent(CatalogChangedEvent.of(10L));
+        verify(saleRepo, never()).save(any());
+        verifyNoInteractions(carRepo);
     }
 
     @Test
     void reserved_quandoSaleJaPago_lancaIllegalState() {
-        Car car = new Car();
-        car.setPrice(new BigDecimal("10"));
-        when(carRepo.findById(1L)).thenReturn(Optional.of(car));
-
-        Sale sale = new Sale();
-        sale.setCarId(1L);
-        sale.setStatus(Sale.Status.PAID);
-        when(saleRepo.lockByCarId(1L)).thenReturn(Optional.of(sale));
+        when(saleRepo.tryReserve(eq(2L), anyString(), any(Instant.class), any(Instant.class))).thenReturn(Optional.empty());
+        when(carRepo.existsById(2L)).thenReturn(true);
+        when(saleRepo.findStatusByCarId(2L)).thenReturn(Optional.of(Sale.Status.PAID));
 
-        var ex = assertThrows(IllegalStateException.class, () -> service.reserved(1L));
+        var ex = assertThrows(IllegalStateException.class, () -> service.reserved(2L));
         assertEquals("Car já foi vendido", ex.getMessage());
-
-        verify(saleRepo, never()).save(any());
-        verifyNoInteractions(client);
+        verifyNoInteractions(events);
     }
 
     @Test
     void reserved_quandoSaleReservadoEValido_lancaIllegalState() {
-        Car car = new Car();
-        car.setPrice(new BigDecimal("10"));
-        when(carRepo.findById(2L)).thenReturn(Optional.of(car));
-
-        Sale sale = new Sale();
-        sale.setCarId(2L);
-        sale.setStatus(Sale.Status.RESERVED);
-        sale.setReservedUntil(Instant.now().plusSeconds(60));
-        when(saleRepo.lockByCarId(2L)).thenReturn(Optional.of(sale));
+        when(saleRepo.tryReserve(eq(3L), anyString(), any(Instant.class), any(Instant.class))).thenReturn(Optional.empty());
+        when(carRepo.existsById(3L)).thenReturn(true);
+        when(saleRepo.findStatusByCarId(3L)).thenReturn(Optional.of(Sale.Status.RESERVED));
 
-        var ex = assertThrows(IllegalStateException.class, () -> service.reserved(2L));
+        var ex = assertThrows(IllegalStateException.class, () -> service.reserved(3L));
         assertEquals("Car já está reservado", ex.getMessage());
-
-        verify(saleRepo, never()).save(any());
-        verifyNoInteractions(client);
+        verifyNoInteractions(events);
     }
 
     @Test
-    void reserved_quandoSaleReservadoMasExpirado_reservaDeNovo() {
-        Car car = new Car();
-        car.setPrice(new BigDecimal("10"));
-        when(carRepo.findById(3L)).thenReturn(Optional.of(car));
+    void reserved_quandoRecusadaHaPouco_respondeSemIrAoBanco() {
+        when(saleRepo.tryReserve(eq(3L), anyString(), any(Instant.class), any(Instant.class))).thenReturn(Optional.empty());
+        when(carRepo.existsById(3L)).thenReturn(true);
+        when(saleRepo.findStatusByCarId(3L)).thenReturn(Optional.of(Sale.Status.PAID));
 
-        Sale sale = new Sale();
-        sale.setId(7L);
-        sale.setCarId(3L);
-        sale.setLockedPrice(new BigDecimal("10"));
-        sale.setStatus(Sale.Status.RESERVED);
-        sale.setReservedUntil(Instant.now().minusSeconds(5));
-        when(saleRepo.lockByCarId(3L)).thenReturn(Optional.of(sale));
+        assertThrows(IllegalStateException.class, () -> service.reserved(3L));
+        var ex = assertThrows(IllegalStateException.class, () -> service.reserved(3L));
 
-        when(saleRepo.save(any(Sale.class))).thenAnswer(inv -> inv.getArgument(0));
+        assertEquals("Car já foi vendido", ex.getMessage());
+        verify(saleRepo, times(1)).tryReserve(eq(3L), anyString(), any(Instant.class), any(Instant.class));
+    }
 
-        PurchaseResponse resp = service.reserved(3L);
+    @Test
+    @SuppressWarnings("unchecked")
+    void reservedBatch_deveReservarEmOrdemCrescenteEClassificarRecusados() {
+        when(saleRepo.tryReserveAll(eq(List.of(1L, 2L, 3L, 4L)), anyList(), any(Instant.class), any(Instant.class)))
+                .thenReturn(Map.of(1L, 101L, 4L, 104L));
+        when(carRepo.findExistingIds(List.of(2L, 3L))).thenReturn(List.of(2L));
+        when(saleRepo.findStatusByCarIds(List.of(2L, 3L)))
+                .thenReturn(List.<Object[]>of(new Object[]{2L, Sale.Status.PAID}));
+
+        BatchPurchaseResponse resp = service.reservedBatch(new BatchPurchaseRequest(List.of(4L, 3L, 2L, 1L, 4L)));
+
+        ArgumentCaptor<List<String>> codes = ArgumentCaptor.forClass(List.class);
+        verify(saleRepo).tryReserveAll(eq(List.of(1L, 2L, 3L, 4L)), codes.capture(), eq(resp.reservedUntil()), any(Instant.class));
+        assertEquals(4, Set.copyOf(codes.getValue()).size());
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), resp.results().stream().map(BatchPurchaseResponse.Item::carId).toList());
+        assertEquals(List.of(BatchPurchaseResponse.Outcome.RESERVED, BatchPurchaseResponse.Outcome.SOLD,
+                        BatchPurchaseResponse.Outcome.NOT_FOUND, BatchPurchaseResponse.Outcome.RESERVED),
+                resp.results().stream().map(BatchPurchaseResponse.Item::outcome).toList());
+        assertEquals(101L, resp.results().get(0).saleId());
+        assertEquals(codes.getValue().get(3), resp.results().get(3).paymentCode());
+        assertNull(resp.results().get(1).paymentCode());
+
+        verify(events).publishEvent(new CatalogChangedEvent(Set.of(1L, 4L)));
+    }
 
-        assertEquals(7L, resp.saleId());
-        assertEquals(3L, resp.carId());
-        assertNotNull(resp.paymentCode());
-        assertNotNull(resp.reservedUntil());
+    @Test
+    void reservedBatch_quandoNenhumLivre_naoPublicaEvento() {
+        when(saleRepo.tryReserveAll(eq(List.of(5L)), anyList(), any(Instant.class), any(Instant.class))).thenReturn(Map.of());
+        when(carRepo.findExistingIds(List.of(5L))).thenReturn(List.of(5L));
+        when(saleRepo.findStatusByCarIds(List.of(5L)))
+                .thenReturn(List.<Object[]>of(new Object[]{5L, Sale.Status.RESERVED}));
 
-        verify(saleRepo).save(sale);
-        assertEquals(Sale.Status.RESERVED, sale.getStatus());
-        assertNotNull(sale.getPaymentCode());
-        assertTrue(sale.getReservedUntil().isAfter(Instant.now()));
+        BatchPurchaseResponse resp = service.reservedBatch(new BatchPurchaseRequest(List.of(5L)));
 
-        verifyNoInteractions(client);
+        assertEquals(BatchPurchaseResponse.Outcome.ALREADY_RESERVED, resp.results().get(0).outcome());
+        verifyNoInteractions(events);
     }
 
     // -----------------------------
@@ -250,7 +342,7 @@ class SalesServiceImplTest {
         var ex = assertThrows(IllegalArgumentException.class, () -> service.handlePaymentWebhook(req));
         assertEquals("paymentCode não encontrado", ex.getMessage());
 
-        verifyNoInteractions(carRepo, client);
+        verifyNoInteractions(carRepo, outbox);
     }
 
     @Test
@@ -265,7 +357,7 @@ class SalesServiceImplTest {
         var ex = assertThrows(IllegalArgumentException.class, () -> service.handlePaymentWebhook(req));
         assertEquals("Car não encontrado no serviço de venda", ex.getMessage());
 
-        verifyNoInteractions(client);
+        verifyNoInteractions(outbox);
     }
 
     @Test
@@ -282,7 +374,7 @@ class SalesServiceImplTest {
 
         verify(saleRepo, never()).save(any());
         verify(carRepo, never()).save(any());
-        verifyNoInteractions(client);
+        verifyNoInteractions(outbox);
     }
 
     @Test
@@ -299,12 +391,11 @@ class SalesServiceImplTest {
 
         verify(saleRepo, never()).save(any());
         verify(carRepo, never()).save(any());
-        verifyNoInteractions(client);
+        verifyNoInteractions(outbox);
     }
 
     @Test
     void webhook_statusPaid_atualizaSale_salva_notificaCore_eventAtNull() {
-        stubWebClientNotifyOk(); // <- só aqui
 
         Sale sale = new Sale();
         sale.setCarId(3L);
@@ -324,12 +415,11 @@ class SalesServiceImplTest {
         assertNull(sale.getReservedUntil());
 
         verify(saleRepo).save(sale);
-        verify(client).post(); // notificação executada (subscribe)
+        verify(outbox).enqueue(sale); // notificação gravada na outbox, na mesma transação
     }
 
     @Test
     void webhook_statusPaid_atualizaSale_salva_notificaCore_eventAtInformado() {
-        stubWebClientNotifyOk(); // <- só aqui
 
         Sale sale = new Sale();
         sale.setCarId(4L);
@@ -347,7 +437,27 @@ class SalesServiceImplTest {
         assertEquals(eventAt, sale.getSoldAt());
 
         verify(saleRepo).save(sale);
-        verify(client).post();
+        verify(events).publishEvent(CatalogChangedEvent.of(4L));
+        verify(outbox).enqueue(sale);
+    }
+
+    @Test
+    void webhook_statusPaid_aposReservaExpirada_voltaCarroParaVendido() {
+
+        Sale sale = new Sale();
+        sale.setCarId(6L);
+        sale.setPaymentCode("pc6");
+        sale.setStatus(Sale.Status.AVAILABLE); // liberada pelo ReservationSweeper
+        Car car = new Car();
+        car.setSold(false);
+        when(saleRepo.findByPaymentCode("pc6")).thenReturn(Optional.of(sale));
+        when(carRepo.findById(6L)).thenReturn(Optional.of(car));
+
+        service.handlePaymentWebhook(new PaymentWebhookRequest("pc6", "PAID", "cpf", null));
+
+        assertEquals(Sale.Status.PAID, sale.getStatus());
+        assertTrue(car.isSold());
+        verify(carRepo).save(car);
     }
 
     @Test
@@ -373,7 +483,8 @@ class SalesServiceImplTest {
 
         verify(carRepo).save(car);
         verify(saleRepo).save(sale);
-        verifyNoInteractions(client);
+        verify(events).publishEvent(CatalogChangedEvent.of(5L));
+        verifyNoInteractions(outbox);
     }
 
     @Test
@@ -392,6 +503,123 @@ class SalesServiceImplTest {
 
         verify(saleRepo, never()).save(any());
         verify(carRepo, never()).save(any());
-        verifyNoInteractions(client);
+        verifyNoInteractions(outbox);
+    }
+
+    // -----------------------------
+    // handlePaymentWebhookBatch()
+    // -----------------------------
+
+    private static Sale sale(long carId, String paymentCode, Sale.Status status) {
+        Sale sale = new Sale();
+        sale.setCarId(carId);
+        sale.setPaymentCode(paymentCode);
+        sale.setStatus(status);
+        return sale;
+    }
+
+    private static Car car(long id, boolean sold) {
+        Car car = new Car();
+        car.setId(id);
+        car.setSold(sold);
+        return car;
+    }
+
+    @Test
+    void webhookBatch_deveResolverTudoEmDuasConsultasEResultadoPorEvento() {
+        Sale s1 = sale(1L, "pc1", Sale.Status.RESERVED);
+        Sale s2 = sale(2L, "pc2", Sale.Status.RESERVED);
+        Sale s3 = sale(3L, "pc3", Sale.Status.PAID);
+        Car c1 = car(1L, true);
+        Car c2 = car(2L, true);
+        when(saleRepo.findByPaymentCodeIn(Set.of("pc1", "pc2", "pc3", "nope"))).thenReturn(List.of(s1, s2, s3));
+        when(carRepo.findAllById(Set.of(1L, 2L, 3L))).thenReturn(List.of(c1, c2, car(3L, true)));
+
+        BatchPaymentWebhookResponse resp = service.handlePaymentWebhookBatch(new BatchPaymentWebhookRequest(List.of(
+                new PaymentWebhookRequest("pc1", "paid", "111", null),
+                new PaymentWebhookRequest("pc2", "CANCELED", null, null),
+                new PaymentWebhookRequest("pc3", "PAID", "333", null),
+                new PaymentWebhookRequest("nope", "PAID", null, null),
+                new PaymentWebhookRequest("pc1", "REFUNDED", null, null))));
+
+        assertEquals(List.of(BatchPaymentWebhookResponse.Outcome.PAID, BatchPaymentWebhookResponse.Outcome.CANCELED,
+                        BatchPaymentWebhookResponse.Outcome.UNCHANGED, BatchPaymentWebhookResponse.Outcome.NOT_FOUND,
+                        BatchPaymentWebhookResponse.Outcome.INVALID_STATUS),
+                resp.results().stream().map(BatchPaymentWebhookResponse.Item::outcome).toList());
+        assertNull(resp.results().get(3).carId());
+
+        assertEquals(Sale.Status.PAID, s1.getStatus());
+        assertEquals("111", s1.getBuyerCpf());
+        assertNotNull(s1.getSoldAt());
+        assertEquals(Sale.Status.CANCELED, s2.getStatus());
+        assertFalse(c2.isSold());
+
+        // alterações saem pelo dirty checking no commit, sem save/findById por evento
+        verify(saleRepo, never()).save(any());
+        verify(carRepo, never()).save(any());
+        verify(saleRepo, never()).findByPaymentCode(any());
+        verify(events).publishEvent(new CatalogChangedEvent(Set.of(1L, 2L)));
+        verify(outbox).enqueueAll(List.of(s1));
+    }
+
+    @Test
+    void webhookBatch_quandoPagoECanceladoNoMesmoLote_naoNotificaCore() {
+        Sale s1 = sale(1L, "pc1", Sale.Status.RESERVED);
+        Car c1 = car(1L, true);
+        when(saleRepo.findByPaymentCodeIn(Set.of("pc1"))).thenReturn(List.of(s1));
+        when(carRepo.findAllById(Set.of(1L))).thenReturn(List.of(c1));
+
+        BatchPaymentWebhookResponse resp = service.handlePaymentWebhookBatch(new BatchPaymentWebhookRequest(List.of(
+                new PaymentWebhookRequest("pc1", "PAID", "111", null),
+                new PaymentWebhookRequest("pc1", "CANCELED", null, null))));
+
+        assertEquals(List.of(BatchPaymentWebhookResponse.Outcome.PAID, BatchPaymentWebhookResponse.Outcome.CANCELED),
+                resp.results().stream().map(BatchPaymentWebhookResponse.Item::outcome).toList());
+        assertEquals(Sale.Status.CANCELED, s1.getStatus());
+        assertFalse(c1.isSold());
+        verifyNoInteractions(outbox);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void webhookBatch_quandoPaymentCodeTemEventoPendenteNaCaixaDeEntrada_gravaAtrasDeleSemAplicar() {
+        Sale s1 = sale(1L, "pc1", Sale.Status.RESERVED);
+        Sale s2 = sale(2L, "pc2", Sale.Status.RESERVED);
+        Car c1 = car(1L, true);
+        when(inbox.findPendingPaymentCodes(Set.of("pc1", "pc2"))).thenReturn(Set.of("pc1"));
+        when(saleRepo.findByPaymentCodeIn(Set.of("pc1", "pc2"))).thenReturn(List.of(s1, s2));
+        when(carRepo.findAllById(Set.of(1L, 2L))).thenReturn(List.of(c1, car(2L, true)));
+
+        BatchPaymentWebhookResponse resp = service.handlePaymentWebhookBatch(new BatchPaymentWebhookRequest(List.of(
+                new PaymentWebhookRequest("pc1", "paid", "111", null),
+                new PaymentWebhookRequest("pc2", "PAID", "222", null),
+                new PaymentWebhookRequest("pc1", "REFUNDED", null, null))));
+
+        assertEquals(List.of(BatchPaymentWebhookResponse.Outcome.QUEUED, BatchPaymentWebhookResponse.Outcome.PAID,
+                        BatchPaymentWebhookResponse.Outcome.INVALID_STATUS),
+                resp.results().stream().map(BatchPaymentWebhookResponse.Item::outcome).toList());
+        assertEquals(Sale.Status.RESERVED, s1.getStatus());
+        assertTrue(c1.isSold());
+
+        ArgumentCaptor<List<WebhookInboxEntry>> saved = ArgumentCaptor.forClass(List.class);
+        verify(inbox).saveAll(saved.capture());
+        assertEquals(1, saved.getValue().size());
+        assertEquals("pc1", saved.getValue().get(0).getPaymentCode());
+        assertEquals("PAID", saved.getValue().get(0).getStatus());
+        assertEquals("111", saved.getValue().get(0).getBuyerCpf());
+        verify(outbox).enqueueAll(List.of(s2));
+    }
+
+    @Test
+    void webhookBatch_quandoListaVaziaOuGrandeDemais_lancaIllegalArgument() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.handlePaymentWebhookBatch(new BatchPaymentWebhookRequest(List.of())));
+
+        List<PaymentWebhookRequest> tooMany = java.util.Collections.nCopies(BatchPaymentWebhookRequest.MAX_EVENTS + 1,
+                new PaymentWebhookRequest("pc", "PAID", null, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.handlePaymentWebhookBatch(new BatchPaymentWebhookRequest(tooMany)));
+
+        verifyNoInteractions(saleRepo, carRepo);
     }
 }